@@ -0,0 +1,1465 @@
+package com.aispeech.aicsv;
+
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * compare the {@link FieldAccessors} strategies when populating (read path) and reading (write path) beans of 5, 20
+ * and 100 columns
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FieldAccessorBenchmark {
+
+	@Param({ "5", "20", "100" })
+	private int columns;
+
+	@Param({ "REFLECTION", "METHOD_HANDLE", "LAMBDA" })
+	private String strategy;
+
+	private FieldAccessor[] accessors;
+	private String[] values;
+	private CsvBean bean;
+
+	@Setup
+	public void setup() throws Exception {
+
+		Class<? extends CsvBean> beanClass = columns == 5 ? Bean5.class : columns == 20 ? Bean20.class
+				: Bean100.class;
+
+		List<? extends ColumnBinding<? extends CsvBean>> bindings = ColumnSchema.of(beanClass).getBindings();
+
+		accessors = new FieldAccessor[bindings.size()];
+		values = new String[bindings.size()];
+		for (int i = 0; i < accessors.length; i++) {
+			Field field = bindings.get(i).getField();
+			accessors[i] = FieldAccessors.valueOf(strategy).create(field);
+			values[i] = "value" + i;
+		}
+
+		bean = beanClass.newInstance();
+
+	}
+
+	@Benchmark
+	public CsvBean populate() throws CsvException {
+
+		for (int i = 0; i < accessors.length; i++) {
+			accessors[i].set(bean, values[i]);
+		}
+
+		return bean;
+
+	}
+
+	@Benchmark
+	public void read(Blackhole blackhole) throws CsvException {
+
+		for (int i = 0; i < accessors.length; i++) {
+			blackhole.consume(accessors[i].get(bean));
+		}
+
+	}
+
+	public static class Bean5 extends CsvBean {
+
+		@Column
+		private String c0;
+
+		public String getC0() {
+			return c0;
+		}
+
+		public void setC0(String c0) {
+			this.c0 = c0;
+		}
+
+		@Column
+		private String c1;
+
+		public String getC1() {
+			return c1;
+		}
+
+		public void setC1(String c1) {
+			this.c1 = c1;
+		}
+
+		@Column
+		private String c2;
+
+		public String getC2() {
+			return c2;
+		}
+
+		public void setC2(String c2) {
+			this.c2 = c2;
+		}
+
+		@Column
+		private String c3;
+
+		public String getC3() {
+			return c3;
+		}
+
+		public void setC3(String c3) {
+			this.c3 = c3;
+		}
+
+		@Column
+		private String c4;
+
+		public String getC4() {
+			return c4;
+		}
+
+		public void setC4(String c4) {
+			this.c4 = c4;
+		}
+	}
+
+	public static class Bean20 extends CsvBean {
+
+		@Column
+		private String c0;
+
+		public String getC0() {
+			return c0;
+		}
+
+		public void setC0(String c0) {
+			this.c0 = c0;
+		}
+
+		@Column
+		private String c1;
+
+		public String getC1() {
+			return c1;
+		}
+
+		public void setC1(String c1) {
+			this.c1 = c1;
+		}
+
+		@Column
+		private String c2;
+
+		public String getC2() {
+			return c2;
+		}
+
+		public void setC2(String c2) {
+			this.c2 = c2;
+		}
+
+		@Column
+		private String c3;
+
+		public String getC3() {
+			return c3;
+		}
+
+		public void setC3(String c3) {
+			this.c3 = c3;
+		}
+
+		@Column
+		private String c4;
+
+		public String getC4() {
+			return c4;
+		}
+
+		public void setC4(String c4) {
+			this.c4 = c4;
+		}
+
+		@Column
+		private String c5;
+
+		public String getC5() {
+			return c5;
+		}
+
+		public void setC5(String c5) {
+			this.c5 = c5;
+		}
+
+		@Column
+		private String c6;
+
+		public String getC6() {
+			return c6;
+		}
+
+		public void setC6(String c6) {
+			this.c6 = c6;
+		}
+
+		@Column
+		private String c7;
+
+		public String getC7() {
+			return c7;
+		}
+
+		public void setC7(String c7) {
+			this.c7 = c7;
+		}
+
+		@Column
+		private String c8;
+
+		public String getC8() {
+			return c8;
+		}
+
+		public void setC8(String c8) {
+			this.c8 = c8;
+		}
+
+		@Column
+		private String c9;
+
+		public String getC9() {
+			return c9;
+		}
+
+		public void setC9(String c9) {
+			this.c9 = c9;
+		}
+
+		@Column
+		private String c10;
+
+		public String getC10() {
+			return c10;
+		}
+
+		public void setC10(String c10) {
+			this.c10 = c10;
+		}
+
+		@Column
+		private String c11;
+
+		public String getC11() {
+			return c11;
+		}
+
+		public void setC11(String c11) {
+			this.c11 = c11;
+		}
+
+		@Column
+		private String c12;
+
+		public String getC12() {
+			return c12;
+		}
+
+		public void setC12(String c12) {
+			this.c12 = c12;
+		}
+
+		@Column
+		private String c13;
+
+		public String getC13() {
+			return c13;
+		}
+
+		public void setC13(String c13) {
+			this.c13 = c13;
+		}
+
+		@Column
+		private String c14;
+
+		public String getC14() {
+			return c14;
+		}
+
+		public void setC14(String c14) {
+			this.c14 = c14;
+		}
+
+		@Column
+		private String c15;
+
+		public String getC15() {
+			return c15;
+		}
+
+		public void setC15(String c15) {
+			this.c15 = c15;
+		}
+
+		@Column
+		private String c16;
+
+		public String getC16() {
+			return c16;
+		}
+
+		public void setC16(String c16) {
+			this.c16 = c16;
+		}
+
+		@Column
+		private String c17;
+
+		public String getC17() {
+			return c17;
+		}
+
+		public void setC17(String c17) {
+			this.c17 = c17;
+		}
+
+		@Column
+		private String c18;
+
+		public String getC18() {
+			return c18;
+		}
+
+		public void setC18(String c18) {
+			this.c18 = c18;
+		}
+
+		@Column
+		private String c19;
+
+		public String getC19() {
+			return c19;
+		}
+
+		public void setC19(String c19) {
+			this.c19 = c19;
+		}
+	}
+
+	public static class Bean100 extends CsvBean {
+
+		@Column
+		private String c0;
+
+		public String getC0() {
+			return c0;
+		}
+
+		public void setC0(String c0) {
+			this.c0 = c0;
+		}
+
+		@Column
+		private String c1;
+
+		public String getC1() {
+			return c1;
+		}
+
+		public void setC1(String c1) {
+			this.c1 = c1;
+		}
+
+		@Column
+		private String c2;
+
+		public String getC2() {
+			return c2;
+		}
+
+		public void setC2(String c2) {
+			this.c2 = c2;
+		}
+
+		@Column
+		private String c3;
+
+		public String getC3() {
+			return c3;
+		}
+
+		public void setC3(String c3) {
+			this.c3 = c3;
+		}
+
+		@Column
+		private String c4;
+
+		public String getC4() {
+			return c4;
+		}
+
+		public void setC4(String c4) {
+			this.c4 = c4;
+		}
+
+		@Column
+		private String c5;
+
+		public String getC5() {
+			return c5;
+		}
+
+		public void setC5(String c5) {
+			this.c5 = c5;
+		}
+
+		@Column
+		private String c6;
+
+		public String getC6() {
+			return c6;
+		}
+
+		public void setC6(String c6) {
+			this.c6 = c6;
+		}
+
+		@Column
+		private String c7;
+
+		public String getC7() {
+			return c7;
+		}
+
+		public void setC7(String c7) {
+			this.c7 = c7;
+		}
+
+		@Column
+		private String c8;
+
+		public String getC8() {
+			return c8;
+		}
+
+		public void setC8(String c8) {
+			this.c8 = c8;
+		}
+
+		@Column
+		private String c9;
+
+		public String getC9() {
+			return c9;
+		}
+
+		public void setC9(String c9) {
+			this.c9 = c9;
+		}
+
+		@Column
+		private String c10;
+
+		public String getC10() {
+			return c10;
+		}
+
+		public void setC10(String c10) {
+			this.c10 = c10;
+		}
+
+		@Column
+		private String c11;
+
+		public String getC11() {
+			return c11;
+		}
+
+		public void setC11(String c11) {
+			this.c11 = c11;
+		}
+
+		@Column
+		private String c12;
+
+		public String getC12() {
+			return c12;
+		}
+
+		public void setC12(String c12) {
+			this.c12 = c12;
+		}
+
+		@Column
+		private String c13;
+
+		public String getC13() {
+			return c13;
+		}
+
+		public void setC13(String c13) {
+			this.c13 = c13;
+		}
+
+		@Column
+		private String c14;
+
+		public String getC14() {
+			return c14;
+		}
+
+		public void setC14(String c14) {
+			this.c14 = c14;
+		}
+
+		@Column
+		private String c15;
+
+		public String getC15() {
+			return c15;
+		}
+
+		public void setC15(String c15) {
+			this.c15 = c15;
+		}
+
+		@Column
+		private String c16;
+
+		public String getC16() {
+			return c16;
+		}
+
+		public void setC16(String c16) {
+			this.c16 = c16;
+		}
+
+		@Column
+		private String c17;
+
+		public String getC17() {
+			return c17;
+		}
+
+		public void setC17(String c17) {
+			this.c17 = c17;
+		}
+
+		@Column
+		private String c18;
+
+		public String getC18() {
+			return c18;
+		}
+
+		public void setC18(String c18) {
+			this.c18 = c18;
+		}
+
+		@Column
+		private String c19;
+
+		public String getC19() {
+			return c19;
+		}
+
+		public void setC19(String c19) {
+			this.c19 = c19;
+		}
+
+		@Column
+		private String c20;
+
+		public String getC20() {
+			return c20;
+		}
+
+		public void setC20(String c20) {
+			this.c20 = c20;
+		}
+
+		@Column
+		private String c21;
+
+		public String getC21() {
+			return c21;
+		}
+
+		public void setC21(String c21) {
+			this.c21 = c21;
+		}
+
+		@Column
+		private String c22;
+
+		public String getC22() {
+			return c22;
+		}
+
+		public void setC22(String c22) {
+			this.c22 = c22;
+		}
+
+		@Column
+		private String c23;
+
+		public String getC23() {
+			return c23;
+		}
+
+		public void setC23(String c23) {
+			this.c23 = c23;
+		}
+
+		@Column
+		private String c24;
+
+		public String getC24() {
+			return c24;
+		}
+
+		public void setC24(String c24) {
+			this.c24 = c24;
+		}
+
+		@Column
+		private String c25;
+
+		public String getC25() {
+			return c25;
+		}
+
+		public void setC25(String c25) {
+			this.c25 = c25;
+		}
+
+		@Column
+		private String c26;
+
+		public String getC26() {
+			return c26;
+		}
+
+		public void setC26(String c26) {
+			this.c26 = c26;
+		}
+
+		@Column
+		private String c27;
+
+		public String getC27() {
+			return c27;
+		}
+
+		public void setC27(String c27) {
+			this.c27 = c27;
+		}
+
+		@Column
+		private String c28;
+
+		public String getC28() {
+			return c28;
+		}
+
+		public void setC28(String c28) {
+			this.c28 = c28;
+		}
+
+		@Column
+		private String c29;
+
+		public String getC29() {
+			return c29;
+		}
+
+		public void setC29(String c29) {
+			this.c29 = c29;
+		}
+
+		@Column
+		private String c30;
+
+		public String getC30() {
+			return c30;
+		}
+
+		public void setC30(String c30) {
+			this.c30 = c30;
+		}
+
+		@Column
+		private String c31;
+
+		public String getC31() {
+			return c31;
+		}
+
+		public void setC31(String c31) {
+			this.c31 = c31;
+		}
+
+		@Column
+		private String c32;
+
+		public String getC32() {
+			return c32;
+		}
+
+		public void setC32(String c32) {
+			this.c32 = c32;
+		}
+
+		@Column
+		private String c33;
+
+		public String getC33() {
+			return c33;
+		}
+
+		public void setC33(String c33) {
+			this.c33 = c33;
+		}
+
+		@Column
+		private String c34;
+
+		public String getC34() {
+			return c34;
+		}
+
+		public void setC34(String c34) {
+			this.c34 = c34;
+		}
+
+		@Column
+		private String c35;
+
+		public String getC35() {
+			return c35;
+		}
+
+		public void setC35(String c35) {
+			this.c35 = c35;
+		}
+
+		@Column
+		private String c36;
+
+		public String getC36() {
+			return c36;
+		}
+
+		public void setC36(String c36) {
+			this.c36 = c36;
+		}
+
+		@Column
+		private String c37;
+
+		public String getC37() {
+			return c37;
+		}
+
+		public void setC37(String c37) {
+			this.c37 = c37;
+		}
+
+		@Column
+		private String c38;
+
+		public String getC38() {
+			return c38;
+		}
+
+		public void setC38(String c38) {
+			this.c38 = c38;
+		}
+
+		@Column
+		private String c39;
+
+		public String getC39() {
+			return c39;
+		}
+
+		public void setC39(String c39) {
+			this.c39 = c39;
+		}
+
+		@Column
+		private String c40;
+
+		public String getC40() {
+			return c40;
+		}
+
+		public void setC40(String c40) {
+			this.c40 = c40;
+		}
+
+		@Column
+		private String c41;
+
+		public String getC41() {
+			return c41;
+		}
+
+		public void setC41(String c41) {
+			this.c41 = c41;
+		}
+
+		@Column
+		private String c42;
+
+		public String getC42() {
+			return c42;
+		}
+
+		public void setC42(String c42) {
+			this.c42 = c42;
+		}
+
+		@Column
+		private String c43;
+
+		public String getC43() {
+			return c43;
+		}
+
+		public void setC43(String c43) {
+			this.c43 = c43;
+		}
+
+		@Column
+		private String c44;
+
+		public String getC44() {
+			return c44;
+		}
+
+		public void setC44(String c44) {
+			this.c44 = c44;
+		}
+
+		@Column
+		private String c45;
+
+		public String getC45() {
+			return c45;
+		}
+
+		public void setC45(String c45) {
+			this.c45 = c45;
+		}
+
+		@Column
+		private String c46;
+
+		public String getC46() {
+			return c46;
+		}
+
+		public void setC46(String c46) {
+			this.c46 = c46;
+		}
+
+		@Column
+		private String c47;
+
+		public String getC47() {
+			return c47;
+		}
+
+		public void setC47(String c47) {
+			this.c47 = c47;
+		}
+
+		@Column
+		private String c48;
+
+		public String getC48() {
+			return c48;
+		}
+
+		public void setC48(String c48) {
+			this.c48 = c48;
+		}
+
+		@Column
+		private String c49;
+
+		public String getC49() {
+			return c49;
+		}
+
+		public void setC49(String c49) {
+			this.c49 = c49;
+		}
+
+		@Column
+		private String c50;
+
+		public String getC50() {
+			return c50;
+		}
+
+		public void setC50(String c50) {
+			this.c50 = c50;
+		}
+
+		@Column
+		private String c51;
+
+		public String getC51() {
+			return c51;
+		}
+
+		public void setC51(String c51) {
+			this.c51 = c51;
+		}
+
+		@Column
+		private String c52;
+
+		public String getC52() {
+			return c52;
+		}
+
+		public void setC52(String c52) {
+			this.c52 = c52;
+		}
+
+		@Column
+		private String c53;
+
+		public String getC53() {
+			return c53;
+		}
+
+		public void setC53(String c53) {
+			this.c53 = c53;
+		}
+
+		@Column
+		private String c54;
+
+		public String getC54() {
+			return c54;
+		}
+
+		public void setC54(String c54) {
+			this.c54 = c54;
+		}
+
+		@Column
+		private String c55;
+
+		public String getC55() {
+			return c55;
+		}
+
+		public void setC55(String c55) {
+			this.c55 = c55;
+		}
+
+		@Column
+		private String c56;
+
+		public String getC56() {
+			return c56;
+		}
+
+		public void setC56(String c56) {
+			this.c56 = c56;
+		}
+
+		@Column
+		private String c57;
+
+		public String getC57() {
+			return c57;
+		}
+
+		public void setC57(String c57) {
+			this.c57 = c57;
+		}
+
+		@Column
+		private String c58;
+
+		public String getC58() {
+			return c58;
+		}
+
+		public void setC58(String c58) {
+			this.c58 = c58;
+		}
+
+		@Column
+		private String c59;
+
+		public String getC59() {
+			return c59;
+		}
+
+		public void setC59(String c59) {
+			this.c59 = c59;
+		}
+
+		@Column
+		private String c60;
+
+		public String getC60() {
+			return c60;
+		}
+
+		public void setC60(String c60) {
+			this.c60 = c60;
+		}
+
+		@Column
+		private String c61;
+
+		public String getC61() {
+			return c61;
+		}
+
+		public void setC61(String c61) {
+			this.c61 = c61;
+		}
+
+		@Column
+		private String c62;
+
+		public String getC62() {
+			return c62;
+		}
+
+		public void setC62(String c62) {
+			this.c62 = c62;
+		}
+
+		@Column
+		private String c63;
+
+		public String getC63() {
+			return c63;
+		}
+
+		public void setC63(String c63) {
+			this.c63 = c63;
+		}
+
+		@Column
+		private String c64;
+
+		public String getC64() {
+			return c64;
+		}
+
+		public void setC64(String c64) {
+			this.c64 = c64;
+		}
+
+		@Column
+		private String c65;
+
+		public String getC65() {
+			return c65;
+		}
+
+		public void setC65(String c65) {
+			this.c65 = c65;
+		}
+
+		@Column
+		private String c66;
+
+		public String getC66() {
+			return c66;
+		}
+
+		public void setC66(String c66) {
+			this.c66 = c66;
+		}
+
+		@Column
+		private String c67;
+
+		public String getC67() {
+			return c67;
+		}
+
+		public void setC67(String c67) {
+			this.c67 = c67;
+		}
+
+		@Column
+		private String c68;
+
+		public String getC68() {
+			return c68;
+		}
+
+		public void setC68(String c68) {
+			this.c68 = c68;
+		}
+
+		@Column
+		private String c69;
+
+		public String getC69() {
+			return c69;
+		}
+
+		public void setC69(String c69) {
+			this.c69 = c69;
+		}
+
+		@Column
+		private String c70;
+
+		public String getC70() {
+			return c70;
+		}
+
+		public void setC70(String c70) {
+			this.c70 = c70;
+		}
+
+		@Column
+		private String c71;
+
+		public String getC71() {
+			return c71;
+		}
+
+		public void setC71(String c71) {
+			this.c71 = c71;
+		}
+
+		@Column
+		private String c72;
+
+		public String getC72() {
+			return c72;
+		}
+
+		public void setC72(String c72) {
+			this.c72 = c72;
+		}
+
+		@Column
+		private String c73;
+
+		public String getC73() {
+			return c73;
+		}
+
+		public void setC73(String c73) {
+			this.c73 = c73;
+		}
+
+		@Column
+		private String c74;
+
+		public String getC74() {
+			return c74;
+		}
+
+		public void setC74(String c74) {
+			this.c74 = c74;
+		}
+
+		@Column
+		private String c75;
+
+		public String getC75() {
+			return c75;
+		}
+
+		public void setC75(String c75) {
+			this.c75 = c75;
+		}
+
+		@Column
+		private String c76;
+
+		public String getC76() {
+			return c76;
+		}
+
+		public void setC76(String c76) {
+			this.c76 = c76;
+		}
+
+		@Column
+		private String c77;
+
+		public String getC77() {
+			return c77;
+		}
+
+		public void setC77(String c77) {
+			this.c77 = c77;
+		}
+
+		@Column
+		private String c78;
+
+		public String getC78() {
+			return c78;
+		}
+
+		public void setC78(String c78) {
+			this.c78 = c78;
+		}
+
+		@Column
+		private String c79;
+
+		public String getC79() {
+			return c79;
+		}
+
+		public void setC79(String c79) {
+			this.c79 = c79;
+		}
+
+		@Column
+		private String c80;
+
+		public String getC80() {
+			return c80;
+		}
+
+		public void setC80(String c80) {
+			this.c80 = c80;
+		}
+
+		@Column
+		private String c81;
+
+		public String getC81() {
+			return c81;
+		}
+
+		public void setC81(String c81) {
+			this.c81 = c81;
+		}
+
+		@Column
+		private String c82;
+
+		public String getC82() {
+			return c82;
+		}
+
+		public void setC82(String c82) {
+			this.c82 = c82;
+		}
+
+		@Column
+		private String c83;
+
+		public String getC83() {
+			return c83;
+		}
+
+		public void setC83(String c83) {
+			this.c83 = c83;
+		}
+
+		@Column
+		private String c84;
+
+		public String getC84() {
+			return c84;
+		}
+
+		public void setC84(String c84) {
+			this.c84 = c84;
+		}
+
+		@Column
+		private String c85;
+
+		public String getC85() {
+			return c85;
+		}
+
+		public void setC85(String c85) {
+			this.c85 = c85;
+		}
+
+		@Column
+		private String c86;
+
+		public String getC86() {
+			return c86;
+		}
+
+		public void setC86(String c86) {
+			this.c86 = c86;
+		}
+
+		@Column
+		private String c87;
+
+		public String getC87() {
+			return c87;
+		}
+
+		public void setC87(String c87) {
+			this.c87 = c87;
+		}
+
+		@Column
+		private String c88;
+
+		public String getC88() {
+			return c88;
+		}
+
+		public void setC88(String c88) {
+			this.c88 = c88;
+		}
+
+		@Column
+		private String c89;
+
+		public String getC89() {
+			return c89;
+		}
+
+		public void setC89(String c89) {
+			this.c89 = c89;
+		}
+
+		@Column
+		private String c90;
+
+		public String getC90() {
+			return c90;
+		}
+
+		public void setC90(String c90) {
+			this.c90 = c90;
+		}
+
+		@Column
+		private String c91;
+
+		public String getC91() {
+			return c91;
+		}
+
+		public void setC91(String c91) {
+			this.c91 = c91;
+		}
+
+		@Column
+		private String c92;
+
+		public String getC92() {
+			return c92;
+		}
+
+		public void setC92(String c92) {
+			this.c92 = c92;
+		}
+
+		@Column
+		private String c93;
+
+		public String getC93() {
+			return c93;
+		}
+
+		public void setC93(String c93) {
+			this.c93 = c93;
+		}
+
+		@Column
+		private String c94;
+
+		public String getC94() {
+			return c94;
+		}
+
+		public void setC94(String c94) {
+			this.c94 = c94;
+		}
+
+		@Column
+		private String c95;
+
+		public String getC95() {
+			return c95;
+		}
+
+		public void setC95(String c95) {
+			this.c95 = c95;
+		}
+
+		@Column
+		private String c96;
+
+		public String getC96() {
+			return c96;
+		}
+
+		public void setC96(String c96) {
+			this.c96 = c96;
+		}
+
+		@Column
+		private String c97;
+
+		public String getC97() {
+			return c97;
+		}
+
+		public void setC97(String c97) {
+			this.c97 = c97;
+		}
+
+		@Column
+		private String c98;
+
+		public String getC98() {
+			return c98;
+		}
+
+		public void setC98(String c98) {
+			this.c98 = c98;
+		}
+
+		@Column
+		private String c99;
+
+		public String getC99() {
+			return c99;
+		}
+
+		public void setC99(String c99) {
+			this.c99 = c99;
+		}
+	}
+}
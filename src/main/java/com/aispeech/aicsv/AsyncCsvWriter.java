@@ -0,0 +1,309 @@
+package com.aispeech.aicsv;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * write records of a {@link CsvWriter} on a dedicated thread<br/>
+ * {@link #writeRecord(CsvBean)} only puts the record into a bounded ring and returns, the writer thread normalizes,
+ * checks, encodes and writes it; when the ring is full the producer waits for room, so a slow disk slows the producers
+ * down instead of filling the memory<br/>
+ * a record which fails its {@link Column} constraints is skipped, its exception, which holds its
+ * {@link CsvBean#getLine()}, fails the future of the next {@link #flush()} or {@link #close()}, as does an
+ * {@link IOException}<br/>
+ * several threads can write records at once, the records are written in the order their calls got a slot; a record
+ * is either queued before the close request or rejected, never after it<br/>
+ * a record belongs to the writer once it is queued: the writer thread reads it and sets its line later on, so it must
+ * not be modified or reused until the future of a later {@link #flush()} or {@link #close()} completed
+ *
+ * @param <T>
+ */
+public final class AsyncCsvWriter<T extends CsvBean> {
+
+	public static final int DEFAULT_CAPACITY = 8192;
+
+	private static final long FULL_WAIT_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+	private static final long IDLE_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+	/**
+	 * a flush or close request, queued with the records so that it applies to the records before it
+	 */
+	private static final class Command {
+
+		final boolean close;
+		final CompletableFuture<Void> future = new CompletableFuture<Void>();
+
+		Command(boolean close) {
+			this.close = close;
+		}
+
+	}
+
+	private final CsvWriter<T> writer;
+	private final RecordRing<Object> ring;
+	private final Thread thread;
+
+	/*
+	 * producers hold the read lock from the closed check until their element is queued, close holds the write lock, so
+	 * nothing is queued after the close request
+	 */
+	private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+
+	private volatile boolean idle = false;
+	private volatile boolean closed = false;
+	private volatile IOException failure = null;
+
+	/*
+	 * only used by the writer thread
+	 */
+	private final List<CsvException> exlist = new ArrayList<CsvException>();
+
+	public AsyncCsvWriter(CsvWriter<T> writer) {
+		this(writer, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 *
+	 * @param writer
+	 *            it should not be used directly any more
+	 * @param capacity
+	 *            number of records which can wait to be written
+	 */
+	public AsyncCsvWriter(CsvWriter<T> writer, int capacity) {
+
+		this.writer = writer;
+		this.ring = new RecordRing<Object>(capacity);
+
+		this.thread = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				drain();
+			}
+		}, "aicsv-writer-" + writer.path);
+
+		thread.setDaemon(true);
+		thread.start();
+
+	}
+
+	/**
+	 * queue a record, wait while the queue is full
+	 *
+	 * @param record
+	 *            it must not be modified until the future of a later {@link #flush()} or {@link #close()} completed
+	 * @throws CsvException
+	 *             if this writer was closed
+	 * @throws IOException
+	 *             if a previous write failed
+	 */
+	public void writeRecord(T record) throws CsvException, IOException {
+
+		closeLock.readLock().lock();
+		try {
+
+			if (closed) {
+				throw new CsvException("writer was already closed.");
+			}
+
+			if (failure != null) {
+				throw failure;
+			}
+
+			enqueue(record);
+
+		} finally {
+			closeLock.readLock().unlock();
+		}
+
+	}
+
+	/**
+	 * write every record queued before
+	 *
+	 * @return a future which fails with the {@link CsvException} of the records skipped since the previous flush, or
+	 *         with an {@link IOException}
+	 * @throws IOException
+	 */
+	public synchronized Future<Void> flush() throws IOException {
+
+		Command command = new Command(false);
+
+		closeLock.readLock().lock();
+		try {
+
+			if (closed) {
+				command.future.completeExceptionally(new CsvException("writer was already closed."));
+			} else {
+				enqueue(command);
+			}
+
+		} catch (CsvException e) {
+			command.future.completeExceptionally(e);
+		} finally {
+			closeLock.readLock().unlock();
+		}
+
+		return command.future;
+	}
+
+	/**
+	 * write every record queued before, then close the writer and stop its thread
+	 *
+	 * @return see {@link #flush()}
+	 * @throws IOException
+	 */
+	public synchronized Future<Void> close() throws IOException {
+
+		Command command = new Command(true);
+
+		closeLock.writeLock().lock();
+		try {
+
+			if (closed) {
+				command.future.completeExceptionally(new CsvException("writer was already closed."));
+			} else {
+				closed = true;
+				enqueue(command);
+			}
+
+		} catch (CsvException e) {
+			command.future.completeExceptionally(e);
+		} finally {
+			closeLock.writeLock().unlock();
+		}
+
+		return command.future;
+	}
+
+	/**
+	 * only called under {@link #closeLock}
+	 *
+	 * @param e
+	 * @throws CsvException
+	 *             if the writer thread is gone, nothing would make room any more
+	 * @throws IOException
+	 */
+	private void enqueue(Object e) throws CsvException, IOException {
+
+		while (!ring.offer(e)) {
+
+			if (!thread.isAlive()) {
+				throw new CsvException("the writer thread of " + writer.path + " is gone.");
+			}
+
+			LockSupport.parkNanos(this, FULL_WAIT_NANOS);
+
+			if (Thread.interrupted()) {
+				throw new InterruptedIOException("interrupted while waiting for the writer of " + writer.path);
+			}
+
+		}
+
+		if (idle) {
+			LockSupport.unpark(thread);
+		}
+
+	}
+
+	/**
+	 * the writer thread
+	 */
+	@SuppressWarnings("unchecked")
+	private void drain() {
+
+		while (true) {
+
+			Object e = ring.poll();
+
+			if (e == null) {
+
+				/*
+				 * a producer unparks this thread when it sees idle, the timeout covers a record queued just before
+				 */
+				idle = true;
+				e = ring.poll();
+				if (e == null) {
+					LockSupport.parkNanos(this, IDLE_WAIT_NANOS);
+					idle = false;
+					continue;
+				}
+				idle = false;
+
+			}
+
+			if (e instanceof Command) {
+
+				Command command = (Command) e;
+				execute(command);
+
+				if (command.close) {
+					return;
+				}
+
+				continue;
+			}
+
+			if (failure != null) {
+				continue;
+			}
+
+			try {
+				writer.writeRecord((T) e);
+			} catch (CsvException ex) {
+				exlist.add(ex);
+			} catch (IOException ex) {
+				failure = ex;
+			} catch (RuntimeException ex) {
+				exlist.add(new CsvException(ex));
+			}
+
+		}
+
+	}
+
+	private void execute(Command command) {
+
+		if (failure == null) {
+
+			try {
+				writer.flush();
+			} catch (IOException ex) {
+				failure = ex;
+			}
+
+		}
+
+		if (command.close) {
+
+			try {
+				writer.finish();
+			} catch (IOException ex) {
+				if (failure == null) {
+					failure = ex;
+				}
+			}
+
+		}
+
+		if (failure != null) {
+			command.future.completeExceptionally(failure);
+		} else if (exlist.size() != 0) {
+			command.future.completeExceptionally(CsvException.concat(exlist));
+		} else {
+			command.future.complete(null);
+		}
+
+		exlist.clear();
+
+	}
+
+}
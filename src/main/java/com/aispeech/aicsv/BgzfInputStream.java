@@ -0,0 +1,322 @@
+package com.aispeech.aicsv;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * decompress a block-gzip (BGZF) file with several threads<br/>
+ * a BGZF file is a series of gzip members of at most 64K each, whose header tells the compressed size, so the members
+ * are read one after the other and inflated at once by the threads of the common pool, a few of them ahead of the
+ * reader, and returned in order
+ */
+final class BgzfInputStream extends InputStream {
+
+	private static final int HEADER_SIZE = 12;
+	private static final int FEXTRA = 4;
+
+	/**
+	 * a member holds at most 64K uncompressed bytes
+	 */
+	private static final int MAX_MEMBER_SIZE = 0x10000;
+
+	private final DataInputStream in;
+	private final String path;
+
+	/**
+	 * number of members inflated ahead
+	 */
+	private final int window;
+
+	private final Deque<Future<byte[]>> pending = new ArrayDeque<Future<byte[]>>();
+	private boolean lastRead = false;
+
+	private byte[] current = new byte[0];
+	private int position = 0;
+
+	BgzfInputStream(File file) throws IOException {
+
+		this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), Compression.BUFFER_SIZE));
+		this.path = file.getPath();
+		this.window = Math.max(2, ForkJoinPool.getCommonPoolParallelism() * 2);
+
+	}
+
+	/**
+	 * whether a file starts with a BGZF member, i.e. a gzip header with a "BC" extra field
+	 *
+	 * @param file
+	 * @return
+	 * @throws IOException
+	 */
+	static boolean isBgzf(File file) throws IOException {
+
+		DataInputStream in = new DataInputStream(new FileInputStream(file));
+		try {
+
+			byte[] header = new byte[HEADER_SIZE];
+			in.readFully(header);
+
+			if (!isGzip(header) || (header[3] & FEXTRA) == 0) {
+				return false;
+			}
+
+			byte[] extra = new byte[(header[10] & 0xff) | (header[11] & 0xff) << 8];
+			in.readFully(extra);
+
+			return getBlockSize(extra) > 0;
+
+		} catch (EOFException e) {
+			return false;
+		} finally {
+			in.close();
+		}
+
+	}
+
+	private static boolean isGzip(byte[] header) {
+		return (header[0] & 0xff) == 0x1f && (header[1] & 0xff) == 0x8b && header[2] == 8;
+	}
+
+	/**
+	 * the size of the member from its "BC" extra field
+	 *
+	 * @param extra
+	 * @return -1 if there's none
+	 */
+	private static int getBlockSize(byte[] extra) {
+
+		int p = 0;
+		while (p + 4 <= extra.length) {
+
+			int length = (extra[p + 2] & 0xff) | (extra[p + 3] & 0xff) << 8;
+
+			if (extra[p] == 'B' && extra[p + 1] == 'C' && length == 2 && p + 6 <= extra.length) {
+				return ((extra[p + 4] & 0xff) | (extra[p + 5] & 0xff) << 8) + 1;
+			}
+
+			p += 4 + length;
+
+		}
+
+		return -1;
+	}
+
+	/**
+	 * read the next member and queue its inflation
+	 *
+	 * @return false at the end of the file
+	 * @throws IOException
+	 */
+	private boolean readMember() throws IOException {
+
+		byte[] header = new byte[HEADER_SIZE];
+
+		int n = 0;
+		while (n < HEADER_SIZE) {
+
+			int read = in.read(header, n, HEADER_SIZE - n);
+			if (read < 0) {
+
+				if (n == 0) {
+					return false;
+				}
+
+				throw new EOFException(path + ": truncated BGZF member");
+			}
+
+			n += read;
+
+		}
+
+		if (!isGzip(header) || (header[3] & FEXTRA) == 0) {
+			throw new IOException(path + ": not a BGZF member");
+		}
+
+		byte[] extra = new byte[(header[10] & 0xff) | (header[11] & 0xff) << 8];
+		in.readFully(extra);
+
+		int blockSize = getBlockSize(extra);
+		if (blockSize < HEADER_SIZE + extra.length + 8) {
+			throw new IOException(path + ": not a BGZF member");
+		}
+
+		final byte[] data = new byte[blockSize - HEADER_SIZE - extra.length];
+		in.readFully(data);
+
+		pending.add(ForkJoinPool.commonPool().submit(new Callable<byte[]>() {
+
+			@Override
+			public byte[] call() throws IOException {
+				return inflate(data);
+			}
+		}));
+
+		return true;
+	}
+
+	/**
+	 * inflate the compressed data of a member, followed by its CRC32 and size
+	 *
+	 * @param data
+	 * @return
+	 * @throws IOException
+	 */
+	private byte[] inflate(byte[] data) throws IOException {
+
+		int length = data.length - 8;
+
+		long crc = readInt(data, length) & 0xffffffffL;
+		int size = readInt(data, length + 4);
+		if (size < 0 || size > MAX_MEMBER_SIZE) {
+			throw new IOException(path + ": corrupt BGZF member, its uncompressed size " + (size & 0xffffffffL)
+					+ " exceeds " + MAX_MEMBER_SIZE);
+		}
+
+		byte[] bytes = new byte[size];
+
+		Inflater inflater = new Inflater(true);
+		try {
+
+			inflater.setInput(data, 0, length);
+
+			int n = 0;
+			while (n < size) {
+
+				int inflated = inflater.inflate(bytes, n, size - n);
+				if (inflated == 0 && (inflater.finished() || inflater.needsInput())) {
+					throw new IOException(path + ": corrupt BGZF member");
+				}
+
+				n += inflated;
+
+			}
+
+		} catch (DataFormatException e) {
+			throw new IOException(path + ": corrupt BGZF member", e);
+		} finally {
+			inflater.end();
+		}
+
+		CRC32 checksum = new CRC32();
+		checksum.update(bytes, 0, size);
+
+		if (checksum.getValue() != crc) {
+			throw new IOException(path + ": CRC mismatch of a BGZF member");
+		}
+
+		return bytes;
+	}
+
+	private static int readInt(byte[] b, int p) {
+		return (b[p] & 0xff) | (b[p + 1] & 0xff) << 8 | (b[p + 2] & 0xff) << 16 | (b[p + 3] & 0xff) << 24;
+	}
+
+	/**
+	 * move to the next non-empty member
+	 *
+	 * @return false at the end of the file
+	 * @throws IOException
+	 */
+	private boolean next() throws IOException {
+
+		while (true) {
+
+			while (!lastRead && pending.size() < window) {
+				lastRead = !readMember();
+			}
+
+			Future<byte[]> future = pending.poll();
+			if (future == null) {
+				return false;
+			}
+
+			try {
+				current = future.get();
+			} catch (InterruptedException e) {
+				throw new InterruptedIOException("interrupted while inflating " + path);
+			} catch (ExecutionException e) {
+
+				if (e.getCause() instanceof IOException) {
+					throw (IOException) e.getCause();
+				}
+
+				throw new IOException(e.getCause());
+
+			}
+
+			position = 0;
+
+			/*
+			 * skip the empty end-of-file member
+			 */
+			if (current.length > 0) {
+				return true;
+			}
+
+		}
+
+	}
+
+	@Override
+	public int read() throws IOException {
+
+		if (position == current.length && !next()) {
+			return -1;
+		}
+
+		return current[position++] & 0xff;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+
+		if (len == 0) {
+			return 0;
+		}
+
+		if (position == current.length && !next()) {
+			return -1;
+		}
+
+		int n = Math.min(len, current.length - position);
+		System.arraycopy(current, position, b, off, n);
+		position += n;
+
+		return n;
+	}
+
+	@Override
+	public int available() {
+		return current.length - position;
+	}
+
+	@Override
+	public void close() throws IOException {
+
+		for (Future<byte[]> future : pending) {
+			future.cancel(false);
+		}
+
+		pending.clear();
+		lastRead = true;
+
+		in.close();
+
+	}
+
+}
@@ -0,0 +1,550 @@
+package com.aispeech.aicsv;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * {@link CsvTokenizer} scanning encoded bytes, only the cells asked for by {@link #get(int)} are decoded<br/>
+ * this works for charsets in which the bytes of a multi-byte character never look like the delimiter, a quote, '\r'
+ * or '\n', see {@link #supports(Charset, char)}
+ */
+abstract class ByteTokenizer extends CsvTokenizer {
+
+	/**
+	 * readable bytes are [0, limit) of buffer
+	 */
+	protected ByteBuffer buffer;
+	protected int position = 0;
+	protected int limit = 0;
+	protected boolean eof = false;
+
+	/**
+	 * set by {@link #fill()} when no byte is available yet though the input is not over, {@link #readRecord()} then
+	 * returns false and leaves an incomplete record to the next call, see {@link FollowTokenizer}
+	 */
+	protected boolean stalled = false;
+
+	/**
+	 * input offset of buffer[0], kept by the subclasses
+	 */
+	protected long bufferOffset = 0;
+
+	private int recordStart = 0;
+
+	/*
+	 * scan states of parse(), CELL is at the start of a cell
+	 */
+	private static final int CELL = 0;
+	private static final int QUOTED = 1;
+	private static final int TRAILING = 2;
+	private static final int UNQUOTED = 3;
+
+	/*
+	 * where the scan of an incomplete record stopped
+	 */
+	private boolean suspended = false;
+	private long resumeOffset;
+	private int resumeBase;
+	private int resumeCount;
+	private int resumeState;
+	private int resumeP;
+	private int resumeStart;
+	private int resumeEnd;
+	private boolean resumeEscaped;
+
+	private final byte delimiter;
+	private final Charset charset;
+
+	private ByteBuffer view;
+	private CharsetDecoder decoder;
+	private byte[] scratch = new byte[256];
+
+	protected ByteTokenizer(char delimiter, Charset charset) {
+
+		this.delimiter = (byte) delimiter;
+		this.charset = charset;
+
+	}
+
+	char getDelimiter() {
+		return (char) delimiter;
+	}
+
+	Charset getCharset() {
+		return charset;
+	}
+
+	/**
+	 * whether csv in this charset can be split without decoding
+	 *
+	 * @param charset
+	 * @param delimiter
+	 * @return
+	 */
+	static boolean supports(Charset charset, char delimiter) {
+
+		String name = charset.name();
+
+		/*
+		 * every byte of a multi-byte character is >= 0x80
+		 */
+		if (name.equals("UTF-8") || name.equals("US-ASCII") || name.equals("ISO-8859-1")) {
+			return delimiter < 0x80;
+		}
+
+		/*
+		 * trail bytes start at 0x40, or are digits in the 4 byte sequences of GB18030
+		 */
+		if (name.equals("GBK") || name.equals("GB2312") || name.equals("GB18030") || name.equals("Big5")) {
+			return delimiter < 0x40 && (delimiter < '0' || delimiter > '9');
+		}
+
+		return false;
+
+	}
+
+	/**
+	 * keep the bytes from position, and make more bytes readable after them, or set eof
+	 *
+	 * @throws IOException
+	 */
+	protected abstract void fill() throws IOException;
+
+	/**
+	 * called whenever {@link #buffer} is replaced by {@link #fill()}
+	 */
+	protected void bufferChanged() {
+		view = null;
+	}
+
+	@Override
+	boolean readRecord() throws IOException {
+
+		count = 0;
+
+		if (buffer == null) {
+			return false;
+		}
+
+		while (true) {
+
+			/*
+			 * skip empty lines, this also skips the '\n' of a "\r\n" record end
+			 */
+			while (position < limit && isLineEnd(buffer.get(position))) {
+				position++;
+			}
+
+			if (position == limit) {
+
+				if (eof) {
+					return false;
+				}
+
+				if (!fillOrStall()) {
+					return false;
+				}
+
+				continue;
+
+			}
+
+			int next = parse(position);
+			if (next >= 0) {
+				recordStart = position;
+				position = next;
+				return true;
+			}
+
+			if (!fillOrStall()) {
+				return false;
+			}
+
+		}
+
+	}
+
+	/**
+	 *
+	 * @return false if no byte is available yet, see {@link #stalled}
+	 * @throws IOException
+	 */
+	private boolean fillOrStall() throws IOException {
+
+		fill();
+
+		if (stalled) {
+			stalled = false;
+			count = 0;
+			return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * skip to the start of the next line, without parsing anything
+	 *
+	 * @return false if there's no more line
+	 * @throws IOException
+	 */
+	boolean skipLine() throws IOException {
+
+		while (buffer != null) {
+
+			while (position < limit) {
+				if (isLineEnd(buffer.get(position++))) {
+					return true;
+				}
+			}
+
+			if (eof) {
+				return false;
+			}
+
+			fill();
+
+		}
+
+		return false;
+	}
+
+	/**
+	 * input offset of the current record
+	 *
+	 * @return
+	 */
+	long getRecordOffset() {
+		return bufferOffset + recordStart;
+	}
+
+	/**
+	 * input offset right after the current record
+	 *
+	 * @return
+	 */
+	long getOffset() {
+		return bufferOffset + position;
+	}
+
+	private static boolean isLineEnd(byte b) {
+		return b == CR || b == LF;
+	}
+
+	/**
+	 * parse the record starting at p0, an incomplete record which was scanned before is resumed where its scan
+	 * stopped, so each byte of a record is scanned once however often the buffer is filled while it is read
+	 *
+	 * @param p0
+	 * @return the position after the record, -1 if the buffer ends before the record does
+	 */
+	private int parse(int p0) {
+
+		ByteBuffer buf = buffer;
+		int lim = limit;
+		byte delim = delimiter;
+
+		int p = p0;
+		int state = CELL;
+		int start = 0;
+		int end = 0;
+		boolean escaped = false;
+
+		count = 0;
+
+		if (suspended && resumeOffset == bufferOffset + p0) {
+
+			/*
+			 * the kept cells moved with the record when the buffer was compacted
+			 */
+			int delta = p0 - resumeBase;
+
+			count = resumeCount;
+			if (delta != 0) {
+				for (int i = 0; i < count; i++) {
+					starts[i] += delta;
+					ends[i] += delta;
+				}
+			}
+
+			state = resumeState;
+			p = resumeP + delta;
+			start = resumeStart + delta;
+			end = resumeEnd + delta;
+			escaped = resumeEscaped;
+
+		}
+
+		suspended = false;
+
+		while (true) {
+
+			if (state == CELL) {
+
+				if (p < lim && buf.get(p) == QUOTE) {
+					start = ++p;
+					escaped = false;
+					state = QUOTED;
+				} else {
+					start = p;
+					state = UNQUOTED;
+				}
+
+			}
+
+			if (state == QUOTED) {
+
+				while (true) {
+
+					if (p == lim) {
+
+						if (!eof) {
+							return suspend(p0, QUOTED, p, start, 0, escaped);
+						}
+
+						/*
+						 * unterminated quote, take what we have
+						 */
+						addCell(start, p, escaped);
+						return p;
+					}
+
+					if (buf.get(p) == QUOTE) {
+
+						if (p + 1 == lim && !eof) {
+							return suspend(p0, QUOTED, p, start, 0, escaped);
+						}
+
+						if (p + 1 < lim && buf.get(p + 1) == QUOTE) {
+							escaped = true;
+							p += 2;
+							continue;
+						}
+
+						break;
+					}
+
+					p++;
+
+				}
+
+				end = p++;
+				state = TRAILING;
+
+			}
+
+			byte b;
+
+			if (state == TRAILING) {
+
+				/*
+				 * bytes between the closing quote and the delimiter are dropped
+				 */
+				while (p < lim && (b = buf.get(p)) != delim && !isLineEnd(b)) {
+					p++;
+				}
+
+				if (p == lim && !eof) {
+					return suspend(p0, TRAILING, p, start, end, escaped);
+				}
+
+				addCell(start, end, escaped);
+
+			} else {
+
+				while (p < lim && (b = buf.get(p)) != delim && !isLineEnd(b)) {
+					p++;
+				}
+
+				if (p == lim && !eof) {
+
+					/*
+					 * a cell which has no byte yet may still turn out to be quoted
+					 */
+					return suspend(p0, p == start ? CELL : UNQUOTED, p, start, 0, false);
+				}
+
+				addCell(start, p, false);
+
+			}
+
+			if (p == lim) {
+				return p;
+			}
+
+			if (buf.get(p) != delim) {
+				return p + 1;
+			}
+
+			p++;
+			state = CELL;
+
+		}
+
+	}
+
+	/**
+	 * remember how far an incomplete record was scanned, see {@link #parse(int)}
+	 *
+	 * @return -1
+	 */
+	private int suspend(int p0, int state, int p, int start, int end, boolean escaped) {
+
+		suspended = true;
+		resumeOffset = bufferOffset + p0;
+		resumeBase = p0;
+		resumeCount = count;
+		resumeState = state;
+		resumeP = p;
+		resumeStart = start;
+		resumeEnd = end;
+		resumeEscaped = escaped;
+
+		count = 0;
+
+		return -1;
+	}
+
+	@Override
+	String get(int column) {
+
+		if (column < 0 || column >= count) {
+			return "";
+		}
+
+		String value = decode(starts[column], ends[column] - starts[column]);
+
+		return escapes[column] ? unescape(value) : value;
+	}
+
+	@Override
+	protected int charAt(int index) {
+		return buffer.get(index) & 0xff;
+	}
+
+	@Override
+	int[] encode(String value) {
+
+		byte[] bytes = value.getBytes(charset);
+
+		int[] units = new int[bytes.length];
+		for (int i = 0; i < units.length; i++) {
+			units[i] = bytes[i] & 0xff;
+		}
+
+		return units;
+	}
+
+	/**
+	 * a cell with a non-ASCII byte is decoded into the cell's chars
+	 */
+	@Override
+	void copyTo(int column, CharCell cell) {
+
+		if (column < 0 || column >= count || escapes[column] || isAscii(starts[column], ends[column])) {
+			super.copyTo(column, cell);
+			return;
+		}
+
+		if (decoder == null) {
+			decoder = charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(
+					CodingErrorAction.REPLACE);
+		}
+
+		if (view == null) {
+			view = buffer.duplicate();
+		}
+
+		int length = ends[column] - starts[column];
+
+		/*
+		 * a byte never decodes to more than one char in these charsets, except a 4-byte UTF-8 sequence which
+		 * decodes to 2 chars
+		 */
+		CharBuffer out = CharBuffer.wrap(cell.reserve(length));
+
+		view.limit(ends[column]);
+		view.position(starts[column]);
+
+		decoder.reset();
+		decoder.decode(view, out, true);
+		decoder.flush(out);
+
+		cell.reserve(out.position());
+
+	}
+
+	private boolean isAscii(int start, int end) {
+
+		for (int p = start; p < end; p++) {
+			if (charAt(p) >= 0x80) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * a cell with a non-ASCII byte is decoded
+	 */
+	@Override
+	CharSequence getSequence(int column) {
+
+		if (column >= 0 && column < count && !isAscii(starts[column], ends[column])) {
+			return trim(get(column));
+		}
+
+		return super.getSequence(column);
+	}
+
+	/**
+	 * decode a slice of the buffer, an ASCII slice is copied as latin-1 bytes without going through the charset's
+	 * decoder, every supported charset keeps ASCII as is
+	 * 
+	 * @param start
+	 * @param length
+	 * @return
+	 */
+	private String decode(int start, int length) {
+
+		if (length == 0) {
+			return "";
+		}
+
+		if (buffer.hasArray()) {
+			return decode(buffer.array(), buffer.arrayOffset() + start, length);
+		}
+
+		if (scratch.length < length) {
+			scratch = new byte[Math.max(length, scratch.length * 2)];
+		}
+
+		if (view == null) {
+			view = buffer.duplicate();
+		}
+
+		view.limit(start + length);
+		view.position(start);
+		view.get(scratch, 0, length);
+
+		return decode(scratch, 0, length);
+	}
+
+	private String decode(byte[] bytes, int offset, int length) {
+
+		for (int i = offset, end = offset + length; i < end; i++) {
+			if (bytes[i] < 0) {
+				return new String(bytes, offset, length, charset);
+			}
+		}
+
+		return new String(bytes, offset, length, StandardCharsets.ISO_8859_1);
+	}
+
+}
@@ -0,0 +1,89 @@
+package com.aispeech.aicsv;
+
+/**
+ * reusable chars of a cell, given to the CharSequence fields of a bean by {@link CsvReader#readRecord(CsvBean)}<br/>
+ * it belongs to its bean and is overwritten by the next record read into the same bean, like a
+ * {@link StringBuilder} it does not compare by content
+ */
+final class CharCell implements CharSequence {
+
+	private char[] chars = new char[32];
+	private int start = 0;
+	private int end = 0;
+
+	/**
+	 * make room for a value of some length, the caller fills [0, length) of the returned array
+	 *
+	 * @param length
+	 * @return
+	 */
+	char[] reserve(int length) {
+
+		if (chars.length < length) {
+			chars = new char[Math.max(length, chars.length * 2)];
+		}
+
+		start = 0;
+		end = length;
+
+		return chars;
+	}
+
+	void set(String value) {
+		value.getChars(0, value.length(), reserve(value.length()), 0);
+	}
+
+	/**
+	 * trim the value the way {@link CsvRW#normalizeValue(Object, ColumnBinding)} does
+	 *
+	 * @param trim
+	 */
+	void normalize(boolean trim) {
+
+		if (trim) {
+
+			while (start < end && CsvRW.isWhitespace(chars[start])) {
+				start++;
+			}
+
+			while (end > start && CsvRW.isWhitespace(chars[end - 1])) {
+				end--;
+			}
+
+		}
+
+		if (end > start) {
+			char last = chars[end - 1];
+			if (last == ' ' || last == '\t' || last == '\r') {
+				end--;
+			}
+		}
+
+	}
+
+	@Override
+	public int length() {
+		return end - start;
+	}
+
+	@Override
+	public char charAt(int index) {
+
+		if (index < 0 || index >= end - start) {
+			throw new IndexOutOfBoundsException(String.valueOf(index));
+		}
+
+		return chars[start + index];
+	}
+
+	@Override
+	public CharSequence subSequence(int from, int to) {
+		return toString().substring(from, to);
+	}
+
+	@Override
+	public String toString() {
+		return new String(chars, start, end - start);
+	}
+
+}
@@ -0,0 +1,304 @@
+package com.aispeech.aicsv;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * {@link CsvTokenizer} over a {@link Reader}, the text is read into a reusable char buffer
+ */
+final class CharTokenizer extends CsvTokenizer {
+
+	private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+	private Reader reader;
+	private final char delimiter;
+
+	private char[] buffer;
+	private int position = 0;
+	private int limit = 0;
+	private boolean eof = false;
+
+	CharTokenizer(Reader reader, char delimiter) {
+		this(reader, delimiter, DEFAULT_BUFFER_SIZE);
+	}
+
+	CharTokenizer(Reader reader, char delimiter, int bufferSize) {
+
+		this.reader = reader;
+		this.delimiter = delimiter;
+		this.buffer = new char[Math.max(bufferSize, 16)];
+
+	}
+
+	@Override
+	boolean readRecord() throws IOException {
+
+		count = 0;
+
+		if (reader == null) {
+			return false;
+		}
+
+		while (true) {
+
+			/*
+			 * skip empty lines, this also skips the '\n' of a "\r\n" record end
+			 */
+			while (position < limit && (buffer[position] == CR || buffer[position] == LF)) {
+				position++;
+			}
+
+			if (position == limit) {
+
+				if (eof) {
+					return false;
+				}
+
+				fill();
+				continue;
+
+			}
+
+			int next = parse(position);
+			if (next >= 0) {
+
+				position = next;
+				unescape();
+
+				return true;
+			}
+
+			fill();
+
+		}
+
+	}
+
+	/**
+	 * parse the record starting at p
+	 *
+	 * @param p
+	 * @return the position after the record, -1 if the buffer ends before the record does
+	 */
+	private int parse(int p) {
+
+		char[] buf = buffer;
+		int lim = limit;
+
+		count = 0;
+
+		while (true) {
+
+			if (p < lim && buf[p] == QUOTE) {
+
+				int start = ++p;
+				boolean escaped = false;
+
+				while (true) {
+
+					if (p == lim) {
+
+						if (!eof) {
+							return -1;
+						}
+
+						/*
+						 * unterminated quote, take what we have
+						 */
+						addCell(start, p, escaped);
+						return p;
+					}
+
+					if (buf[p] == QUOTE) {
+
+						if (p + 1 == lim && !eof) {
+							return -1;
+						}
+
+						if (p + 1 < lim && buf[p + 1] == QUOTE) {
+							escaped = true;
+							p += 2;
+							continue;
+						}
+
+						break;
+					}
+
+					p++;
+
+				}
+
+				int end = p++;
+
+				/*
+				 * characters between the closing quote and the delimiter are dropped
+				 */
+				while (p < lim && buf[p] != delimiter && buf[p] != CR && buf[p] != LF) {
+					p++;
+				}
+
+				if (p == lim && !eof) {
+					return -1;
+				}
+
+				addCell(start, end, escaped);
+
+			} else {
+
+				int start = p;
+
+				while (p < lim && buf[p] != delimiter && buf[p] != CR && buf[p] != LF) {
+					p++;
+				}
+
+				if (p == lim && !eof) {
+					return -1;
+				}
+
+				addCell(start, p, false);
+
+			}
+
+			if (p == lim) {
+				return p;
+			}
+
+			if (buf[p] != delimiter) {
+				return p + 1;
+			}
+
+			p++;
+
+		}
+
+	}
+
+	/**
+	 * collapse doubled quotes in place, the record is complete so its cells can be shortened safely
+	 */
+	private void unescape() {
+
+		for (int i = 0; i < count; i++) {
+
+			if (escapes[i]) {
+
+				int w = starts[i];
+				for (int r = starts[i]; r < ends[i]; r++) {
+
+					buffer[w++] = buffer[r];
+					if (buffer[r] == QUOTE) {
+						r++;
+					}
+
+				}
+
+				ends[i] = w;
+				escapes[i] = false;
+
+			}
+
+		}
+
+	}
+
+	/**
+	 * keep the unread text from position, and read more text after it
+	 *
+	 * @throws IOException
+	 */
+	private void fill() throws IOException {
+
+		if (position > 0) {
+			System.arraycopy(buffer, position, buffer, 0, limit - position);
+			limit -= position;
+			position = 0;
+		}
+
+		if (limit == buffer.length) {
+			buffer = Arrays.copyOf(buffer, buffer.length * 2);
+		}
+
+		int n = reader.read(buffer, limit, buffer.length - limit);
+		if (n < 0) {
+			eof = true;
+		} else {
+			limit += n;
+		}
+
+	}
+
+	@Override
+	String get(int column) {
+
+		if (column < 0 || column >= count) {
+			return "";
+		}
+
+		return new String(buffer, starts[column], ends[column] - starts[column]);
+	}
+
+	@Override
+	protected int charAt(int index) {
+		return buffer[index];
+	}
+
+	@Override
+	void copyTo(int column, CharCell cell) {
+
+		if (column < 0 || column >= count) {
+			cell.reserve(0);
+			return;
+		}
+
+		int length = ends[column] - starts[column];
+		System.arraycopy(buffer, starts[column], cell.reserve(length), 0, length);
+
+	}
+
+	@Override
+	int[] encode(String value) {
+
+		int[] units = new int[value.length()];
+		for (int i = 0; i < units.length; i++) {
+			units[i] = value.charAt(i);
+		}
+
+		return units;
+	}
+
+	/**
+	 * the buffer that {@link #getStart(int)} and {@link #getLength(int)} refer to, valid until the next
+	 * {@link #readRecord()}
+	 *
+	 * @return
+	 */
+	char[] getBuffer() {
+		return buffer;
+	}
+
+	int getStart(int column) {
+		return starts[column];
+	}
+
+	int getLength(int column) {
+		return ends[column] - starts[column];
+	}
+
+	@Override
+	public void close() {
+
+		if (reader != null) {
+
+			try {
+				reader.close();
+			} catch (IOException e) {
+				// ignore
+			}
+
+			reader = null;
+		}
+
+	}
+
+}
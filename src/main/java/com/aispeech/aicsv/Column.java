@@ -36,4 +36,21 @@ public @interface Column {
 	public String matches() default ".*";
 
 	public boolean trim() default true;
+
+	/**
+	 * (Optional) The converter between the field and its cell. Defaults to the one registered for the field type, see
+	 * {@link ColumnConverters}, the class should have a no-arg constructor; a field whose type has none is written
+	 * with toString() and can not be read
+	 * 
+	 * @return
+	 */
+	@SuppressWarnings("rawtypes")
+	public Class<? extends ColumnConverter> converter() default ColumnConverter.class;
+
+	/**
+	 * (Optional) Whether repeated cells of the column share one String when read, see {@link Interning}
+	 * 
+	 * @return
+	 */
+	public Interning intern() default Interning.AUTO;
 }
\ No newline at end of file
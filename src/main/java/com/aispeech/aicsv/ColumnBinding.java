@@ -0,0 +1,388 @@
+package com.aispeech.aicsv;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.util.regex.Pattern;
+
+/**
+ * resolved mapping between one {@link Column} field and its csv column, built once by {@link ColumnSchema}
+ *
+ * @param <T>
+ */
+final class ColumnBinding<T extends CsvBean> {
+
+	private final int ordinal;
+	private final Field field;
+	private final Column column;
+	private final String name;
+	private final FieldAccessor accessor;
+	private final Pattern pattern;
+
+	/**
+	 * null when the field takes the cell as is
+	 */
+	private final ColumnConverter<Object> converter;
+
+	/**
+	 * int, long, short, byte or double when the field is parsed the built-in way, see {@link #isPrimitive()}
+	 */
+	private final Class<?> primitiveType;
+
+	/**
+	 * see {@link #isDirect()}
+	 */
+	private final boolean direct;
+
+	ColumnBinding(int ordinal, Field field, Column column, String name) throws CsvException {
+
+		this.ordinal = ordinal;
+		this.field = field;
+		this.column = column;
+		this.name = name;
+		this.accessor = FieldAccessors.newAccessor(field);
+		this.pattern = column.matches().equals(".*") ? null : Pattern.compile(column.matches());
+		this.converter = getConverter(field, column);
+		this.primitiveType = getPrimitiveType(field, column);
+		this.direct = primitiveType != null && pattern == null && !column.unique();
+
+	}
+
+	@SuppressWarnings("unchecked")
+	private static ColumnConverter<Object> getConverter(Field field, Column column) throws CsvException {
+
+		if (column.converter() != ColumnConverter.class) {
+
+			try {
+				Constructor<?> constructor = column.converter().getDeclaredConstructor();
+				constructor.setAccessible(true);
+				return (ColumnConverter<Object>) constructor.newInstance();
+			} catch (Exception e) {
+				throw new CsvException("Invalid converter for field[" + field + "]: " + e);
+			}
+
+		}
+
+		Class<?> type = field.getType();
+		if (type.isAssignableFrom(String.class)) {
+			return null;
+		}
+
+		ColumnConverter<Object> converter = (ColumnConverter<Object>) ColumnConverters.get(type);
+		if (converter == null) {
+			return new WriteOnlyConverter(field);
+		}
+
+		return converter;
+
+	}
+
+	/**
+	 * the converter of a field whose type has none, it is written with toString() and fails when a cell is read into
+	 * it
+	 */
+	private static final class WriteOnlyConverter implements ColumnConverter<Object> {
+
+		private final Field field;
+
+		WriteOnlyConverter(Field field) {
+			this.field = field;
+		}
+
+		@Override
+		public Object parse(String value) {
+			throw new UnsupportedOperationException("No converter for field[" + field + "] of type["
+					+ field.getType().getName() + "]");
+		}
+
+		@Override
+		public String format(Object value) {
+			return value.toString();
+		}
+
+	}
+
+	private static Class<?> getPrimitiveType(Field field, Column column) {
+
+		Class<?> type = field.getType();
+
+		if (type != int.class && type != long.class && type != short.class && type != byte.class
+				&& type != double.class) {
+			return null;
+		}
+
+		/*
+		 * the value must be parsed the built-in way
+		 */
+		if (column.converter() != ColumnConverter.class || !ColumnConverters.isBuiltIn(type)) {
+			return null;
+		}
+
+		try {
+			field.setAccessible(true);
+		} catch (RuntimeException e) {
+			return null;
+		}
+
+		return type;
+
+	}
+
+	/**
+	 * position of this binding within the schema, which is also its position in a written record
+	 *
+	 * @return
+	 */
+	int getOrdinal() {
+		return ordinal;
+	}
+
+	Field getField() {
+		return field;
+	}
+
+	Column getColumn() {
+		return column;
+	}
+
+	String getName() {
+		return name;
+	}
+
+	boolean isNullable() {
+		return column.nullable();
+	}
+
+	boolean isUnique() {
+		return column.unique();
+	}
+
+	boolean isTrim() {
+		return column.trim();
+	}
+
+	/**
+	 * the compiled matches constraint, null when the column accepts any value
+	 * 
+	 * @return
+	 */
+	Pattern getPattern() {
+		return pattern;
+	}
+
+	/**
+	 * whether the cell can be parsed straight into the primitive field, without a String and without boxing, which
+	 * is the case for an int, long, short, byte or double field with the built-in converter and no matches or unique
+	 * constraint<br/>
+	 * such fields are set by {@link #setLong(CsvBean, long)} or {@link #setDouble(CsvBean, double)} with
+	 * {@link Field#setInt(Object, int)} and alike, whatever the {@link FieldAccessors} strategy
+	 * 
+	 * @return
+	 */
+	boolean isDirect() {
+		return direct;
+	}
+
+	/**
+	 * whether the field is an int, long, short, byte or double parsed the built-in way, whatever its constraints, so
+	 * that its value can be kept and set as a primitive, see {@link #setLong(CsvBean, long)} and
+	 * {@link #setDouble(CsvBean, double)}
+	 * 
+	 * @return
+	 */
+	boolean isPrimitive() {
+		return primitiveType != null;
+	}
+
+	/**
+	 * whether a primitive field is a double, see {@link #isPrimitive()}
+	 * 
+	 * @return
+	 */
+	boolean isFloating() {
+		return primitiveType == double.class;
+	}
+
+	/**
+	 * whether the cell is converted to the field, i.e. the field takes something else than the cell as is
+	 * 
+	 * @return
+	 */
+	boolean isConverted() {
+		return converter != null;
+	}
+
+	/**
+	 * whether the field is a CharSequence which takes the cell as is
+	 * 
+	 * @return
+	 */
+	boolean isSequence() {
+		return converter == null && field.getType() == CharSequence.class;
+	}
+
+	Object get(T t) throws CsvException {
+		return accessor.get(t);
+	}
+
+	void set(T t, Object value) throws CsvException {
+		accessor.set(t, value);
+	}
+
+	/**
+	 * set a field from its cell, a blank cell leaves a field which is not a String untouched
+	 * 
+	 * @param t
+	 * @param value
+	 *            the normalized cell
+	 * @throws CsvException
+	 *             if the value can not be converted, the message is the reason
+	 */
+	void setValue(T t, String value) throws CsvException {
+
+		if (converter == null) {
+			accessor.set(t, value);
+			return;
+		}
+
+		if (value.length() == 0) {
+
+			if (field.getType() == String.class) {
+				accessor.set(t, value);
+			}
+
+			return;
+		}
+
+		accessor.set(t, parse(value));
+
+	}
+
+	/**
+	 * convert a non-blank cell to the type of the field
+	 * 
+	 * @param value
+	 * @return
+	 * @throws CsvException
+	 *             if the value can not be converted, the message is the reason
+	 */
+	Object parse(String value) throws CsvException {
+
+		if (converter == null) {
+			return value;
+		}
+
+		try {
+			return converter.parse(value);
+		} catch (RuntimeException e) {
+			throw new CsvException(e);
+		}
+
+	}
+
+	/**
+	 * get the cell of a field
+	 * 
+	 * @param t
+	 * @return null if the field is null
+	 * @throws CsvException
+	 */
+	String getValue(T t) throws CsvException {
+
+		Object value = accessor.get(t);
+		if (value == null) {
+			return null;
+		}
+
+		if (converter == null) {
+			return value.toString();
+		}
+
+		try {
+			return converter.format(value);
+		} catch (RuntimeException e) {
+			throw new CsvException(e);
+		}
+
+	}
+
+	/**
+	 * set a direct integral field, the value must be in its range
+	 * 
+	 * @param t
+	 * @param value
+	 * @throws CsvException
+	 */
+	void setLong(T t, long value) throws CsvException {
+
+		try {
+
+			if (primitiveType == int.class) {
+				field.setInt(t, (int) value);
+			} else if (primitiveType == long.class) {
+				field.setLong(t, value);
+			} else if (primitiveType == short.class) {
+				field.setShort(t, (short) value);
+			} else {
+				field.setByte(t, (byte) value);
+			}
+
+		} catch (IllegalAccessException e) {
+			throw new CsvException(e);
+		}
+
+	}
+
+	/**
+	 * whether a value fits a primitive integral field
+	 * 
+	 * @param value
+	 * @return
+	 */
+	boolean inRange(long value) {
+
+		if (primitiveType == int.class) {
+			return value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE;
+		}
+
+		if (primitiveType == short.class) {
+			return value >= Short.MIN_VALUE && value <= Short.MAX_VALUE;
+		}
+
+		if (primitiveType == byte.class) {
+			return value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE;
+		}
+
+		return true;
+	}
+
+	void setDouble(T t, double value) throws CsvException {
+
+		try {
+			field.setDouble(t, value);
+		} catch (IllegalAccessException e) {
+			throw new CsvException(e);
+		}
+
+	}
+
+	long getLong(T t) throws CsvException {
+
+		try {
+			return field.getLong(t);
+		} catch (IllegalAccessException e) {
+			throw new CsvException(e);
+		}
+
+	}
+
+	double getDouble(T t) throws CsvException {
+
+		try {
+			return field.getDouble(t);
+		} catch (IllegalAccessException e) {
+			throw new CsvException(e);
+		}
+
+	}
+
+}
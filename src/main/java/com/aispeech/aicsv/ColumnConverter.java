@@ -0,0 +1,31 @@
+package com.aispeech.aicsv;
+
+/**
+ * convert the value of a {@link Column} field from and to its csv cell, see {@link ColumnConverters} and
+ * {@link Column#converter()}<br/>
+ * a converter should be stateless, one instance is shared by every reader and writer of a field
+ *
+ * @param <V>
+ *            type of the field
+ */
+public interface ColumnConverter<V> {
+
+	/**
+	 * 
+	 * @param value
+	 *            the cell after trimming, never blank
+	 * @return
+	 * @throws IllegalArgumentException
+	 *             or another runtime exception if the value is invalid
+	 */
+	V parse(String value);
+
+	/**
+	 * 
+	 * @param value
+	 *            never null
+	 * @return
+	 */
+	String format(V value);
+
+}
@@ -0,0 +1,241 @@
+package com.aispeech.aicsv;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * the {@link ColumnConverter} of each field type<br/>
+ * numbers, booleans, chars, {@link BigDecimal}, {@link BigInteger}, ISO {@link LocalDate}, {@link LocalTime},
+ * {@link LocalDateTime} and enums (by name) are built in, other types can be registered<br/>
+ * converters are looked up once per field when its class is first read or written, so they should be registered
+ * before that
+ */
+public final class ColumnConverters {
+
+	private static final ConcurrentMap<Class<?>, ColumnConverter<?>> CONVERTERS = new ConcurrentHashMap<Class<?>, ColumnConverter<?>>();
+
+	static {
+
+		ColumnConverter<Integer> integerConverter = new ToStringConverter<Integer>() {
+
+			@Override
+			public Integer parse(String value) {
+				return Integer.valueOf(value);
+			}
+		};
+
+		ColumnConverter<Long> longConverter = new ToStringConverter<Long>() {
+
+			@Override
+			public Long parse(String value) {
+				return Long.valueOf(value);
+			}
+		};
+
+		ColumnConverter<Short> shortConverter = new ToStringConverter<Short>() {
+
+			@Override
+			public Short parse(String value) {
+				return Short.valueOf(value);
+			}
+		};
+
+		ColumnConverter<Byte> byteConverter = new ToStringConverter<Byte>() {
+
+			@Override
+			public Byte parse(String value) {
+				return Byte.valueOf(value);
+			}
+		};
+
+		ColumnConverter<Double> doubleConverter = new ToStringConverter<Double>() {
+
+			@Override
+			public Double parse(String value) {
+				return Double.valueOf(value);
+			}
+		};
+
+		ColumnConverter<Float> floatConverter = new ToStringConverter<Float>() {
+
+			@Override
+			public Float parse(String value) {
+				return Float.valueOf(value);
+			}
+		};
+
+		ColumnConverter<Boolean> booleanConverter = new ToStringConverter<Boolean>() {
+
+			@Override
+			public Boolean parse(String value) {
+
+				if (value.equalsIgnoreCase("true")) {
+					return Boolean.TRUE;
+				}
+
+				if (value.equalsIgnoreCase("false")) {
+					return Boolean.FALSE;
+				}
+
+				throw new IllegalArgumentException("not a boolean: " + value);
+			}
+		};
+
+		ColumnConverter<Character> charConverter = new ToStringConverter<Character>() {
+
+			@Override
+			public Character parse(String value) {
+
+				if (value.length() != 1) {
+					throw new IllegalArgumentException("not a char: " + value);
+				}
+
+				return value.charAt(0);
+			}
+		};
+
+		register(Integer.class, integerConverter);
+		register(int.class, integerConverter);
+		register(Long.class, longConverter);
+		register(long.class, longConverter);
+		register(Short.class, shortConverter);
+		register(short.class, shortConverter);
+		register(Byte.class, byteConverter);
+		register(byte.class, byteConverter);
+		register(Double.class, doubleConverter);
+		register(double.class, doubleConverter);
+		register(Float.class, floatConverter);
+		register(float.class, floatConverter);
+		register(Boolean.class, booleanConverter);
+		register(boolean.class, booleanConverter);
+		register(Character.class, charConverter);
+		register(char.class, charConverter);
+
+		register(BigDecimal.class, new ColumnConverter<BigDecimal>() {
+
+			@Override
+			public BigDecimal parse(String value) {
+				return new BigDecimal(value);
+			}
+
+			@Override
+			public String format(BigDecimal value) {
+				return value.toPlainString();
+			}
+		});
+
+		register(BigInteger.class, new ToStringConverter<BigInteger>() {
+
+			@Override
+			public BigInteger parse(String value) {
+				return new BigInteger(value);
+			}
+		});
+
+		register(LocalDate.class, new ToStringConverter<LocalDate>() {
+
+			@Override
+			public LocalDate parse(String value) {
+				return LocalDate.parse(value);
+			}
+		});
+
+		register(LocalTime.class, new ToStringConverter<LocalTime>() {
+
+			@Override
+			public LocalTime parse(String value) {
+				return LocalTime.parse(value);
+			}
+		});
+
+		register(LocalDateTime.class, new ToStringConverter<LocalDateTime>() {
+
+			@Override
+			public LocalDateTime parse(String value) {
+				return LocalDateTime.parse(value);
+			}
+		});
+
+	}
+
+	private ColumnConverters() {
+	}
+
+	/**
+	 * a converter whose format is {@link Object#toString()}
+	 */
+	private abstract static class ToStringConverter<V> implements ColumnConverter<V> {
+
+		@Override
+		public String format(V value) {
+			return value.toString();
+		}
+
+	}
+
+	private static final class EnumConverter<E extends Enum<E>> implements ColumnConverter<E> {
+
+		private final Class<E> type;
+
+		EnumConverter(Class<E> type) {
+			this.type = type;
+		}
+
+		@Override
+		public E parse(String value) {
+			return Enum.valueOf(type, value);
+		}
+
+		@Override
+		public String format(E value) {
+			return value.name();
+		}
+
+	}
+
+	/**
+	 * set the converter of a field type, it replaces the built-in one if any
+	 *
+	 * @param <V>
+	 * @param type
+	 * @param converter
+	 */
+	public static <V> void register(Class<V> type, ColumnConverter<V> converter) {
+		CONVERTERS.put(type, converter);
+	}
+
+	/**
+	 * whether a type still has its built-in converter
+	 *
+	 * @param type
+	 * @return
+	 */
+	static boolean isBuiltIn(Class<?> type) {
+
+		ColumnConverter<?> converter = CONVERTERS.get(type);
+		return converter != null && converter.getClass().getEnclosingClass() == ColumnConverters.class;
+	}
+
+	/**
+	 *
+	 * @param <V>
+	 * @param type
+	 * @return the converter of a field type, null if there's none
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public static <V> ColumnConverter<V> get(Class<V> type) {
+
+		ColumnConverter<V> converter = (ColumnConverter<V>) CONVERTERS.get(type);
+		if (converter == null && type.isEnum()) {
+			converter = new EnumConverter(type);
+		}
+
+		return converter;
+	}
+
+}
@@ -0,0 +1,182 @@
+package com.aispeech.aicsv;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * the {@link Column} mapping of a {@link CsvBean} class, resolved once and shared by every reader and writer of that
+ * class, so that reading or writing a record does no annotation lookup at all
+ *
+ * @param <T>
+ */
+final class ColumnSchema<T extends CsvBean> {
+
+	private static final ConcurrentMap<Class<?>, ColumnSchema<?>> SCHEMAS = new ConcurrentHashMap<Class<?>, ColumnSchema<?>>();
+
+	private final Class<T> recordClass;
+	private final List<ColumnBinding<T>> bindings;
+	private final Set<String> columnNames;
+	private final Constructor<T> constructor;
+
+	private ColumnSchema(Class<T> recordClass, List<ColumnBinding<T>> bindings, Set<String> columnNames) {
+
+		this.recordClass = recordClass;
+		this.bindings = Collections.unmodifiableList(bindings);
+		this.columnNames = Collections.unmodifiableSet(columnNames);
+		this.constructor = getConstructor(recordClass);
+
+	}
+
+	/**
+	 * get the schema of the given class, it will be resolved and verified on the first call
+	 *
+	 * @param <T>
+	 * @param t
+	 * @return
+	 * @throws CsvException
+	 *             if the class has no {@link Column} or has duplicate column names
+	 */
+	@SuppressWarnings("unchecked")
+	static <T extends CsvBean> ColumnSchema<T> of(Class<T> t) throws CsvException {
+
+		ColumnSchema<T> schema = (ColumnSchema<T>) SCHEMAS.get(t);
+		if (schema == null) {
+
+			schema = resolve(t);
+
+			ColumnSchema<T> existing = (ColumnSchema<T>) SCHEMAS.putIfAbsent(t, schema);
+			if (existing != null) {
+				schema = existing;
+			}
+
+		}
+
+		return schema;
+
+	}
+
+	private static <T extends CsvBean> ColumnSchema<T> resolve(Class<T> t) throws CsvException {
+
+		List<ColumnBinding<T>> bindings = new ArrayList<ColumnBinding<T>>();
+		Set<String> columnNames = new LinkedHashSet<String>();
+		Set<String> duplicateColumnNames = new HashSet<String>();
+
+		Field[] fields = t.getDeclaredFields();
+		for (Field field : fields) {
+
+			Column column = field.getAnnotation(Column.class);
+			if (column != null) {
+
+				String columnName = getColumnName(field, column);
+				if (!columnNames.add(columnName)) {
+					duplicateColumnNames.add(columnName);
+				}
+
+				try {
+					bindings.add(new ColumnBinding<T>(bindings.size(), field, column, columnName));
+				} catch (PatternSyntaxException e) {
+					throw new CsvException("Invalid regex for column[" + columnName + "] in class[" + t.getName()
+							+ "]: " + e.getMessage());
+				}
+
+			}
+
+		}
+
+		if (columnNames.size() == 0) {
+			throw new CsvException("There's no @Column in class[" + t.getName() + "]");
+		}
+
+		if (duplicateColumnNames.size() != 0) {
+			throw new CsvException("Duplicate column name " + duplicateColumnNames + " in class[" + t.getName() + "]");
+		}
+
+		return new ColumnSchema<T>(t, bindings, columnNames);
+
+	}
+
+	static String getColumnName(Field field, Column column) {
+
+		String name = column.name();
+		if (name.equals("")) {
+			name = field.getName();
+		}
+
+		return name;
+	}
+
+	/**
+	 * a missing no-arg constructor is only an error when a record is instantiated, writers never need one
+	 *
+	 * @param t
+	 * @return
+	 */
+	private static <T> Constructor<T> getConstructor(Class<T> t) {
+
+		try {
+			Constructor<T> constructor = t.getDeclaredConstructor();
+			constructor.setAccessible(true);
+			return constructor;
+		} catch (NoSuchMethodException e) {
+			return null;
+		} catch (SecurityException e) {
+			return null;
+		}
+
+	}
+
+	Class<T> getRecordClass() {
+		return recordClass;
+	}
+
+	/**
+	 * bindings in declaration order
+	 *
+	 * @return
+	 */
+	List<ColumnBinding<T>> getBindings() {
+		return bindings;
+	}
+
+	/**
+	 * column names in declaration order
+	 *
+	 * @return
+	 */
+	Set<String> getColumnNames() {
+		return columnNames;
+	}
+
+	int size() {
+		return bindings.size();
+	}
+
+	T newInstance() throws CsvException {
+
+		if (constructor == null) {
+			throw new CsvException(new InstantiationException(recordClass.getName()));
+		}
+
+		try {
+			return constructor.newInstance();
+		} catch (InstantiationException e) {
+			throw new CsvException(e);
+		} catch (IllegalAccessException e) {
+			throw new CsvException(e);
+		} catch (InvocationTargetException e) {
+			throw new CsvException(e);
+		}
+
+	}
+
+}
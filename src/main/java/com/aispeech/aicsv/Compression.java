@@ -0,0 +1,204 @@
+package com.aispeech.aicsv;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * codec of a csv file, a compressed file is read from its magic bytes and written from its extension<br/>
+ * it is decompressed on a prefetch thread, see {@link PrefetchInputStream}, and a block-gzip (BGZF) file by several
+ * threads, see {@link BgzfInputStream}<br/>
+ * zstd needs com.github.luben:zstd-jni on the classpath
+ */
+enum Compression {
+
+	NONE {
+
+		@Override
+		InputStream decompress(File file) throws IOException {
+			return new FileInputStream(file);
+		}
+
+		@Override
+		OutputStream compress(File file) throws IOException {
+			return new FileOutputStream(file);
+		}
+	},
+
+	GZIP {
+
+		@Override
+		InputStream decompress(File file) throws IOException {
+
+			if (BgzfInputStream.isBgzf(file)) {
+				return new BgzfInputStream(file);
+			}
+
+			return new PrefetchInputStream(new GZIPInputStream(new FileInputStream(file), BUFFER_SIZE), file
+					.getPath());
+		}
+
+		@Override
+		OutputStream compress(File file) throws IOException {
+			return new GZIPOutputStream(new FileOutputStream(file), BUFFER_SIZE);
+		}
+	},
+
+	ZSTD {
+
+		@Override
+		InputStream decompress(File file) throws IOException {
+
+			InputStream in = new FileInputStream(file);
+			try {
+				return new PrefetchInputStream(Zstd.decompress(in), file.getPath());
+			} catch (NoClassDefFoundError e) {
+				in.close();
+				throw new IOException(file + ": reading zstd needs zstd-jni on the classpath", e);
+			}
+
+		}
+
+		@Override
+		OutputStream compress(File file) throws IOException {
+
+			OutputStream out = new FileOutputStream(file);
+			try {
+				return new BufferedOutputStream(Zstd.compress(out), BUFFER_SIZE);
+			} catch (NoClassDefFoundError e) {
+				out.close();
+				throw new IOException(file + ": writing zstd needs zstd-jni on the classpath", e);
+			}
+
+		}
+	};
+
+	static final int BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * open a file for reading
+	 *
+	 * @param file
+	 * @return
+	 * @throws IOException
+	 */
+	abstract InputStream decompress(File file) throws IOException;
+
+	/**
+	 * create a file for writing, closing the stream finishes the compressed file
+	 *
+	 * @param file
+	 * @return
+	 * @throws IOException
+	 */
+	abstract OutputStream compress(File file) throws IOException;
+
+	/**
+	 * the codec of an existing file, from its first bytes
+	 *
+	 * @param file
+	 * @return
+	 * @throws IOException
+	 */
+	static Compression of(File file) throws IOException {
+
+		byte[] magic = new byte[4];
+		int n = 0;
+
+		InputStream in = new FileInputStream(file);
+		try {
+
+			int read;
+			while (n < magic.length && (read = in.read(magic, n, magic.length - n)) > 0) {
+				n += read;
+			}
+
+		} finally {
+			in.close();
+		}
+
+		if (n >= 2 && (magic[0] & 0xff) == 0x1f && (magic[1] & 0xff) == 0x8b) {
+			return GZIP;
+		}
+
+		if (n == 4 && (magic[0] & 0xff) == 0x28 && (magic[1] & 0xff) == 0xb5 && (magic[2] & 0xff) == 0x2f
+				&& (magic[3] & 0xff) == 0xfd) {
+			return ZSTD;
+		}
+
+		return NONE;
+	}
+
+	/**
+	 * the codec of a file to write, from its extension, i.e. ".gz" or ".zst"
+	 *
+	 * @param file
+	 * @return
+	 */
+	static Compression forName(File file) {
+
+		String name = file.getName().toLowerCase();
+
+		if (name.endsWith(".gz") || name.endsWith(".gzip")) {
+			return GZIP;
+		}
+
+		if (name.endsWith(".zst") || name.endsWith(".zstd")) {
+			return ZSTD;
+		}
+
+		return NONE;
+	}
+
+	/**
+	 * open a file for reading, decompressed if it is compressed
+	 *
+	 * @param file
+	 * @return
+	 * @throws IOException
+	 */
+	static InputStream open(File file) throws IOException {
+		return of(file).decompress(file);
+	}
+
+	/**
+	 * create a file for writing, compressed according to its extension
+	 *
+	 * @param file
+	 * @return
+	 * @throws IOException
+	 */
+	static WritableByteChannel create(File file) throws IOException {
+
+		Compression compression = forName(file);
+		if (compression == NONE) {
+			return new FileOutputStream(file).getChannel();
+		}
+
+		return Channels.newChannel(compression.compress(file));
+	}
+
+	/**
+	 * keeps zstd-jni from being loaded unless a zstd file is used
+	 */
+	private static final class Zstd {
+
+		static InputStream decompress(InputStream in) throws IOException {
+			return new com.github.luben.zstd.ZstdInputStream(in);
+		}
+
+		static OutputStream compress(OutputStream out) throws IOException {
+			return new com.github.luben.zstd.ZstdOutputStream(out);
+		}
+
+	}
+
+}
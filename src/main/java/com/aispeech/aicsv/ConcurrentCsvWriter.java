@@ -0,0 +1,328 @@
+package com.aispeech.aicsv;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * csv writer which many threads can write records to at once<br/>
+ * every thread checks and encodes its records with its own encoder into its own buffer, then appends the whole record
+ * to the shared buffer under a short lock, so records never interleave; the shared buffer is written by the thread
+ * whose record makes the {@link FlushPolicy} flush, while the others go on appending to a fresh buffer; full buffers
+ * are queued in the order they were taken and written in that order by whichever thread gets the write lock first, the
+ * two locks are never held together<br/>
+ * unique columns are checked against one striped index shared by all threads<br/>
+ * a record's line is taken from an atomic counter when it is written, records written at the same time by different
+ * threads may be stored in another order than their lines<br/>
+ * the charset must be one whose records can be encoded separately, i.e. UTF-8, US-ASCII, ISO-8859-1, GBK, GB2312,
+ * GB18030 or Big5
+ *
+ * @param <T>
+ */
+public final class ConcurrentCsvWriter<T extends CsvBean> {
+
+	private final WritableByteChannel channel;
+	private final String path;
+	private final char delimiter;
+	private final Charset charset;
+	private final Class<T> recordClass;
+
+	private final Map<String, UniqueIndex> uniqueValueMap = new ConcurrentHashMap<String, UniqueIndex>();
+	private final AtomicInteger line = new AtomicInteger(1);
+
+	private final ThreadLocal<CsvWriter<T>> encoders = new ThreadLocal<CsvWriter<T>>();
+
+	private final ReentrantLock appendLock = new ReentrantLock();
+	private final ReentrantLock writeLock = new ReentrantLock();
+	private final ConcurrentLinkedQueue<RecordBuffer> spares = new ConcurrentLinkedQueue<RecordBuffer>();
+
+	/*
+	 * guarded by appendLock
+	 */
+	private RecordBuffer pending;
+	private int pendingRecords = 0;
+
+	/*
+	 * set under appendLock, read without it only to fail early
+	 */
+	private volatile boolean closed = false;
+
+	/*
+	 * added to under appendLock, taken from under writeLock
+	 */
+	private final ConcurrentLinkedQueue<RecordBuffer> fulls = new ConcurrentLinkedQueue<RecordBuffer>();
+
+	private volatile FlushPolicy flushPolicy = FlushPolicy.bySize(CsvWriter.DEFAULT_FLUSH_SIZE);
+
+	/**
+	 * default charset "gbk"<br/>
+	 * default delimiter ','
+	 *
+	 * @param csv
+	 * @param t
+	 * @throws IOException
+	 * @throws CsvException
+	 */
+	public ConcurrentCsvWriter(File csv, Class<T> t) throws IOException, CsvException {
+		this(csv, CsvRW.DEFAULT_DELIMITER, CsvRW.DEFAULT_CHARSET, t);
+	}
+
+	public ConcurrentCsvWriter(File csv, char delimiter, Charset charset, Class<T> t) throws IOException,
+			CsvException {
+		this(Compression.create(csv), csv.getCanonicalPath(), delimiter, charset, t);
+	}
+
+	public ConcurrentCsvWriter(OutputStream outputStream, char delimiter, Charset charset, Class<T> t)
+			throws IOException, CsvException {
+		this(Channels.newChannel(outputStream), null, delimiter, charset, t);
+	}
+
+	private ConcurrentCsvWriter(WritableByteChannel channel, String path, char delimiter, Charset charset, Class<T> t)
+			throws IOException, CsvException {
+
+		this.channel = channel;
+		this.path = path;
+		this.delimiter = delimiter;
+		this.charset = charset;
+		this.recordClass = t;
+
+		try {
+
+			this.pending = new RecordBuffer(charset);
+			if (!pending.isStateless()) {
+				throw new CsvException("charset " + charset + " can not be written by several threads");
+			}
+
+			for (ColumnBinding<T> binding : ColumnSchema.of(t).getBindings()) {
+				if (binding.isUnique()) {
+					uniqueValueMap.put(binding.getName(), new StripedUniqueIndex());
+				}
+			}
+
+			CsvWriter<T> encoder = getEncoder();
+			encoder.encodeHeaders();
+			encoder.getBuffer().moveTo(pending);
+			pendingRecords++;
+
+		} catch (CsvException e) {
+			channel.close();
+			throw e;
+		}
+
+	}
+
+	/**
+	 * see {@link CsvWriter#setFlushPolicy(FlushPolicy)}
+	 *
+	 * @param flushPolicy
+	 */
+	public void setFlushPolicy(FlushPolicy flushPolicy) {
+		this.flushPolicy = flushPolicy;
+	}
+
+	/**
+	 * line of the last record
+	 *
+	 * @return
+	 */
+	public int getLine() {
+		return line.get();
+	}
+
+	private CsvWriter<T> getEncoder() throws CsvException {
+
+		CsvWriter<T> encoder = encoders.get();
+		if (encoder == null) {
+
+			encoder = new CsvWriter<T>(delimiter, charset, recordClass, uniqueValueMap);
+			encoder.path = path;
+
+			encoders.set(encoder);
+		}
+
+		return encoder;
+	}
+
+	/**
+	 * write a record, it can be called by several threads at once
+	 *
+	 * @param record
+	 * @throws CsvException
+	 * @throws IOException
+	 */
+	public void writeRecord(T record) throws CsvException, IOException {
+
+		if (closed) {
+			throw new CsvException("writer was already closed.");
+		}
+
+		CsvWriter<T> encoder = getEncoder();
+
+		int recordLine = line.incrementAndGet();
+		record.setLine(recordLine);
+		encoder.line = recordLine;
+
+		try {
+			encoder.encodeRecord(record);
+		} catch (CsvException e) {
+			encoder.getBuffer().clear();
+			throw e;
+		}
+
+		boolean full = false;
+
+		appendLock.lock();
+		try {
+
+			if (closed) {
+				encoder.getBuffer().clear();
+				throw new CsvException("writer was already closed.");
+			}
+
+			encoder.getBuffer().moveTo(pending);
+
+			if (flushPolicy.shouldFlush(++pendingRecords, pending.size())) {
+				swap();
+				full = true;
+			}
+
+		} finally {
+			appendLock.unlock();
+		}
+
+		if (full) {
+			writeFulls();
+		}
+
+	}
+
+	/**
+	 * write records, see {@link #writeRecord(CsvBean)}
+	 *
+	 * @param records
+	 * @throws CsvException
+	 * @throws IOException
+	 */
+	public void writeRecords(Iterable<T> records) throws CsvException, IOException {
+
+		for (T record : records) {
+			writeRecord(record);
+		}
+
+	}
+
+	/**
+	 * write every record appended before
+	 *
+	 * @throws IOException
+	 */
+	public void flush() throws IOException {
+
+		appendLock.lock();
+		try {
+
+			if (closed) {
+				return;
+			}
+
+			swap();
+
+		} finally {
+			appendLock.unlock();
+		}
+
+		writeFulls();
+
+	}
+
+	/**
+	 * queue the pending buffer to be written, called with the append lock held
+	 */
+	private void swap() {
+
+		fulls.add(pending);
+
+		pending = spares.poll();
+		if (pending == null) {
+			pending = new RecordBuffer(charset);
+		}
+
+		pendingRecords = 0;
+
+	}
+
+	/**
+	 * write every queued buffer, when it returns the buffer queued by the caller was written, by the caller or by the
+	 * thread which held the write lock before
+	 *
+	 * @throws IOException
+	 */
+	private void writeFulls() throws IOException {
+
+		writeLock.lock();
+		try {
+
+			RecordBuffer full;
+			while ((full = fulls.poll()) != null) {
+
+				try {
+					full.writeTo(channel);
+				} finally {
+					spares.offer(full);
+				}
+
+			}
+
+		} finally {
+			writeLock.unlock();
+		}
+
+	}
+
+	/**
+	 * flush and close this writer, a record written from then on fails; a record whose write is in progress is either
+	 * written before the writer is closed, or fails
+	 *
+	 * @throws IOException
+	 */
+	public void close() throws IOException {
+
+		appendLock.lock();
+		try {
+
+			if (closed) {
+				return;
+			}
+
+			closed = true;
+			swap();
+
+		} finally {
+			appendLock.unlock();
+		}
+
+		writeLock.lock();
+		try {
+			writeFulls();
+		} finally {
+
+			channel.close();
+			writeLock.unlock();
+
+			for (UniqueIndex index : uniqueValueMap.values()) {
+				index.close();
+			}
+
+		}
+
+	}
+
+}
@@ -1,34 +1,34 @@
 package com.aispeech.aicsv;
 
-import java.lang.reflect.Field;
-
 abstract public class CsvBean {
 
-	private Integer line = 1;
+	private int line = 1;
 
 	@Override
 	public String toString() {
 
 		StringBuffer sb = new StringBuffer("line:" + line + " ");
 
-		Field[] fields = this.getClass().getDeclaredFields();
-		for (Field field : fields) {
+		try {
+
+			@SuppressWarnings("unchecked")
+			Class<CsvBean> type = (Class<CsvBean>) getClass();
 
-			Column column = field.getAnnotation(Column.class);
-			if (column != null) {
+			for (ColumnBinding<CsvBean> binding : ColumnSchema.of(type).getBindings()) {
 
-				String name = CsvRW.getColumnName(field);
 				String value = "";
 				try {
-					value = CsvRW.getFieldValue(this, field) + "";
+					value = binding.get(this) + "";
 				} catch (CsvException e) {
 					value = e.getMessage();
 				}
 
-				sb.append(name + "[" + value + "]" + ", ");
+				sb.append(binding.getName() + "[" + value + "]" + ", ");
 
 			}
 
+		} catch (CsvException e) {
+			sb.append(e.getMessage() + ", ");
 		}
 
 		int len = sb.length();
@@ -39,7 +39,7 @@ abstract public class CsvBean {
 		return sb.toString();
 	}
 
-	void setLine(Integer line) {
+	void setLine(int line) {
 		this.line = line;
 	}
 
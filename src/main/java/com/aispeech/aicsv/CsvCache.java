@@ -0,0 +1,462 @@
+package com.aispeech.aicsv;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * the records of csv files which are read again and again, e.g. config and reference data, parsed once and kept until
+ * the file changes<br/>
+ * a file is keyed on its canonical path, the bean class, the delimiter and the charset, and its records are valid for
+ * the size and the modification time it had when it was read; each call checks them, and once the file changed the
+ * records already loaded are still returned while the file is read again in the background<br/>
+ * concurrent callers of a file which is not loaded yet share one read, a read which fails fails all of them and is
+ * not kept, so the next call reads the file again; when a read in the background fails the records loaded before are
+ * kept, the failure is held by {@link #getLastFailure()} and the next call tries again; if the executor rejects the
+ * read, the call which found the file changed reads it itself and gets its records or its failure<br/>
+ * the weight of a file is its size in bytes, the least recently used files are dropped once the total weight is over
+ * the maximum<br/>
+ * the records are shared by every caller and must not be modified
+ */
+public final class CsvCache {
+
+	/**
+	 * what a file is cached for
+	 */
+	private static final class Key {
+
+		final String path;
+		final Class<?> recordClass;
+		final char delimiter;
+		final Charset charset;
+
+		Key(String path, Class<?> recordClass, char delimiter, Charset charset) {
+			this.path = path;
+			this.recordClass = recordClass;
+			this.delimiter = delimiter;
+			this.charset = charset;
+		}
+
+		@Override
+		public int hashCode() {
+			return ((path.hashCode() * 31 + recordClass.hashCode()) * 31 + delimiter) * 31 + charset.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+
+			Key other = (Key) obj;
+
+			return path.equals(other.path) && recordClass == other.recordClass && delimiter == other.delimiter
+					&& charset.equals(other.charset);
+		}
+
+	}
+
+	/**
+	 * the records of a file as it was when it was read
+	 */
+	private static final class Loaded {
+
+		final List<?> records;
+		final long size;
+		final long lastModified;
+
+		Loaded(List<?> records, long size, long lastModified) {
+			this.records = records;
+			this.size = size;
+			this.lastModified = lastModified;
+		}
+
+		boolean isValid(long size, long lastModified) {
+			return this.size == size && this.lastModified == lastModified;
+		}
+
+		long getWeight() {
+			return Math.max(1, size);
+		}
+
+	}
+
+	private static final class Entry {
+
+		/**
+		 * null until the first read is done
+		 */
+		Loaded loaded;
+
+		/**
+		 * the read in flight, if any
+		 */
+		FutureTask<Loaded> loading;
+
+	}
+
+	private final long maxWeight;
+	private final Executor executor;
+
+	/**
+	 * in access order, guarded by this
+	 */
+	private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true);
+	private long weight = 0;
+
+	private volatile Exception lastFailure = null;
+
+	/**
+	 * files are read again in the common pool
+	 *
+	 * @param maxWeight
+	 *            total size in bytes of the files whose records are kept
+	 */
+	public CsvCache(long maxWeight) {
+		this(maxWeight, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 *
+	 * @param maxWeight
+	 *            total size in bytes of the files whose records are kept
+	 * @param executor
+	 *            reads the files which changed
+	 */
+	public CsvCache(long maxWeight, Executor executor) {
+
+		if (maxWeight <= 0) {
+			throw new IllegalArgumentException("maxWeight should be positive: " + maxWeight);
+		}
+
+		this.maxWeight = maxWeight;
+		this.executor = executor;
+
+	}
+
+	/**
+	 * the records of a csv, see {@link CsvReader#readRecords(File, Class)}<br/>
+	 * default charset "gbk"<br/>
+	 * default delimiter ','
+	 *
+	 * @param <T>
+	 * @param csvFile
+	 * @param t
+	 * @return an unmodifiable list
+	 * @throws IOException
+	 * @throws CsvException
+	 */
+	public <T extends CsvBean> List<T> readRecords(File csvFile, Class<T> t) throws IOException, CsvException {
+		return readRecords(csvFile, CsvRW.DEFAULT_DELIMITER, CsvRW.DEFAULT_CHARSET, t);
+	}
+
+	/**
+	 * the records of a csv, read with {@link CsvReader#openMapped(File, char, Charset, Class)} unless they are
+	 * cached
+	 *
+	 * @param <T>
+	 * @param csvFile
+	 * @param delimiter
+	 * @param charset
+	 * @param t
+	 * @return an unmodifiable list
+	 * @throws IOException
+	 * @throws CsvException
+	 */
+	@SuppressWarnings("unchecked")
+	public <T extends CsvBean> List<T> readRecords(File csvFile, char delimiter, Charset charset, Class<T> t)
+			throws IOException, CsvException {
+
+		Key key = new Key(csvFile.getCanonicalPath(), t, delimiter, charset);
+
+		long size = csvFile.length();
+		long lastModified = csvFile.lastModified();
+
+		Entry entry;
+		FutureTask<Loaded> task;
+		boolean owner = false;
+
+		synchronized (this) {
+
+			entry = entries.get(key);
+			if (entry == null) {
+				entry = new Entry();
+				entries.put(key, entry);
+			}
+
+			Loaded loaded = entry.loaded;
+			if (loaded != null && loaded.isValid(size, lastModified)) {
+				return (List<T>) loaded.records;
+			}
+
+			if (entry.loading == null) {
+				entry.loading = newTask(key, entry, csvFile, delimiter, charset, t);
+				owner = true;
+			}
+
+			task = entry.loading;
+
+			/*
+			 * the file changed, the previous records are returned while it is read again
+			 */
+			if (loaded != null) {
+
+				if (!owner) {
+					return (List<T>) loaded.records;
+				}
+
+				try {
+					executor.execute(task);
+					return (List<T>) loaded.records;
+				} catch (RejectedExecutionException e) {
+					/*
+					 * a bounded or shut down executor, this call reads the file itself
+					 */
+				}
+
+			}
+
+		}
+
+		if (owner) {
+			task.run();
+		}
+
+		return (List<T>) await(task, key).records;
+	}
+
+	/**
+	 * the first record of a csv, see {@link #readRecords(File, Class)}<br/>
+	 * unlike {@link CsvReader#readFirstRecord(File, Class)} the whole file is read and checked, so an invalid or
+	 * duplicate value in any record fails this call too
+	 *
+	 * @param <T>
+	 * @param csvFile
+	 * @param t
+	 * @return null if the csv has no record
+	 * @throws IOException
+	 * @throws CsvException
+	 */
+	public <T extends CsvBean> T readFirstRecord(File csvFile, Class<T> t) throws IOException, CsvException {
+
+		List<T> records = readRecords(csvFile, t);
+
+		return records.isEmpty() ? null : records.get(0);
+	}
+
+	private <T extends CsvBean> FutureTask<Loaded> newTask(final Key key, final Entry entry, final File csvFile,
+			final char delimiter, final Charset charset, final Class<T> t) {
+
+		return new FutureTask<Loaded>(new Callable<Loaded>() {
+
+			@Override
+			public Loaded call() throws Exception {
+
+				Loaded loaded = null;
+				Exception failure = null;
+				try {
+					loaded = load(csvFile, delimiter, charset, t);
+				} catch (Exception e) {
+					failure = e;
+					throw e;
+				} finally {
+					put(key, entry, loaded, failure);
+				}
+
+				return loaded;
+			}
+		});
+
+	}
+
+	/**
+	 * the size and the modification time are taken before the read, so that a change during it is seen by the next
+	 * call
+	 */
+	private static <T extends CsvBean> Loaded load(File csvFile, char delimiter, Charset charset, Class<T> t)
+			throws IOException, CsvException {
+
+		long size = csvFile.length();
+		long lastModified = csvFile.lastModified();
+
+		List<T> records = CsvReader.readRecords(CsvReader.openMapped(csvFile, delimiter, charset, t));
+
+		return new Loaded(Collections.unmodifiableList(records), size, lastModified);
+	}
+
+	/**
+	 * end a read, if it failed the entry keeps the records loaded before, or is dropped if there are none
+	 *
+	 * @param key
+	 * @param entry
+	 * @param loaded
+	 *            null if the read failed
+	 * @param failure
+	 *            why the read failed
+	 */
+	private synchronized void put(Key key, Entry entry, Loaded loaded, Exception failure) {
+
+		entry.loading = null;
+
+		/*
+		 * dropped or cleared meanwhile
+		 */
+		if (entries.get(key) != entry) {
+			return;
+		}
+
+		if (loaded == null) {
+
+			if (entry.loaded == null) {
+				entries.remove(key);
+			} else {
+				lastFailure = failure;
+			}
+
+			return;
+		}
+
+		if (entry.loaded != null) {
+			weight -= entry.loaded.getWeight();
+		}
+
+		entry.loaded = loaded;
+		weight += loaded.getWeight();
+
+		evict();
+
+	}
+
+	/**
+	 * drop the least recently used files until the total weight is under the maximum, files being read for the first
+	 * time have no weight yet and are kept
+	 */
+	private void evict() {
+
+		Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+		while (weight > maxWeight && iterator.hasNext()) {
+
+			Entry entry = iterator.next().getValue();
+			if (entry.loaded == null) {
+				continue;
+			}
+
+			weight -= entry.loaded.getWeight();
+			iterator.remove();
+
+		}
+
+	}
+
+	private static Loaded await(FutureTask<Loaded> task, Key key) throws IOException, CsvException {
+
+		try {
+			return task.get();
+		} catch (InterruptedException e) {
+			throw new InterruptedIOException("interrupted while reading " + key.path);
+		} catch (ExecutionException e) {
+
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+
+			if (cause instanceof CsvException) {
+				throw (CsvException) cause;
+			}
+
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+
+			throw new IOException(cause);
+
+		}
+
+	}
+
+	/**
+	 * drop the records of a csv, for every bean class
+	 *
+	 * @param csvFile
+	 * @throws IOException
+	 */
+	public synchronized void invalidate(File csvFile) throws IOException {
+
+		String path = csvFile.getCanonicalPath();
+
+		Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+		while (iterator.hasNext()) {
+
+			Map.Entry<Key, Entry> entry = iterator.next();
+			if (!entry.getKey().path.equals(path)) {
+				continue;
+			}
+
+			if (entry.getValue().loaded != null) {
+				weight -= entry.getValue().loaded.getWeight();
+			}
+
+			iterator.remove();
+
+		}
+
+	}
+
+	/**
+	 * drop every cached record
+	 */
+	public synchronized void clear() {
+		entries.clear();
+		weight = 0;
+	}
+
+	/**
+	 * number of cached files
+	 *
+	 * @return
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * total size in bytes of the cached files
+	 *
+	 * @return
+	 */
+	public synchronized long getWeight() {
+		return weight;
+	}
+
+	public long getMaxWeight() {
+		return maxWeight;
+	}
+
+	/**
+	 * the failure of the last read in the background of a file which changed, its previous records were kept
+	 *
+	 * @return null if no such read failed
+	 */
+	public Exception getLastFailure() {
+		return lastFailure;
+	}
+
+}
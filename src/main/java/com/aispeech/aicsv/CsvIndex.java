@@ -0,0 +1,397 @@
+package com.aispeech.aicsv;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * the input offsets of every n-th record of a csv file, saved next to it as a ".idx" file, so that a
+ * {@link CsvReader} can start at any line without parsing the records before it, see
+ * {@link CsvReader#seek(CsvIndex, int)}<br/>
+ * an offset is the start of a record, which is never inside a quoted cell, so reading can start there<br/>
+ * lines are the ones of {@link CsvBean#getLine()}, i.e. the first record is line 2; the index remembers the size and
+ * the modification time of the csv and is stale once the csv changes<br/>
+ * only uncompressed files in a charset which can be split at byte level can be indexed, see
+ * {@link CsvReader#openMapped(File, char, Charset, Class)}
+ */
+public final class CsvIndex {
+
+	public static final int DEFAULT_INTERVAL = 1024;
+
+	public static final String SUFFIX = ".idx";
+
+	static final int FIRST_LINE = 2;
+
+	private static final int MAGIC = 0x41494458;
+	private static final int VERSION = 1;
+
+	/**
+	 * magic, version, size, modification time, interval, last line and count
+	 */
+	private static final int HEADER_SIZE = 36;
+
+	private final File csv;
+	private final long size;
+	private final long lastModified;
+	private final int interval;
+
+	private long[] offsets;
+	private int count = 0;
+	private int lastLine = 1;
+
+	/**
+	 * an empty index, filled by {@link #add(int, long)}
+	 *
+	 * @param csv
+	 * @param interval
+	 * @throws IOException
+	 */
+	CsvIndex(File csv, int interval) throws IOException {
+		this(csv.getCanonicalFile(), csv.length(), csv.lastModified(), interval, new long[16]);
+	}
+
+	private CsvIndex(File csv, long size, long lastModified, int interval, long[] offsets) {
+
+		if (interval <= 0) {
+			throw new IllegalArgumentException("interval should be positive: " + interval);
+		}
+
+		this.csv = csv;
+		this.size = size;
+		this.lastModified = lastModified;
+		this.interval = interval;
+		this.offsets = offsets;
+
+	}
+
+	/**
+	 * index a csv, default charset "gbk", default delimiter ',', one offset per {@link #DEFAULT_INTERVAL} records
+	 *
+	 * @param csv
+	 * @return
+	 * @throws IOException
+	 * @throws CsvException
+	 */
+	public static CsvIndex build(File csv) throws IOException, CsvException {
+		return build(csv, CsvRW.DEFAULT_DELIMITER, CsvRW.DEFAULT_CHARSET, DEFAULT_INTERVAL);
+	}
+
+	/**
+	 * index a csv by scanning it, the records are split but not decoded
+	 *
+	 * @param csv
+	 * @param delimiter
+	 * @param charset
+	 * @param interval
+	 *            one offset is kept per this many records
+	 * @return
+	 * @throws IOException
+	 * @throws CsvException
+	 *             if the csv can not be indexed
+	 */
+	public static CsvIndex build(File csv, char delimiter, Charset charset, int interval) throws IOException,
+			CsvException {
+
+		checkIndexable(csv, delimiter, charset);
+
+		CsvIndex index = new CsvIndex(csv, interval);
+
+		FileChannel channel = new RandomAccessFile(csv, "r").getChannel();
+		ByteTokenizer tokenizer = new MappedTokenizer(channel, delimiter, charset);
+
+		try {
+
+			tokenizer.setColumnLimit(0);
+
+			/*
+			 * the headers
+			 */
+			if (tokenizer.readRecord()) {
+
+				int line = 1;
+				while (tokenizer.readRecord()) {
+					index.add(++line, tokenizer.getRecordOffset());
+				}
+
+				index.finish(line);
+
+			}
+
+		} finally {
+			tokenizer.close();
+		}
+
+		return index;
+	}
+
+	/**
+	 * load the index of a csv
+	 *
+	 * @param csv
+	 * @return null if there's no index, or it is stale or broken
+	 * @throws IOException
+	 */
+	public static CsvIndex load(File csv) throws IOException {
+
+		File file = getIndexFile(csv);
+		if (!file.isFile()) {
+			return null;
+		}
+
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+		try {
+
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+				return null;
+			}
+
+			long size = in.readLong();
+			long lastModified = in.readLong();
+			int interval = in.readInt();
+			int lastLine = in.readInt();
+			int count = in.readInt();
+
+			/*
+			 * a corrupt count must not be allocated, and there's one entry per interval records up to the last line
+			 */
+			if (interval <= 0 || count < 0 || file.length() != HEADER_SIZE + 8L * count
+					|| count != getCount(lastLine, interval)) {
+				return null;
+			}
+
+			long[] offsets = new long[count];
+			for (int i = 0; i < count; i++) {
+				offsets[i] = in.readLong();
+			}
+
+			CsvIndex index = new CsvIndex(csv.getCanonicalFile(), size, lastModified, interval, offsets);
+			index.count = count;
+			index.lastLine = lastLine;
+
+			return index.isValid() ? index : null;
+
+		} catch (IOException e) {
+			return null;
+		} finally {
+			in.close();
+		}
+
+	}
+
+	/**
+	 * number of entries of an index whose last record is at a line
+	 *
+	 * @param lastLine
+	 * @param interval
+	 * @return -1 if there can be no such index
+	 */
+	private static int getCount(int lastLine, int interval) {
+
+		if (lastLine < FIRST_LINE) {
+			return lastLine == FIRST_LINE - 1 ? 0 : -1;
+		}
+
+		return (lastLine - FIRST_LINE) / interval + 1;
+	}
+
+	/**
+	 * load the index of a csv, or build and save it if it's missing or stale, default charset "gbk", default
+	 * delimiter ','
+	 *
+	 * @param csv
+	 * @return
+	 * @throws IOException
+	 * @throws CsvException
+	 */
+	public static CsvIndex open(File csv) throws IOException, CsvException {
+
+		CsvIndex index = load(csv);
+		if (index == null) {
+			index = build(csv);
+			index.save();
+		}
+
+		return index;
+	}
+
+	/**
+	 * the ".idx" file next to a csv
+	 *
+	 * @param csv
+	 * @return
+	 */
+	public static File getIndexFile(File csv) {
+		return new File(csv.getPath() + SUFFIX);
+	}
+
+	static void checkIndexable(File csv, char delimiter, Charset charset) throws IOException, CsvException {
+
+		if (!ByteTokenizer.supports(charset, delimiter)) {
+			throw new CsvException(csv + ": charset " + charset + " can not be indexed");
+		}
+
+		if (Compression.of(csv) != Compression.NONE) {
+			throw new CsvException(csv + ": a compressed csv can not be indexed");
+		}
+
+	}
+
+	/**
+	 * write the index next to its csv
+	 *
+	 * @throws IOException
+	 */
+	public void save() throws IOException {
+
+		File file = getIndexFile(csv);
+		File temp = new File(file.getPath() + ".tmp");
+
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+		try {
+
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeLong(size);
+			out.writeLong(lastModified);
+			out.writeInt(interval);
+			out.writeInt(lastLine);
+			out.writeInt(count);
+
+			for (int i = 0; i < count; i++) {
+				out.writeLong(offsets[i]);
+			}
+
+		} finally {
+			out.close();
+		}
+
+		replace(temp, file);
+
+	}
+
+	/**
+	 * move a fully written temp file over the file it replaces
+	 *
+	 * @param temp
+	 * @param file
+	 * @throws IOException
+	 */
+	static void replace(File temp, File file) throws IOException {
+
+		if (!temp.renameTo(file)) {
+
+			file.delete();
+			if (!temp.renameTo(file)) {
+				temp.delete();
+				throw new IOException("can not write " + file);
+			}
+
+		}
+
+	}
+
+	/**
+	 * whether the csv is still the one which was indexed
+	 *
+	 * @return
+	 */
+	public boolean isValid() {
+		return csv.length() == size && csv.lastModified() == lastModified;
+	}
+
+	/**
+	 * whether this is a valid index of a csv
+	 *
+	 * @param file
+	 * @return
+	 * @throws IOException
+	 */
+	boolean isValidFor(File file) throws IOException {
+		return csv.equals(file.getCanonicalFile()) && isValid();
+	}
+
+	/**
+	 * line of the last record, 1 if the csv has no record
+	 *
+	 * @return
+	 */
+	public int getLastLine() {
+		return lastLine;
+	}
+
+	public int getInterval() {
+		return interval;
+	}
+
+	/**
+	 * number of offsets
+	 *
+	 * @return
+	 */
+	int size() {
+		return count;
+	}
+
+	/**
+	 * the entry to start from to reach a line
+	 *
+	 * @param line
+	 * @return the last entry at or before the line, -1 if there's none
+	 */
+	int getEntry(int line) {
+
+		if (line < FIRST_LINE || count == 0) {
+			return -1;
+		}
+
+		return Math.min((line - FIRST_LINE) / interval, count - 1);
+	}
+
+	long getOffset(int entry) {
+		return offsets[entry];
+	}
+
+	int getLine(int entry) {
+		return FIRST_LINE + entry * interval;
+	}
+
+	/**
+	 * add a record, which is kept if it's one of every interval records
+	 *
+	 * @param line
+	 * @param offset
+	 */
+	void add(int line, long offset) {
+
+		if ((line - FIRST_LINE) % interval != 0 || line != getLine(count)) {
+			return;
+		}
+
+		if (count == offsets.length) {
+			offsets = Arrays.copyOf(offsets, count * 2);
+		}
+
+		offsets[count++] = offset;
+
+	}
+
+	/**
+	 * end the index once every record was added
+	 *
+	 * @param lastLine
+	 */
+	void finish(int lastLine) {
+		this.lastLine = lastLine;
+		this.offsets = Arrays.copyOf(offsets, count);
+	}
+
+}
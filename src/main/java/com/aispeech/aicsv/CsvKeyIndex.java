@@ -0,0 +1,862 @@
+package com.aispeech.aicsv;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import com.aispeech.aicsv.ValidationReport.ErrorCode;
+
+/**
+ * point lookups of the records of a csv by a {@link Column#unique()} column, e.g. the pinyin of a hanzi, without
+ * reading the csv into a map<br/>
+ * the index is saved next to the csv as a ".&lt;column&gt;.key" file of (hash of the key, input offset, line) entries
+ * sorted by hash, which is memory-mapped, so a lookup is a binary search over the mapped entries followed by reading
+ * and decoding the only record at the found offset; nothing but the bean is kept on the heap<br/>
+ * the index is built by scanning the csv once, in sorted batches spilled to temp files and merged like
+ * {@link UniqueStrategy#SPILL}, which also fails on a duplicate key; it remembers the size and the modification time
+ * of the csv and is rebuilt by {@link #open(File, Class, String)} once the csv changes<br/>
+ * only uncompressed files in a charset which can be split at byte level can be indexed, see {@link CsvIndex}<br/>
+ * lookups are thread safe, they share one channel of the csv: when a lookup is interrupted the channel is closed under
+ * every lookup, it is then reopened and the others retry, the interrupted one fails
+ *
+ * @param <T>
+ */
+public final class CsvKeyIndex<T extends CsvBean> implements Closeable {
+
+	public static final String SUFFIX = ".key";
+
+	static final int DEFAULT_BATCH_SIZE = 1 << 20;
+
+	private static final int MAGIC = 0x41494b58;
+	private static final int VERSION = 1;
+
+	/**
+	 * hash, offset and line
+	 */
+	private static final int ENTRY_SIZE = 20;
+
+	/**
+	 * entries per mapped segment, so that no segment is larger than 2G
+	 */
+	private static final int SEGMENT_BITS = 26;
+	private static final int SEGMENT_MASK = (1 << SEGMENT_BITS) - 1;
+
+	/**
+	 * initial buffer of the tokenizer reading a record, it grows for a longer one
+	 */
+	private static final int RECORD_BUFFER_SIZE = 4 * 1024;
+
+	private final File csv;
+	private final String path;
+	private final char delimiter;
+	private final Charset charset;
+	private final Class<T> recordClass;
+	private final ColumnBinding<T> binding;
+	private final int[] headerIndexes;
+	private final long size;
+	private final long lastModified;
+	private final int count;
+
+	private volatile FileChannel channel;
+	private final ByteBuffer[] segments;
+
+	private CsvKeyIndex(File csv, char delimiter, Charset charset, Class<T> t, ColumnBinding<T> binding,
+			int[] headerIndexes, Header header, ByteBuffer[] segments) throws IOException {
+
+		this.csv = csv;
+		this.path = csv.getCanonicalPath();
+		this.delimiter = delimiter;
+		this.charset = charset;
+		this.recordClass = t;
+		this.binding = binding;
+		this.headerIndexes = headerIndexes;
+		this.size = header.size;
+		this.lastModified = header.lastModified;
+		this.count = header.count;
+		this.segments = segments;
+		this.channel = new RandomAccessFile(csv, "r").getChannel();
+
+	}
+
+	/**
+	 * open the index of a column, it's built and saved first if it's missing or stale, default charset "gbk",
+	 * default delimiter ','
+	 *
+	 * @param <T>
+	 * @param csv
+	 * @param t
+	 * @param column
+	 *            name of a {@link Column#unique()} column
+	 * @return
+	 * @throws IOException
+	 * @throws CsvException
+	 */
+	public static <T extends CsvBean> CsvKeyIndex<T> open(File csv, Class<T> t, String column) throws IOException,
+			CsvException {
+		return open(csv, CsvRW.DEFAULT_DELIMITER, CsvRW.DEFAULT_CHARSET, t, column);
+	}
+
+	/**
+	 * open the index of a column, it's built and saved first if it's missing or stale
+	 *
+	 * @param <T>
+	 * @param csv
+	 * @param delimiter
+	 * @param charset
+	 * @param t
+	 * @param column
+	 *            name of a {@link Column#unique()} column
+	 * @return
+	 * @throws IOException
+	 * @throws CsvException
+	 *             if the csv can not be indexed, the column is not a unique one of the bean, or a key is duplicate
+	 */
+	public static <T extends CsvBean> CsvKeyIndex<T> open(File csv, char delimiter, Charset charset, Class<T> t,
+			String column) throws IOException, CsvException {
+		return open(csv, delimiter, charset, t, column, DEFAULT_BATCH_SIZE);
+	}
+
+	static <T extends CsvBean> CsvKeyIndex<T> open(File csv, char delimiter, Charset charset, Class<T> t,
+			String column, int batchSize) throws IOException, CsvException {
+
+		CsvIndex.checkIndexable(csv, delimiter, charset);
+
+		File file = getIndexFile(csv, column);
+
+		CsvReader<T> reader = CsvReader.openMapped(csv, delimiter, charset, t);
+		ColumnBinding<T> binding;
+		int[] headerIndexes;
+		try {
+			binding = getBinding(reader, column);
+			headerIndexes = reader.getHeaderIndexes();
+		} finally {
+			reader.close();
+		}
+
+		Header header = Header.load(file, csv, column);
+		if (header == null) {
+			build(csv, delimiter, charset, t, binding, batchSize);
+			header = Header.load(file, csv, column);
+		}
+
+		if (header == null) {
+			throw new IOException("can not read " + file);
+		}
+
+		return new CsvKeyIndex<T>(csv, delimiter, charset, t, binding, headerIndexes, header, header.map(file));
+	}
+
+	/**
+	 * the ".&lt;column&gt;.key" file next to a csv, the characters of the column name which may not be in a file
+	 * name are replaced by '_'
+	 *
+	 * @param csv
+	 * @param column
+	 * @return
+	 */
+	public static File getIndexFile(File csv, String column) {
+
+		StringBuilder name = new StringBuilder(csv.getPath()).append('.');
+		for (int i = 0; i < column.length(); i++) {
+
+			char c = column.charAt(i);
+			name.append(c == '/' || c == '\\' || c == ':' || c == '*' || c == '?' || c == '"' || c == '<' || c == '>'
+					|| c == '|' || Character.isISOControl(c) ? '_' : c);
+
+		}
+
+		return new File(name.append(SUFFIX).toString());
+	}
+
+	private static <T extends CsvBean> ColumnBinding<T> getBinding(CsvReader<T> reader, String column)
+			throws CsvException {
+
+		for (ColumnBinding<T> binding : reader.schema.getBindings()) {
+
+			if (!binding.getName().equals(column)) {
+				continue;
+			}
+
+			if (!binding.isUnique()) {
+				throw new CsvException(reader.path + ": column[" + column + "] is not unique");
+			}
+
+			return binding;
+		}
+
+		throw new CsvException(reader.path + ": column[" + column + "] is not mapped by class["
+				+ reader.recordClass.getName() + "]");
+	}
+
+	/**
+	 * scan the csv and save the index of a column
+	 *
+	 * @param csv
+	 * @param delimiter
+	 * @param charset
+	 * @param t
+	 * @param binding
+	 * @param batchSize
+	 * @throws IOException
+	 * @throws CsvException
+	 */
+	private static <T extends CsvBean> void build(File csv, char delimiter, Charset charset, Class<T> t,
+			ColumnBinding<T> binding, int batchSize) throws IOException, CsvException {
+
+		long size = csv.length();
+		long lastModified = csv.lastModified();
+
+		Builder builder = new Builder(batchSize);
+		try {
+
+			CsvReader<T> reader = CsvReader.openMapped(csv, delimiter, charset, t);
+			reader.uniqueChecked = false;
+			reader.select(binding.getName());
+			reader.readKeys(binding, builder);
+
+			builder.save(getIndexFile(csv, binding.getName()), new Header(size, lastModified, binding.getName(),
+					builder.total), reader.path);
+
+		} finally {
+			builder.close();
+		}
+
+	}
+
+	/**
+	 * find the record of a key
+	 *
+	 * @param key
+	 *            the value of the key column as it is read into a bean, i.e. trimmed if the column is
+	 * @return null if no record has this key
+	 * @throws IOException
+	 * @throws CsvException
+	 *             if the record can not be read, or the csv changed since the index was opened
+	 */
+	public T lookup(String key) throws IOException, CsvException {
+
+		FileChannel channel = this.channel;
+		if (channel == null) {
+			throw new CsvException(path + ": this index was already closed");
+		}
+
+		while (true) {
+
+			try {
+				return lookup(channel, key);
+			} catch (ClosedByInterruptException e) {
+				reopen(channel);
+				throw e;
+			} catch (ClosedChannelException e) {
+				channel = reopen(channel);
+			}
+
+		}
+
+	}
+
+	/**
+	 * replace the shared channel after an interrupted lookup closed it
+	 *
+	 * @param closed
+	 *            the channel which was found closed
+	 * @return the channel to retry with
+	 * @throws IOException
+	 * @throws CsvException
+	 *             if this index was closed
+	 */
+	private synchronized FileChannel reopen(FileChannel closed) throws IOException, CsvException {
+
+		FileChannel channel = this.channel;
+		if (channel == null) {
+			throw new CsvException(path + ": this index was already closed");
+		}
+
+		if (channel == closed) {
+			channel = new RandomAccessFile(csv, "r").getChannel();
+			this.channel = channel;
+		}
+
+		return channel;
+	}
+
+	private T lookup(FileChannel channel, String key) throws IOException, CsvException {
+
+		if (!isValid()) {
+			throw new CsvException(path + ": the csv changed since its index was opened");
+		}
+
+		long hash = hash(key);
+
+		/*
+		 * the first entry of the hash
+		 */
+		int low = 0;
+		int high = count;
+		while (low < high) {
+
+			int middle = (low + high) >>> 1;
+			if (getHash(middle) < hash) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+
+		}
+
+		/*
+		 * a different key of the same hash is as unlikely as it is handled
+		 */
+		for (int entry = low; entry < count && getHash(entry) == hash; entry++) {
+
+			T record = read(channel, entry, key);
+			if (record != null) {
+				return record;
+			}
+
+		}
+
+		return null;
+	}
+
+	/**
+	 * read the record of an entry
+	 *
+	 * @param channel
+	 * @param entry
+	 * @param key
+	 * @return null if the record has another key
+	 * @throws IOException
+	 * @throws CsvException
+	 */
+	private T read(FileChannel channel, int entry, String key) throws IOException, CsvException {
+
+		ByteBuffer segment = segments[entry >>> SEGMENT_BITS];
+		int p = (entry & SEGMENT_MASK) * ENTRY_SIZE;
+
+		long offset = segment.getLong(p + 8);
+		int line = segment.getInt(p + 16);
+
+		ByteTokenizer tokenizer = new InputStreamTokenizer(new ChannelInputStream(channel, offset), delimiter, charset,
+				RECORD_BUFFER_SIZE);
+
+		CsvReader<T> reader = new CsvReader<T>(tokenizer, path, recordClass, headerIndexes, line - 1, Long.MAX_VALUE,
+				false);
+		reader.uniqueChecked = false;
+
+		try {
+			return reader.readRecordIf(binding, key);
+		} finally {
+			reader.close();
+		}
+
+	}
+
+	private long getHash(int entry) {
+		return segments[entry >>> SEGMENT_BITS].getLong((entry & SEGMENT_MASK) * ENTRY_SIZE);
+	}
+
+	/**
+	 * FNV-1a over the utf-16 code units, finished by the MurmurHash3 mix
+	 *
+	 * @param key
+	 * @return
+	 */
+	static long hash(String key) {
+
+		long h = 0xcbf29ce484222325L;
+		for (int i = 0, length = key.length(); i < length; i++) {
+			h ^= key.charAt(i);
+			h *= 0x100000001b3L;
+		}
+
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+
+		return h;
+	}
+
+	/**
+	 * whether the csv is still the one which was indexed
+	 *
+	 * @return
+	 */
+	public boolean isValid() {
+		return csv.length() == size && csv.lastModified() == lastModified;
+	}
+
+	/**
+	 * number of keys
+	 *
+	 * @return
+	 */
+	public int size() {
+		return count;
+	}
+
+	public String getColumnName() {
+		return binding.getName();
+	}
+
+	@Override
+	public synchronized void close() {
+
+		FileChannel channel = this.channel;
+		this.channel = null;
+
+		if (channel != null) {
+			try {
+				channel.close();
+			} catch (IOException e) {
+				// ignore
+			}
+		}
+
+	}
+
+	/**
+	 * the fixed part of an index file before its entries
+	 */
+	private static final class Header {
+
+		final long size;
+		final long lastModified;
+		final String column;
+		final int count;
+
+		long entriesOffset;
+
+		Header(long size, long lastModified, String column, int count) {
+			this.size = size;
+			this.lastModified = lastModified;
+			this.column = column;
+			this.count = count;
+		}
+
+		/**
+		 * read the header of an index file
+		 *
+		 * @param file
+		 * @param csv
+		 * @param column
+		 * @return null if there's no index, or it is stale or broken
+		 * @throws IOException
+		 */
+		static Header load(File file, File csv, String column) throws IOException {
+
+			if (!file.isFile()) {
+				return null;
+			}
+
+			RandomAccessFile in = new RandomAccessFile(file, "r");
+			try {
+
+				if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+					return null;
+				}
+
+				Header header = new Header(in.readLong(), in.readLong(), in.readUTF(), in.readInt());
+				header.entriesOffset = in.getFilePointer();
+
+				if (header.count < 0 || in.length() != header.entriesOffset + (long) header.count * ENTRY_SIZE
+						|| !header.column.equals(column) || header.size != csv.length()
+						|| header.lastModified != csv.lastModified()) {
+					return null;
+				}
+
+				return header;
+
+			} catch (IOException e) {
+				return null;
+			} finally {
+				in.close();
+			}
+
+		}
+
+		void write(DataOutputStream out) throws IOException {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeLong(size);
+			out.writeLong(lastModified);
+			out.writeUTF(column);
+			out.writeInt(count);
+		}
+
+		/**
+		 * map the entries of an index file, the mapping outlives the channel
+		 *
+		 * @param file
+		 * @return
+		 * @throws IOException
+		 */
+		ByteBuffer[] map(File file) throws IOException {
+
+			int segmentCount = (int) (((long) count + SEGMENT_MASK) >>> SEGMENT_BITS);
+			ByteBuffer[] segments = new ByteBuffer[segmentCount];
+
+			FileChannel channel = new RandomAccessFile(file, "r").getChannel();
+			try {
+
+				for (int i = 0; i < segmentCount; i++) {
+
+					long first = (long) i << SEGMENT_BITS;
+					long entries = Math.min(count - first, 1L << SEGMENT_BITS);
+
+					segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, entriesOffset + first * ENTRY_SIZE,
+							entries * ENTRY_SIZE);
+
+				}
+
+			} finally {
+				channel.close();
+			}
+
+			return segments;
+		}
+
+	}
+
+	/**
+	 * a key of a record while building an index
+	 */
+	private static final class Entry {
+
+		final long hash;
+		final String key;
+		final long offset;
+		final int line;
+
+		Entry(long hash, String key, long offset, int line) {
+			this.hash = hash;
+			this.key = key;
+			this.offset = offset;
+			this.line = line;
+		}
+
+	}
+
+	private static final Comparator<Entry> BY_HASH = new Comparator<Entry>() {
+
+		@Override
+		public int compare(Entry o1, Entry o2) {
+			return Long.compare(o1.hash, o2.hash);
+		}
+	};
+
+	/**
+	 * sequential reader of a run, ordered by its current entry then by run number
+	 */
+	private static final class Run implements Comparable<Run> {
+
+		final int number;
+		final DataInputStream in;
+		Entry current;
+
+		Run(int number, File file) throws IOException {
+			this.number = number;
+			this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+		}
+
+		boolean next() throws IOException {
+
+			long hash;
+			try {
+				hash = in.readLong();
+			} catch (EOFException e) {
+				in.close();
+				return false;
+			}
+
+			long offset = in.readLong();
+			int line = in.readInt();
+
+			char[] chars = new char[in.readInt()];
+			for (int i = 0; i < chars.length; i++) {
+				chars[i] = in.readChar();
+			}
+
+			current = new Entry(hash, new String(chars), offset, line);
+
+			return true;
+		}
+
+		@Override
+		public int compareTo(Run o) {
+
+			int c = BY_HASH.compare(current, o.current);
+
+			return c != 0 ? c : number - o.number;
+		}
+
+	}
+
+	/**
+	 * collects the keys of a csv in line order, in batches which are sorted by hash and spilled as runs once full<br/>
+	 * the sort is stable and the runs are merged in order, so among the keys of a hash the first one is the first
+	 * read, which is the first occurrence of a duplicate
+	 */
+	static final class Builder implements Closeable {
+
+		private final int batchSize;
+
+		private Entry[] batch;
+		private int size = 0;
+		private int total = 0;
+		private final List<File> runs = new ArrayList<File>();
+
+		Builder(int batchSize) {
+			this.batchSize = batchSize;
+			this.batch = new Entry[Math.min(batchSize, 1024)];
+		}
+
+		void add(String key, long offset, int line) throws IOException {
+
+			if (size == batch.length) {
+
+				if (size == batchSize) {
+					spill();
+				} else {
+					batch = Arrays.copyOf(batch, Math.min(batchSize, size * 2));
+				}
+
+			}
+
+			batch[size++] = new Entry(hash(key), key, offset, line);
+			total++;
+
+		}
+
+		private void spill() throws IOException {
+
+			Arrays.sort(batch, 0, size, BY_HASH);
+
+			File file = File.createTempFile("aicsv-key", ".run");
+			runs.add(file);
+
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+			try {
+
+				for (int i = 0; i < size; i++) {
+					out.writeLong(batch[i].hash);
+					out.writeLong(batch[i].offset);
+					out.writeInt(batch[i].line);
+					out.writeInt(batch[i].key.length());
+					out.writeChars(batch[i].key);
+					batch[i] = null;
+				}
+
+			} finally {
+				out.close();
+			}
+
+			size = 0;
+
+		}
+
+		/**
+		 * write the sorted entries after a header
+		 *
+		 * @param file
+		 * @param header
+		 * @param path
+		 *            of the csv, for the duplicate error
+		 * @throws IOException
+		 * @throws CsvException
+		 *             if a key is duplicate
+		 */
+		void save(File file, Header header, String path) throws IOException, CsvException {
+
+			File temp = new File(file.getPath() + ".tmp");
+
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+			boolean saved = false;
+			try {
+
+				header.write(out);
+
+				Writer writer = new Writer(out, header.column, path);
+
+				if (runs.isEmpty()) {
+
+					Arrays.sort(batch, 0, size, BY_HASH);
+					for (int i = 0; i < size; i++) {
+						writer.write(batch[i]);
+					}
+
+				} else {
+
+					if (size > 0) {
+						spill();
+					}
+
+					merge(writer);
+
+				}
+
+				saved = true;
+
+			} finally {
+
+				out.close();
+
+				if (!saved) {
+					temp.delete();
+				}
+
+			}
+
+			CsvIndex.replace(temp, file);
+
+		}
+
+		private void merge(Writer writer) throws IOException, CsvException {
+
+			PriorityQueue<Run> queue = new PriorityQueue<Run>();
+			List<Run> opened = new ArrayList<Run>();
+
+			try {
+
+				for (int i = 0; i < runs.size(); i++) {
+
+					Run run = new Run(i, runs.get(i));
+					opened.add(run);
+
+					if (run.next()) {
+						queue.add(run);
+					}
+
+				}
+
+				while (!queue.isEmpty()) {
+
+					Run run = queue.poll();
+					writer.write(run.current);
+
+					if (run.next()) {
+						queue.add(run);
+					}
+
+				}
+
+			} finally {
+				for (Run run : opened) {
+					run.in.close();
+				}
+			}
+
+		}
+
+		@Override
+		public void close() {
+
+			for (File run : runs) {
+				run.delete();
+			}
+
+			runs.clear();
+			batch = null;
+			size = 0;
+
+		}
+
+	}
+
+	/**
+	 * writes the sorted entries, checking the keys of each hash against each other
+	 */
+	private static final class Writer {
+
+		private final DataOutputStream out;
+		private final String column;
+		private final String path;
+
+		private final List<Entry> group = new ArrayList<Entry>();
+
+		Writer(DataOutputStream out, String column, String path) {
+			this.out = out;
+			this.column = column;
+			this.path = path;
+		}
+
+		void write(Entry entry) throws IOException, CsvException {
+
+			if (!group.isEmpty() && group.get(0).hash != entry.hash) {
+				group.clear();
+			}
+
+			for (Entry first : group) {
+				if (first.key.equals(entry.key)) {
+					throw new CsvException(ErrorCode.DUPLICATE.format(path, entry.line, column, entry.key, String
+							.valueOf(first.line)));
+				}
+			}
+
+			group.add(entry);
+
+			out.writeLong(entry.hash);
+			out.writeLong(entry.offset);
+			out.writeInt(entry.line);
+
+		}
+
+	}
+
+	/**
+	 * reads a file channel from an offset with positional reads, so that several lookups share the channel, closing
+	 * it leaves the channel open
+	 */
+	private static final class ChannelInputStream extends InputStream {
+
+		private final FileChannel channel;
+		private long position;
+
+		ChannelInputStream(FileChannel channel, long position) {
+			this.channel = channel;
+			this.position = position;
+		}
+
+		@Override
+		public int read() throws IOException {
+
+			byte[] b = new byte[1];
+
+			return read(b, 0, 1) < 0 ? -1 : b[0] & 0xff;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+
+			int read = channel.read(ByteBuffer.wrap(b, off, len), position);
+			if (read > 0) {
+				position += read;
+			}
+
+			return read;
+		}
+
+	}
+
+}
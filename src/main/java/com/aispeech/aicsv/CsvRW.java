@@ -1,20 +1,24 @@
 package com.aispeech.aicsv;
 
 import java.io.Closeable;
-import java.lang.reflect.Field;
+import java.io.IOException;
 import java.nio.charset.Charset;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
-import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.aispeech.aicsv.ValidationReport.ErrorCode;
 
 abstract class CsvRW<T extends CsvBean> implements Closeable {
 
-	private static String FULL_WIDTH_WHITESPACE = "　";
+	private static final char FULL_WIDTH_WHITESPACE = '\u3000';
 	protected static char DEFAULT_DELIMITER = ',';
 	protected static Charset DEFAULT_CHARSET = Charset.forName("gbk");
 
 	protected Class<T> recordClass;
+	protected ColumnSchema<T> schema;
 
 	protected int line = 1;
 	protected String path;
@@ -23,71 +27,123 @@ abstract class CsvRW<T extends CsvBean> implements Closeable {
 		return line;
 	}
 
-	protected Map<String, Set<String>> uniqueValueMap = new HashMap<String, Set<String>>();
+	protected Map<String, UniqueIndex> uniqueValueMap = new HashMap<String, UniqueIndex>();
+
+	protected UniqueStrategy uniqueStrategy = UniqueStrategy.EXACT;
+
+	/**
+	 * false when the caller checks unique columns itself, e.g. across the chunks of a parallel read
+	 */
+	protected boolean uniqueChecked = true;
+
+	/**
+	 * values of the unique columns of the current record, indexed by binding ordinal, they are only added to the
+	 * unique indexes by {@link #commitUnique()} once every column of the record was checked
+	 */
+	private String[] pendingUnique;
+
+	/**
+	 * one reusable matcher per column with a matches constraint, indexed by binding ordinal
+	 */
+	private Matcher[] matchers;
 
 	protected CsvRW(Class<T> t) throws CsvException {
 
 		this.recordClass = t;
-		verifyRecordClass(t);
+		this.schema = ColumnSchema.of(t);
 
 	}
 
-	static Column getColumn(Field field) {
-		return field.getAnnotation(Column.class);
+	/**
+	 * choose how the values of unique columns are remembered, default {@link UniqueStrategy#EXACT}<br/>
+	 * it must be called before the first record, with {@link UniqueStrategy#SPILL} a writer should call
+	 * {@link #verifyPendingUnique()} once all records are written
+	 * 
+	 * @param uniqueStrategy
+	 */
+	public void setUniqueStrategy(UniqueStrategy uniqueStrategy) {
+
+		if (!uniqueValueMap.isEmpty()) {
+			throw new IllegalStateException("unique values were already collected");
+		}
+
+		this.uniqueStrategy = uniqueStrategy;
 	}
 
-	static String getColumnName(Field field) {
+	/**
+	 * report the duplicates which were not found record by record, see {@link UniqueStrategy#SPILL}<br/>
+	 * a reader calls it when it reaches the end of the csv
+	 * 
+	 * @throws CsvException
+	 */
+	public void verifyPendingUnique() throws CsvException {
 
-		Column column = getColumn(field);
-		if (column == null) {
-			return null;
-		}
+		ValidationReport report = new ValidationReport(Integer.MAX_VALUE, 0);
+		report.open(path, schema);
+
+		verifyPendingUnique(report);
 
-		String name = column.name();
-		if (name.equals("")) {
-			name = field.getName();
+		if (report.hasErrors()) {
+			throw report.toException();
 		}
 
-		return name;
 	}
 
-	private void verifyRecordClass(Class<T> t) throws CsvException {
-
-		Set<String> columnNames = new HashSet<String>();
-		Set<String> duplicateColumnNames = new HashSet<String>();
-
-		Field[] fields = t.getDeclaredFields();
-		for (Field field : fields) {
+	/**
+	 * put the duplicates which were not found record by record into a report, see {@link #verifyPendingUnique()}
+	 * 
+	 * @param report
+	 * @throws CsvException
+	 */
+	protected void verifyPendingUnique(ValidationReport report) throws CsvException {
 
-			Column column = getColumn(field);
-			if (column != null) {
+		try {
 
-				String columnName = getColumnName(field);
-				if (!columnNames.add(columnName)) {
-					duplicateColumnNames.add(columnName);
+			for (Map.Entry<String, UniqueIndex> entry : uniqueValueMap.entrySet()) {
+				for (UniqueIndex.Duplicate duplicate : entry.getValue().finish()) {
+					report.add(duplicate.line, entry.getKey(), ErrorCode.DUPLICATE, duplicate.value,
+							getFirstLineDetail(duplicate.firstLine));
 				}
-
 			}
 
+		} catch (IOException e) {
+			throw new CsvException(e);
+		} finally {
+			closeUnique();
 		}
 
-		if (columnNames.size() == 0) {
-			throw new CsvException("There's no @Column in class[" + t.getName() + "]");
-		}
+	}
 
-		if (duplicateColumnNames.size() != 0) {
-			throw new CsvException("Duplicate column name " + duplicateColumnNames + " in class[" + t.getName() + "]");
+	/**
+	 * release the unique values, e.g. the temp files of {@link UniqueStrategy#SPILL}
+	 */
+	protected void closeUnique() {
+
+		for (UniqueIndex index : uniqueValueMap.values()) {
+			index.close();
 		}
 
+		uniqueValueMap.clear();
 	}
 
 	/**
-	 * normalize value
+	 * whitespace as matched by regex "[　\\s]"
+	 * 
+	 * @param c
+	 * @return
+	 */
+	static boolean isWhitespace(char c) {
+		return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r'
+				|| c == FULL_WIDTH_WHITESPACE;
+	}
+
+	/**
+	 * normalize value, the value itself is returned when nothing needs to be trimmed
 	 * 
 	 * @param value
 	 * @return
 	 */
-	protected String normalizeValue(Object value, Field field) {
+	protected String normalizeValue(Object value, ColumnBinding<T> binding) {
 
 		String strValue = "";
 
@@ -96,149 +152,351 @@ abstract class CsvRW<T extends CsvBean> implements Closeable {
 			strValue = String.valueOf(value);
 		}
 
-		Column column = getColumn(field);
-		if (column.trim()) {
+		int begin = 0;
+		int end = strValue.length();
 
-			strValue = strValue.replaceAll("^[" + FULL_WIDTH_WHITESPACE + "\\s]+", "");
-			strValue = strValue.replaceAll("[" + FULL_WIDTH_WHITESPACE + "\\s]+$", "");
+		if (binding.isTrim()) {
+
+			while (begin < end && isWhitespace(strValue.charAt(begin))) {
+				begin++;
+			}
+
+			while (end > begin && isWhitespace(strValue.charAt(end - 1))) {
+				end--;
+			}
 
 		}
 
 		/*
 		 * trim disgusting '\t' '\r', this is a bug-fix, the bug was found by xiaomin.zhang
 		 */
-		strValue = strValue.replaceAll("[ \t\r]$", "");
+		if (end > begin) {
+			char last = strValue.charAt(end - 1);
+			if (last == ' ' || last == '\t' || last == '\r') {
+				end--;
+			}
+		}
+
+		if (begin == 0 && end == strValue.length()) {
+			return strValue;
+		}
 
-		return strValue;
+		return strValue.substring(begin, end);
 
 	}
 
 	/**
-	 * verify value
+	 * verify value, the value of a unique column is held until {@link #commitUnique()}
 	 * 
 	 * @param value
 	 * @param name
 	 * @param column
 	 * @throws CsvException
 	 */
-	protected void checkValue(String value, Field field) throws CsvException {
+	protected void checkValue(String value, ColumnBinding<T> binding) throws CsvException {
 
-		verifyNullable(value, field);
-		verifyMatches(value, field);
-		verifyUnique(value, field);
+		verifyNullable(value, binding);
+		verifyMatches(value, binding);
+		holdUnique(value, binding);
 
 	}
 
 	/**
-	 * 
-	 * verify whether this value is unique(except blank value)
+	 * check value like {@link #checkValue(String, ColumnBinding)}, but put the violation into a report instead of
+	 * throwing
 	 * 
 	 * @param value
-	 * @param field
+	 * @param binding
+	 * @param report
+	 * @return whether the value is valid
 	 * @throws CsvException
 	 */
-	protected void verifyUnique(String value, Field field) throws CsvException {
+	protected boolean checkValue(String value, ColumnBinding<T> binding, ValidationReport report)
+			throws CsvException {
 
-		Column column = getColumn(field);
+		if (!isNullableValid(value, binding)) {
+			report.add(line, binding.getName(), ErrorCode.BLANK, value, null);
+			return false;
+		}
 
-		if (column.unique()) {
+		if (!isMatchesValid(value, binding)) {
+			report.add(line, binding.getName(), ErrorCode.MISMATCH, value, binding.getPattern().pattern());
+			return false;
+		}
 
-			String columnName = getColumnName(field);
-			Set<String> valueSet = uniqueValueMap.get(columnName);
-			if (valueSet == null) {
-				valueSet = new HashSet<String>();
-				uniqueValueMap.put(columnName, valueSet);
-			}
+		holdUnique(value, binding);
+
+		return true;
+
+	}
+
+	protected void holdUnique(String value, ColumnBinding<T> binding) {
+
+		if (!uniqueChecked || !binding.isUnique()) {
+			return;
+		}
+
+		if (pendingUnique == null) {
+			pendingUnique = new String[schema.size()];
+		}
+
+		/*
+		 * blank value is special
+		 */
+		pendingUnique[binding.getOrdinal()] = isBlank(value) ? null : value;
+
+	}
+
+	/**
+	 * add the unique values held for the current record, once all its columns are valid; if one of them is a
+	 * duplicate, the others are removed again, so a rejected record leaves no value behind
+	 * 
+	 * @throws CsvException
+	 *             for the first duplicate
+	 */
+	protected void commitUnique() throws CsvException {
+		addPendingUnique(null);
+	}
+
+	/**
+	 * like {@link #commitUnique()}, but put every duplicate into a report instead of throwing
+	 * 
+	 * @param report
+	 * @return whether no value is a duplicate
+	 * @throws CsvException
+	 */
+	protected boolean commitUnique(ValidationReport report) throws CsvException {
+		return addPendingUnique(report);
+	}
+
+	/**
+	 * forget the values held for the current record, e.g. when it is rejected for another column
+	 */
+	protected void discardUnique() {
+
+		if (pendingUnique != null) {
+			Arrays.fill(pendingUnique, null);
+		}
+
+	}
+
+	/**
+	 * 
+	 * @param report
+	 *            null to throw at the first duplicate
+	 * @return
+	 * @throws CsvException
+	 */
+	private boolean addPendingUnique(ValidationReport report) throws CsvException {
+
+		if (pendingUnique == null) {
+			return true;
+		}
+
+		CsvException duplicate = null;
+		boolean valid = true;
+
+		try {
 
 			/*
-			 * blank value is special
+			 * afterwards only the values which were added are left in pendingUnique
 			 */
-			if (!isBlank(value) && !valueSet.add(value)) {
-				throw new CsvException(getAbsolutePosition() + ": duplicate [" + value + "] for column[" + columnName
-						+ "]");
+			for (ColumnBinding<T> binding : schema.getBindings()) {
+
+				int ordinal = binding.getOrdinal();
+				String value = pendingUnique[ordinal];
+				if (value == null) {
+					continue;
+				}
+
+				if (duplicate != null) {
+					pendingUnique[ordinal] = null;
+					continue;
+				}
+
+				int firstLine = addUnique(value, binding);
+				if (firstLine == UniqueIndex.ADDED) {
+					continue;
+				}
+
+				pendingUnique[ordinal] = null;
+				valid = false;
+
+				if (report != null) {
+					report.add(line, binding.getName(), ErrorCode.DUPLICATE, value, getFirstLineDetail(firstLine));
+				} else {
+					duplicate = new CsvException(ErrorCode.DUPLICATE.format(path, line, binding.getName(), value,
+							getFirstLineDetail(firstLine)));
+				}
+
+			}
+
+			if (!valid) {
+				removePendingUnique();
 			}
 
+		} finally {
+			Arrays.fill(pendingUnique, null);
 		}
 
+		if (duplicate != null) {
+			throw duplicate;
+		}
+
+		return valid;
 	}
 
-	protected boolean isBlank(String str) {
-		return str == null || str.matches("[" + FULL_WIDTH_WHITESPACE + "\\s]*");
+	private void removePendingUnique() throws CsvException {
+
+		for (ColumnBinding<T> binding : schema.getBindings()) {
+
+			String value = pendingUnique[binding.getOrdinal()];
+			UniqueIndex index = uniqueValueMap.get(binding.getName());
+			if (value == null || index == null) {
+				continue;
+			}
+
+			try {
+				index.remove(value, line);
+			} catch (IOException e) {
+				throw new CsvException(e);
+			}
+
+		}
+
 	}
 
 	/**
-	 * verify whether this value matches the given regular expression
+	 * 
+	 * verify whether this value is unique(except blank value)
 	 * 
 	 * @param value
-	 * @param column
+	 * @param binding
 	 * @throws CsvException
 	 */
-	protected void verifyMatches(String value, Field field) throws CsvException {
+	protected void verifyUnique(String value, ColumnBinding<T> binding) throws CsvException {
 
-		Column column = getColumn(field);
-
-		String regex = column.matches();
-		if (!regex.equals(".*")) {
-			if (!value.matches(regex)) {
-				throw new CsvException(getAbsolutePosition() + ": column[" + getColumnName(field) + "]'s value["
-						+ value + "] should match regex [" + regex + "]");
-			}
+		int firstLine = addUnique(value, binding);
+		if (firstLine != UniqueIndex.ADDED) {
+			throw new CsvException(ErrorCode.DUPLICATE.format(path, line, binding.getName(), value,
+					getFirstLineDetail(firstLine)));
 		}
 
 	}
 
 	/**
-	 * verify whether this value is blank
+	 * remember the value of a unique column
 	 * 
 	 * @param value
-	 * @param column
+	 * @param binding
+	 * @return {@link UniqueIndex#ADDED} if the value is new, or blank, or the column is not unique
 	 * @throws CsvException
 	 */
-	protected void verifyNullable(String value, Field field) throws CsvException {
+	private int addUnique(String value, ColumnBinding<T> binding) throws CsvException {
 
-		Column column = getColumn(field);
+		if (!binding.isUnique()) {
+			return UniqueIndex.ADDED;
+		}
 
-		if (!column.nullable()) {
-			if (isBlank(value)) {
-				throw new CsvException(getAbsolutePosition() + ":" + " column[" + getColumnName(field)
-						+ "] should not be blank!");
-			}
+		String columnName = binding.getName();
+		UniqueIndex index = uniqueValueMap.get(columnName);
+		if (index == null) {
+			index = uniqueStrategy.newIndex();
+			uniqueValueMap.put(columnName, index);
+		}
+
+		/*
+		 * blank value is special
+		 */
+		if (isBlank(value)) {
+			return UniqueIndex.ADDED;
+		}
+
+		try {
+			return index.add(value, line);
+		} catch (IOException e) {
+			throw new CsvException(e);
 		}
 
 	}
 
-	static <T extends CsvBean> Object getFieldValue(T t, Field field) throws CsvException {
+	private static String getFirstLineDetail(int firstLine) {
+		return firstLine == UniqueIndex.UNKNOWN_LINE ? null : String.valueOf(firstLine);
+	}
 
-		Object value;
+	protected boolean isBlank(CharSequence str) {
 
-		try {
-			field.setAccessible(true);
-			value = field.get(t);
-		} catch (IllegalArgumentException e) {
-			throw new CsvException(e);
-		} catch (IllegalAccessException e) {
-			throw new CsvException(e);
+		if (str == null) {
+			return true;
 		}
 
-		return value;
+		for (int i = 0, len = str.length(); i < len; i++) {
+			if (!isWhitespace(str.charAt(i))) {
+				return false;
+			}
+		}
 
+		return true;
 	}
 
-	protected void setFieldValue(T t, Field field, Object value) throws CsvException {
+	/**
+	 * verify whether this value matches the given regular expression
+	 * 
+	 * @param value
+	 * @param column
+	 * @throws CsvException
+	 */
+	protected void verifyMatches(CharSequence value, ColumnBinding<T> binding) throws CsvException {
 
-		try {
+		if (!isMatchesValid(value, binding)) {
+			throw new CsvException(ErrorCode.MISMATCH.format(path, line, binding.getName(), value.toString(),
+					binding.getPattern().pattern()));
+		}
+
+	}
 
-			field.setAccessible(true);
-			field.set(t, value);
+	private boolean isMatchesValid(CharSequence value, ColumnBinding<T> binding) {
 
-		} catch (IllegalArgumentException e) {
-			throw new CsvException(e);
-		} catch (IllegalAccessException e) {
-			throw new CsvException(e);
+		Pattern pattern = binding.getPattern();
+		if (pattern == null) {
+			return true;
+		}
+
+		if (matchers == null) {
+			matchers = new Matcher[schema.size()];
+		}
+
+		Matcher matcher = matchers[binding.getOrdinal()];
+		if (matcher == null) {
+			matcher = pattern.matcher(value);
+			matchers[binding.getOrdinal()] = matcher;
+		} else {
+			matcher.reset(value);
+		}
+
+		return matcher.matches();
+
+	}
+
+	/**
+	 * verify whether this value is blank
+	 * 
+	 * @param value
+	 * @param column
+	 * @throws CsvException
+	 */
+	protected void verifyNullable(CharSequence value, ColumnBinding<T> binding) throws CsvException {
+
+		if (!isNullableValid(value, binding)) {
+			throw new CsvException(ErrorCode.BLANK.format(path, line, binding.getName(), value.toString(), null));
 		}
 
 	}
 
+	private boolean isNullableValid(CharSequence value, ColumnBinding<T> binding) {
+		return binding.isNullable() || !isBlank(value);
+	}
+
 	@Override
 	protected void finalize() throws Throwable {
 		this.close();
@@ -248,4 +506,4 @@ abstract class CsvRW<T extends CsvBean> implements Closeable {
 		return path + "#" + line;
 	}
 
-}
\ No newline at end of file
+}
@@ -1,16 +1,27 @@
 package com.aispeech.aicsv;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.lang.reflect.Field;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.aispeech.aicsv.ValidationReport.ErrorCode;
 
 /**
  * read record as java bean
@@ -19,11 +30,69 @@ import java.util.Set;
  * 
  * @param <T>
  */
-public class CsvReader<T extends CsvBean> extends CsvRW<T> {
+public class CsvReader<T extends CsvBean> extends CsvRW<T> implements Iterable<T> {
+
+	private CsvTokenizer reader = null;
+
+	/**
+	 * header index of each schema binding, resolved once in {@link #verifyHeaders(String[])}
+	 */
+	private int[] headerIndexes;
+
+	/**
+	 * records starting at or after this input offset are not read, only used with a {@link ByteTokenizer}
+	 */
+	private long endOffset = Long.MAX_VALUE;
+
+	/**
+	 * the bindings which are read, all of them unless {@link #select(String...)} was called
+	 */
+	private List<ColumnBinding<T>> bindings;
+
+	/**
+	 * headers of the csv, null for a reader of a range
+	 */
+	private List<String> headers;
+
+	/**
+	 * records which it does not accept are skipped, see {@link #filter(RowFilter)}
+	 */
+	private RowFilter.Bound filter = null;
+
+	/**
+	 * number of leading cells read by the bindings, {@link Integer#MAX_VALUE} unless {@link #select(String...)} was
+	 * called
+	 */
+	private int bindingColumnLimit = Integer.MAX_VALUE;
+
+	/**
+	 * the csv file, null for a reader of a stream
+	 */
+	private File file = null;
+
+	/**
+	 * records at or after this line are not read, see {@link #range(CsvIndex, int, int)}
+	 */
+	private int endLine = Integer.MAX_VALUE;
+
+	/**
+	 * filled while reading, see {@link #buildIndex(int)}
+	 */
+	private CsvIndex indexBuilder = null;
+
+	/**
+	 * how long to wait for an appended record, -1 unless the reader follows its csv, see
+	 * {@link #follow(long, TimeUnit)}
+	 */
+	private long followNanos = -1;
 
-	private com.csvreader.CsvReader reader = null;
+	/**
+	 * intern table of each binding, indexed by ordinal, null for {@link Interning#NEVER}
+	 */
+	private final InternTable[] internTables;
 
 	/**
+	 * a gzip or zstd file is decompressed on another thread, see {@link #openMapped(File, char, Charset, Class)}
 	 * 
 	 * @param csv
 	 * @param t
@@ -31,10 +100,13 @@ public class CsvReader<T extends CsvBean> extends CsvRW<T> {
 	 * @throws CsvException
 	 */
 	public CsvReader(File csv, Class<T> t) throws IOException, CsvException {
-		this(new FileInputStream(csv), csv.getCanonicalPath(), DEFAULT_DELIMITER, DEFAULT_CHARSET, t);
+		this(Compression.open(csv), csv.getCanonicalPath(), DEFAULT_DELIMITER, DEFAULT_CHARSET, t);
+		this.file = csv;
 	}
 
 	/**
+	 * the stream of an ASCII compatible charset, i.e. UTF-8, GBK, GB18030, ISO-8859-1..., is split into records and
+	 * cells at byte level and only the cells which are read are decoded, other charsets are decoded as a whole
 	 * 
 	 * @param inputStream
 	 * @param path
@@ -48,18 +120,129 @@ public class CsvReader<T extends CsvBean> extends CsvRW<T> {
 	 */
 	public CsvReader(InputStream inputStream, String path, char delimiter, Charset charset, Class<T> t)
 			throws IOException, CsvException {
+		this(newTokenizer(inputStream, delimiter, charset), path, t);
+	}
+
+	/**
+	 * 
+	 * @param tokenizer
+	 * @param path
+	 * @param t
+	 * @throws IOException
+	 * @throws CsvException
+	 */
+	CsvReader(CsvTokenizer tokenizer, String path, Class<T> t) throws IOException, CsvException {
 
 		super(t);
 		this.path = path;
 		this.recordClass = t;
-		reader = new com.csvreader.CsvReader(inputStream, delimiter, charset);
-		reader.setTrimWhitespace(false);
+		reader = tokenizer;
+
+		this.bindings = schema.getBindings();
+		this.internTables = newInternTables();
 
-		if (!reader.readHeaders()) {
+		if (!reader.readRecord()) {
+			this.close();
 			throw new CsvException(path + ": this is an empty csv");
 		}
 
-		verifyHeaders(reader.getHeaders());
+		verifyHeaders(reader.getValues());
+
+	}
+
+	private static CsvTokenizer newTokenizer(InputStream inputStream, char delimiter, Charset charset) {
+
+		if (ByteTokenizer.supports(charset, delimiter)) {
+			return new InputStreamTokenizer(inputStream, delimiter, charset);
+		}
+
+		return new CharTokenizer(new InputStreamReader(inputStream, charset), delimiter);
+	}
+
+	/**
+	 * read the records of [startOffset, endOffset) from a tokenizer which is already past the headers
+	 * 
+	 * @param tokenizer
+	 * @param path
+	 * @param t
+	 * @param headerIndexes
+	 * @param line
+	 *            line of the record before the first one to read
+	 * @param endOffset
+	 * @param interned
+	 *            false to decode every cell, for a reader of a few records whose intern tables would not pay off
+	 * @throws CsvException
+	 */
+	CsvReader(ByteTokenizer tokenizer, String path, Class<T> t, int[] headerIndexes, int line, long endOffset,
+			boolean interned) throws CsvException {
+
+		super(t);
+		this.path = path;
+		this.reader = tokenizer;
+		this.headerIndexes = headerIndexes;
+		this.line = line;
+		this.endOffset = endOffset;
+		this.bindings = schema.getBindings();
+		this.internTables = interned ? newInternTables() : new InternTable[schema.size()];
+
+	}
+
+	/**
+	 * open a csv file as memory-mapped regions, cells are decoded straight from the mapped bytes and only for the
+	 * columns bound by a {@link Column} field<br/>
+	 * default charset "gbk"<br/>
+	 * default delimiter ','
+	 * 
+	 * @param <T>
+	 * @param csv
+	 * @param t
+	 * @return
+	 * @throws IOException
+	 * @throws CsvException
+	 */
+	public static <T extends CsvBean> CsvReader<T> openMapped(File csv, Class<T> t) throws IOException, CsvException {
+		return openMapped(csv, DEFAULT_DELIMITER, DEFAULT_CHARSET, t);
+	}
+
+	/**
+	 * open a csv file as memory-mapped regions, cells are decoded straight from the mapped bytes and only for the
+	 * columns bound by a {@link Column} field<br/>
+	 * a charset which can not be split at byte level (e.g. UTF-16) is read as a stream instead, as is a gzip or zstd
+	 * file, which is decompressed on another thread, and a block-gzip (BGZF) one by several threads<br/>
+	 * the file should not be truncated while it is being read
+	 * 
+	 * @param <T>
+	 * @param csv
+	 * @param delimiter
+	 * @param charset
+	 * @param t
+	 * @return
+	 * @throws IOException
+	 * @throws CsvException
+	 */
+	public static <T extends CsvBean> CsvReader<T> openMapped(File csv, char delimiter, Charset charset, Class<T> t)
+			throws IOException, CsvException {
+
+		CsvReader<T> reader;
+
+		if (!ByteTokenizer.supports(charset, delimiter) || Compression.of(csv) != Compression.NONE) {
+			reader = new CsvReader<T>(Compression.open(csv), csv.getCanonicalPath(), delimiter, charset, t);
+			reader.file = csv;
+			return reader;
+		}
+
+		FileChannel channel = new RandomAccessFile(csv, "r").getChannel();
+		try {
+			reader = new CsvReader<T>(new MappedTokenizer(channel, delimiter, charset), csv.getCanonicalPath(), t);
+			reader.file = csv;
+			return reader;
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		} catch (CsvException e) {
+			channel.close();
+			throw e;
+		}
 
 	}
 
@@ -74,28 +257,28 @@ public class CsvReader<T extends CsvBean> extends CsvRW<T> {
 	protected void verifyHeaders(String[] headers) throws CsvException {
 
 		List<String> actualHeaders = Arrays.asList(headers);
+		this.headers = actualHeaders;
 		List<String> missingHeaders = new ArrayList<String>();
 		Set<String> expectedHeaders = new HashSet<String>();
 		Set<String> duplicateHeaders = new HashSet<String>();
 
+		headerIndexes = new int[schema.size()];
+
 		/*
 		 * verify whether the csv contains expected headers
 		 */
-		Field[] fields = recordClass.getDeclaredFields();
-		for (Field field : fields) {
+		for (ColumnBinding<T> binding : schema.getBindings()) {
 
-			Column column = getColumn(field);
-			if (column != null) {
-
-				String columnName = getColumnName(field);
-				expectedHeaders.add(columnName);
-
-				if (!actualHeaders.contains(columnName)) {
-					missingHeaders.add(columnName);
-				}
+			String columnName = binding.getName();
+			expectedHeaders.add(columnName);
 
+			int index = actualHeaders.indexOf(columnName);
+			if (index < 0) {
+				missingHeaders.add(columnName);
 			}
 
+			headerIndexes[binding.getOrdinal()] = index;
+
 		}
 
 		/*
@@ -130,19 +313,84 @@ public class CsvReader<T extends CsvBean> extends CsvRW<T> {
 
 	}
 
-	private T getNewInstance() throws CsvException {
+	/**
+	 * only read some columns, the fields of the others are left as they are and their constraints are not checked<br/>
+	 * the cells after the last selected column are not kept at all, unless the records are read into a report with a
+	 * {@link RejectSink}, and no cell of an unselected column is decoded<br/>
+	 * it should be called before the first record is read, the csv must still have every header of the bean
+	 * 
+	 * @param columnNames
+	 * @return this reader
+	 * @throws CsvException
+	 *             if a column is not mapped by the bean
+	 */
+	public CsvReader<T> select(String... columnNames) throws CsvException {
+
+		Set<String> names = new HashSet<String>(Arrays.asList(columnNames));
 
-		T t;
+		List<ColumnBinding<T>> selected = new ArrayList<ColumnBinding<T>>();
+		int columnLimit = 0;
+
+		for (ColumnBinding<T> binding : schema.getBindings()) {
+
+			if (names.remove(binding.getName())) {
+				selected.add(binding);
+				columnLimit = Math.max(columnLimit, headerIndexes[binding.getOrdinal()] + 1);
+			}
 
-		try {
-			t = recordClass.newInstance();
-		} catch (IllegalAccessException e) {
-			throw new CsvException(e);
-		} catch (InstantiationException e) {
-			throw new CsvException(e);
 		}
 
-		return t;
+		if (names.size() != 0) {
+			throw new CsvException(path + ": column" + names + " is not mapped by class[" + recordClass.getName()
+					+ "]");
+		}
+
+		bindings = Collections.unmodifiableList(selected);
+		bindingColumnLimit = columnLimit;
+
+		updateColumnLimit();
+
+		return this;
+
+	}
+
+	/**
+	 * only read the records a filter accepts, the others are skipped before their bean is created, so they are not
+	 * normalized, checked or added to the unique sets, their lines are still counted<br/>
+	 * it should be called before the first record is read, calling it again replaces the filter
+	 * 
+	 * @param rowFilter
+	 * @return this reader
+	 * @throws CsvException
+	 *             if a column of the filter is not in the headers
+	 */
+	public CsvReader<T> filter(RowFilter rowFilter) throws CsvException {
+
+		if (headers == null) {
+			throw new CsvException(path + ": the headers of this reader are unknown");
+		}
+
+		filter = rowFilter == null ? null : rowFilter.bind(headers, reader, path);
+
+		updateColumnLimit();
+
+		return this;
+
+	}
+
+	private void updateColumnLimit() {
+
+		if (reader == null || bindingColumnLimit == Integer.MAX_VALUE) {
+			return;
+		}
+
+		int columnLimit = bindingColumnLimit;
+		if (filter != null) {
+			columnLimit = Math.max(columnLimit, filter.getColumnLimit());
+		}
+
+		reader.setColumnLimit(columnLimit);
+
 	}
 
 	/**
@@ -154,87 +402,813 @@ public class CsvReader<T extends CsvBean> extends CsvRW<T> {
 	 */
 	public T readRecord() throws IOException, CsvException {
 
-		if (reader == null) {
+		if (!nextOrClose()) {
 			return null;
 		}
 
-		if (!reader.readRecord()) {
-			this.close();
-			return null;
-		}
+		T t = schema.newInstance();
+		bind(t, false);
 
-		T t = getNewInstance();
+		return t;
+	}
+
+	/**
+	 * read the next record into a bean given by the caller instead of a new one, so that a scan does not create a
+	 * bean per record<br/>
+	 * every read field is overwritten, a blank cell still leaves a field which is neither a String nor a
+	 * CharSequence untouched, and the fields of unselected columns keep their values<br/>
+	 * a CharSequence field, unless it's unique, is given a reusable view which is filled with the cell's chars
+	 * straight from the read buffer; the view belongs to the bean and is overwritten by the next record read into the
+	 * same bean, so it must be copied, e.g. with toString(), to be kept; with a few beans used in turn, the views of
+	 * the previous records stay valid<br/>
+	 * with primitive and CharSequence fields nothing is allocated per record, String fields and converted fields
+	 * still get a new value per cell
+	 * 
+	 * @param record
+	 * @return false if there's no more record, the bean is left untouched then
+	 * @throws IOException
+	 * @throws CsvException
+	 */
+	public boolean readRecord(T record) throws IOException, CsvException {
 
-		t.setLine(++this.line);
+		if (!nextOrClose()) {
+			return false;
+		}
 
-		Field[] fields = recordClass.getDeclaredFields();
+		bind(record, true);
 
-		for (Field field : fields) {
+		return true;
+	}
 
-			Column column = getColumn(field);
-			if (column != null) {
+	/**
+	 * move to the next record, or verify the pending unique values and close at the end, a reader following its csv
+	 * is left open when no record was appended in time
+	 * 
+	 * @return
+	 * @throws IOException
+	 * @throws CsvException
+	 */
+	private boolean nextOrClose() throws IOException, CsvException {
 
-				String name = getColumnName(field);
-				String value = reader.get(name);
-				value = normalizeValue(value, field);
+		if (reader == null) {
+			return false;
+		}
 
-				checkValue(value, field);
+		if (!nextRecord()) {
 
-				setFieldValue(t, field, value);
+			if (followNanos >= 0 && reader != null) {
+				return false;
+			}
 
+			try {
+				verifyPendingUnique();
+			} finally {
+				this.close();
 			}
 
+			return false;
 		}
 
-		return t;
+		return true;
 	}
 
-	@Override
-	public void close() {
-		if (reader != null) {
-			reader.close();
-			reader = null;
+	/**
+	 * put the cells of the current record into a bean
+	 * 
+	 * @param t
+	 * @param reuse
+	 *            whether the CharSequence fields are filled in place, see {@link #readRecord(CsvBean)}
+	 * @throws CsvException
+	 */
+	private void bind(T t, boolean reuse) throws CsvException {
+
+		t.setLine(this.line);
+
+		for (ColumnBinding<T> binding : bindings) {
+
+			int index = headerIndexes[binding.getOrdinal()];
+			if (binding.isDirect() && setDirect(t, binding, index)) {
+				continue;
+			}
+
+			if (reuse && binding.isSequence() && !binding.isUnique()) {
+				setSequence(t, binding, index);
+				continue;
+			}
+
+			String value = getCell(binding, index);
+			value = normalizeValue(value, binding);
+
+			checkValue(value, binding);
+
+			try {
+				binding.setValue(t, value);
+			} catch (CsvException e) {
+				throw new CsvException(ErrorCode.INVALID.format(path, line, binding.getName(), value, e.getMessage()));
+			}
+
 		}
+
+		commitUnique();
+
 	}
 
 	/**
-	 * read csv, get all records
+	 * fill the reusable view of a CharSequence field, see {@link #readRecord(CsvBean)}
 	 * 
-	 * @param <T>
-	 * @param csvFile
 	 * @param t
-	 * @return
-	 * @throws IOException
+	 * @param binding
+	 * @param index
 	 * @throws CsvException
 	 */
-	public static <T extends CsvBean> List<T> readRecords(File csvFile, Class<T> t) throws IOException, CsvException {
+	private void setSequence(T t, ColumnBinding<T> binding, int index) throws CsvException {
 
-		List<T> recordList = new ArrayList<T>();
-		List<CsvException> exlist = new ArrayList<CsvException>();
+		Object current = binding.get(t);
 
-		CsvReader<T> reader = new CsvReader<T>(csvFile, t);
-		while (true) {
-			try {
+		CharCell cell;
+		if (current instanceof CharCell) {
+			cell = (CharCell) current;
+		} else {
+			cell = new CharCell();
+			binding.set(t, cell);
+		}
 
-				T record = reader.readRecord();
-				if (record == null) {
-					break;
-				}
+		reader.copyTo(index, cell);
+		cell.normalize(binding.isTrim());
 
-				recordList.add(record);
+		verifyNullable(cell, binding);
+		verifyMatches(cell, binding);
 
-			} catch (CsvException e) {
-				exlist.add(e);
+	}
+
+	private InternTable[] newInternTables() {
+
+		InternTable[] tables = new InternTable[schema.size()];
+		for (ColumnBinding<T> binding : schema.getBindings()) {
+			tables[binding.getOrdinal()] = InternTable.of(binding.getColumn().intern());
+		}
+
+		return tables;
+	}
+
+	/**
+	 * decode every cell, for a reader of a few records whose intern tables would not pay off
+	 */
+	void disableInterning() {
+		Arrays.fill(internTables, null);
+	}
+
+	/**
+	 * get a cell through the intern table of its binding, see {@link Interning}
+	 * 
+	 * @param binding
+	 * @param index
+	 * @return
+	 */
+	private String getCell(ColumnBinding<T> binding, int index) {
+
+		InternTable table = internTables[binding.getOrdinal()];
+		if (table == null) {
+			return reader.get(index);
+		}
+
+		return table.get(reader, index);
+	}
+
+	/**
+	 * parse a cell straight into a primitive field, see {@link ColumnBinding#isDirect()}
+	 * 
+	 * @param t
+	 * @param binding
+	 * @param index
+	 * @return false if the cell should be read as a String instead
+	 * @throws CsvException
+	 */
+	private boolean setDirect(T t, ColumnBinding<T> binding, int index) throws CsvException {
+
+		if (binding.isFloating()) {
+
+			if (!reader.parseDouble(index, binding.isTrim())) {
+				return false;
 			}
+
+			binding.setDouble(t, reader.doubleValue);
+			return true;
+
 		}
-		reader.close();
 
-		if (exlist.size() != 0) {
-			throw CsvException.concat(exlist);
+		if (!reader.parseLong(index, binding.isTrim()) || !binding.inRange(reader.longValue)) {
+			return false;
 		}
 
-		return recordList;
+		binding.setLong(t, reader.longValue);
+		return true;
+
+	}
+
+	/**
+	 * read all the remaining records and close this reader, every column of every record is checked, the records
+	 * with any violation are put into the report and skipped instead of failing the read<br/>
+	 * with {@link UniqueStrategy#SPILL} the duplicates found at the end are reported, but their records are returned<br/>
+	 * a reader following its csv returns the records appended until no record was appended in time, and is left open
+	 * 
+	 * @param report
+	 * @return the valid records
+	 * @throws IOException
+	 * @throws CsvException
+	 *             if a record can not be read at all, e.g. the bean has no no-arg constructor
+	 */
+	public List<T> readRecords(ValidationReport report) throws IOException, CsvException {
+
+		List<T> recordList = new ArrayList<T>();
+
+		report.open(path, schema);
+
+		/*
+		 * the sink gets the whole row of a rejected record, even when only some columns are selected
+		 */
+		if (report.hasRejectSink() && reader != null) {
+			reader.setColumnLimit(Integer.MAX_VALUE);
+		}
+
+		try {
+
+			while (nextRecord()) {
+
+				report.addRecord();
+
+				T t = schema.newInstance();
+				t.setLine(this.line);
+
+				boolean valid = true;
+
+				for (ColumnBinding<T> binding : bindings) {
+
+					int index = headerIndexes[binding.getOrdinal()];
+					if (binding.isDirect() && setDirect(t, binding, index)) {
+						continue;
+					}
+
+					String value = getCell(binding, index);
+					value = normalizeValue(value, binding);
+
+					if (!checkValue(value, binding, report)) {
+						valid = false;
+						continue;
+					}
+
+					if (valid) {
+						try {
+							binding.setValue(t, value);
+						} catch (CsvException e) {
+							report.add(line, binding.getName(), ErrorCode.INVALID, value, e.getMessage());
+							valid = false;
+						}
+					}
 
+				}
+
+				/*
+				 * the unique values are only kept for an accepted record
+				 */
+				if (valid) {
+					valid = commitUnique(report);
+				} else {
+					discardUnique();
+				}
+
+				if (valid) {
+					recordList.add(t);
+				} else {
+					report.reject(line, reader);
+				}
+
+			}
+
+			if (followNanos < 0) {
+				verifyPendingUnique(report);
+			}
+
+		} finally {
+			if (followNanos < 0) {
+				this.close();
+			}
+		}
+
+		return recordList;
+
+	}
+
+	/**
+	 * read the remaining records into a table and close this reader, see {@link CsvTable#load(CsvReader)}
+	 * 
+	 * @return
+	 * @throws IOException
+	 * @throws CsvException
+	 */
+	CsvTable<T> readTable() throws IOException, CsvException {
+
+		CsvTable<T> table;
+
+		try {
+
+			table = new CsvTable<T>(schema, bindings);
+
+			while (nextRecord()) {
+
+				table.addLine(line);
+
+				for (int column = 0; column < bindings.size(); column++) {
+
+					ColumnBinding<T> binding = bindings.get(column);
+
+					int index = headerIndexes[binding.getOrdinal()];
+					if (binding.isDirect()) {
+
+						if (binding.isFloating() && reader.parseDouble(index, binding.isTrim())) {
+							table.addDouble(column, reader.doubleValue);
+							continue;
+						}
+
+						if (!binding.isFloating() && reader.parseLong(index, binding.isTrim())
+								&& binding.inRange(reader.longValue)) {
+							table.addLong(column, reader.longValue);
+							continue;
+						}
+
+					}
+
+					String value = getCell(binding, index);
+					value = normalizeValue(value, binding);
+
+					checkValue(value, binding);
+
+					try {
+						table.addString(column, value);
+					} catch (CsvException e) {
+						throw new CsvException(ErrorCode.INVALID.format(path, line, binding.getName(), value, e
+								.getMessage()));
+					}
+
+				}
+
+				commitUnique();
+
+			}
+
+			verifyPendingUnique();
+
+		} finally {
+			this.close();
+		}
+
+		table.trim();
+
+		return table;
+
+	}
+
+	/**
+	 * read the remaining records into a key index builder and close this reader, only the cell of the key column is
+	 * decoded, it is normalized and checked but not for uniqueness, the builder does that, see {@link CsvKeyIndex}
+	 *
+	 * @param binding
+	 * @param builder
+	 * @throws IOException
+	 * @throws CsvException
+	 */
+	void readKeys(ColumnBinding<T> binding, CsvKeyIndex.Builder builder) throws IOException, CsvException {
+
+		try {
+
+			int index = headerIndexes[binding.getOrdinal()];
+
+			while (nextRecord()) {
+
+				String value = getCell(binding, index);
+				value = normalizeValue(value, binding);
+
+				verifyNullable(value, binding);
+				verifyMatches(value, binding);
+
+				if (!isBlank(value)) {
+					builder.add(value, ((ByteTokenizer) reader).getRecordOffset(), line);
+				}
+
+			}
+
+		} finally {
+			this.close();
+		}
+
+	}
+
+	/**
+	 * read the next record, unless the normalized cell of a column is not a given value, see
+	 * {@link CsvKeyIndex#lookup(String)}
+	 *
+	 * @param binding
+	 * @param value
+	 * @return null if there's no more record, or its cell is another value
+	 * @throws IOException
+	 * @throws CsvException
+	 */
+	T readRecordIf(ColumnBinding<T> binding, String value) throws IOException, CsvException {
+
+		if (!nextOrClose()) {
+			return null;
+		}
+
+		if (!value.equals(normalizeValue(getCell(binding, headerIndexes[binding.getOrdinal()]), binding))) {
+			return null;
+		}
+
+		T t = schema.newInstance();
+		bind(t, false);
+
+		return t;
+	}
+
+	/**
+	 * move to the next record accepted by the filter, unless it's after {@link #endOffset}
+	 * 
+	 * @return
+	 * @throws IOException
+	 */
+	private boolean nextRecord() throws IOException {
+
+		long waitStart = -1;
+
+		while (true) {
+
+			if (reader == null || line + 1 >= endLine) {
+				return false;
+			}
+
+			if (!reader.readRecord()) {
+
+				if (followNanos >= 0) {
+
+					long now = System.nanoTime();
+					if (waitStart < 0) {
+						waitStart = now;
+					}
+
+					long timeout = followNanos == Long.MAX_VALUE ? Long.MAX_VALUE : followNanos - (now - waitStart);
+					if (((FollowTokenizer) reader).await(timeout)) {
+						continue;
+					}
+
+					return false;
+				}
+
+				if (indexBuilder != null) {
+					indexBuilder.finish(line);
+					indexBuilder.save();
+					indexBuilder = null;
+				}
+
+				return false;
+			}
+
+			if (isAfterEnd()) {
+				return false;
+			}
+
+			this.line++;
+
+			if (indexBuilder != null) {
+				indexBuilder.add(line, ((ByteTokenizer) reader).getRecordOffset());
+			}
+
+			if (filter == null || filter.accept(reader)) {
+				return true;
+			}
+
+		}
+
+	}
+
+	/**
+	 * start reading at a line, the records before it are not parsed, only the ones between the closest indexed
+	 * record and the line are<br/>
+	 * the records before the line are not checked against the unique values either, and a unique value seen before
+	 * seeking is still remembered
+	 * 
+	 * @param index
+	 *            the index of this reader's csv, see {@link CsvIndex#open(File)}
+	 * @param line
+	 *            see {@link CsvBean#getLine()}, the first record is line 2
+	 * @return this reader
+	 * @throws IOException
+	 * @throws CsvException
+	 *             if this reader can not seek, or the index is not a valid one of its csv
+	 */
+	public CsvReader<T> seek(CsvIndex index, int line) throws IOException, CsvException {
+
+		if (reader == null) {
+			throw new CsvException(path + ": this reader was already closed");
+		}
+
+		if (file == null || !(reader instanceof ByteTokenizer)) {
+			throw new CsvException(path + ": this reader can not seek");
+		}
+
+		ByteTokenizer current = (ByteTokenizer) reader;
+		CsvIndex.checkIndexable(file, current.getDelimiter(), current.getCharset());
+
+		if (!index.isValidFor(file)) {
+			throw new CsvException(path + ": the index is not a valid one of this csv");
+		}
+
+		int entry = index.getEntry(line);
+		if (entry < 0) {
+			throw new CsvException(path + ": can not seek to line " + line);
+		}
+
+		FileChannel channel = new RandomAccessFile(file, "r").getChannel();
+		ByteTokenizer tokenizer;
+		try {
+			tokenizer = new MappedTokenizer(channel, current.getDelimiter(), current.getCharset(),
+					MappedTokenizer.DEFAULT_WINDOW_SIZE, index.getOffset(entry));
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+
+		tokenizer.setColumnLimit(current.columnLimit);
+		current.close();
+
+		this.reader = tokenizer;
+		this.indexBuilder = null;
+		this.line = index.getLine(entry) - 1;
+
+		while (this.line + 1 < line && tokenizer.readRecord()) {
+			this.line++;
+		}
+
+		return this;
+
+	}
+
+	/**
+	 * only read the records of the lines [fromLine, toLine), see {@link #seek(CsvIndex, int)}
+	 * 
+	 * @param index
+	 * @param fromLine
+	 * @param toLine
+	 *            exclusive
+	 * @return this reader
+	 * @throws IOException
+	 * @throws CsvException
+	 */
+	public CsvReader<T> range(CsvIndex index, int fromLine, int toLine) throws IOException, CsvException {
+
+		seek(index, fromLine);
+		this.endLine = toLine;
+
+		return this;
+	}
+
+	/**
+	 * follow the csv as it is appended to, e.g. a log: once the records written so far are read, a read waits for
+	 * the next record instead of ending, see {@link FollowTokenizer}<br/>
+	 * the reader keeps its input offset and line, so only the appended records are parsed, and a record is only read
+	 * once its line end was written; the unique values are remembered across the waits, a duplicate fails its read
+	 * like any other<br/>
+	 * {@link #readRecord()} returns null, and {@link #readRecord(CsvBean)} false, when no record was appended within
+	 * the timeout, the reader is left open and the next call goes on where it stopped; it only ends when it's closed,
+	 * a waiting read can be stopped by interrupting its thread<br/>
+	 * it should be called before the last record written so far is read, the csv must not be compressed, and its
+	 * records must not be rewritten or truncated
+	 * 
+	 * @param timeout
+	 *            0 not to wait, {@link Long#MAX_VALUE} to wait until a record is appended
+	 * @param unit
+	 * @return this reader
+	 * @throws IOException
+	 * @throws CsvException
+	 *             if this reader can not follow its csv, or it uses {@link UniqueStrategy#SPILL}, whose duplicates
+	 *             are only found at the end
+	 */
+	public CsvReader<T> follow(long timeout, TimeUnit unit) throws IOException, CsvException {
+
+		if (reader == null) {
+			throw new CsvException(path + ": this reader was already closed");
+		}
+
+		if (file == null || !(reader instanceof ByteTokenizer) || Compression.of(file) != Compression.NONE) {
+			throw new CsvException(path + ": this reader can not follow its csv");
+		}
+
+		if (uniqueStrategy == UniqueStrategy.SPILL) {
+			throw new CsvException(path + ": a followed csv can not spill its unique values");
+		}
+
+		if (!(reader instanceof FollowTokenizer)) {
+
+			ByteTokenizer current = (ByteTokenizer) reader;
+
+			FollowTokenizer tokenizer = new FollowTokenizer(file, current.getDelimiter(), current.getCharset(),
+					current.getOffset());
+			tokenizer.setColumnLimit(current.columnLimit);
+			current.close();
+
+			this.reader = tokenizer;
+			this.indexBuilder = null;
+
+		}
+
+		this.followNanos = Math.max(0, unit.toNanos(timeout));
+
+		return this;
+	}
+
+	/**
+	 * build the index of the csv while reading it, it is saved next to the csv once the last record is read, see
+	 * {@link CsvIndex}<br/>
+	 * it should be called before the first record is read
+	 * 
+	 * @param interval
+	 *            one offset is kept per this many records
+	 * @return this reader
+	 * @throws IOException
+	 * @throws CsvException
+	 *             if the csv can not be indexed
+	 */
+	public CsvReader<T> buildIndex(int interval) throws IOException, CsvException {
+
+		if (file == null || !(reader instanceof ByteTokenizer) || line != 1) {
+			throw new CsvException(path + ": the index of this reader can not be built");
+		}
+
+		ByteTokenizer tokenizer = (ByteTokenizer) reader;
+		CsvIndex.checkIndexable(file, tokenizer.getDelimiter(), tokenizer.getCharset());
+
+		indexBuilder = new CsvIndex(file, interval);
+
+		return this;
+	}
+
+	/**
+	 * stream the remaining records, they are read lazily, so a short-circuiting operation such as findFirst or limit
+	 * stops reading the csv<br/>
+	 * closing the stream closes this reader, a record which fails to be read ends the stream with an
+	 * {@link UncheckedCsvException} or {@link java.io.UncheckedIOException}
+	 * 
+	 * @return
+	 */
+	public Stream<T> stream() {
+		return StreamSupport.stream(spliterator(), false).onClose(new Runnable() {
+
+			@Override
+			public void run() {
+				close();
+			}
+		});
+	}
+
+	@Override
+	public Spliterator<T> spliterator() {
+		return new RecordSpliterator<T>(this);
+	}
+
+	/**
+	 * iterate the remaining records, see {@link #stream()}
+	 */
+	@Override
+	public Iterator<T> iterator() {
+		return Spliterators.iterator(spliterator());
+	}
+
+	private boolean isAfterEnd() {
+		return endOffset != Long.MAX_VALUE && ((ByteTokenizer) reader).getRecordOffset() >= endOffset;
+	}
+
+	int[] getHeaderIndexes() {
+		return headerIndexes;
+	}
+
+	/**
+	 * input offset after the current record, only available with a {@link ByteTokenizer}
+	 * 
+	 * @return
+	 */
+	long getOffset() {
+		return ((ByteTokenizer) reader).getOffset();
+	}
+
+	@Override
+	public void close() {
+		if (reader != null) {
+			reader.close();
+			reader = null;
+		}
+		closeUnique();
+	}
+
+	/**
+	 * read csv, get all records
+	 * 
+	 * @param <T>
+	 * @param csvFile
+	 * @param t
+	 * @return
+	 * @throws IOException
+	 * @throws CsvException
+	 */
+	public static <T extends CsvBean> List<T> readRecords(File csvFile, Class<T> t) throws IOException, CsvException {
+
+		return readRecords(new CsvReader<T>(csvFile, t));
+
+	}
+
+	/**
+	 * read csv with all the threads of a pool, records are returned in file order and with their absolute lines
+	 * 
+	 * @param <T>
+	 * @param csvFile
+	 * @param t
+	 * @return
+	 * @throws IOException
+	 * @throws CsvException
+	 */
+	public static <T extends CsvBean> List<T> readRecordsParallel(File csvFile, Class<T> t) throws IOException,
+			CsvException {
+		return readRecordsParallel(csvFile, DEFAULT_DELIMITER, DEFAULT_CHARSET, t, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * read csv with all the threads of a pool, records are returned in file order and with their absolute lines<br/>
+	 * the file is split into byte ranges parsed in parallel, quoted cells containing line breaks are handled<br/>
+	 * a charset which can not be split at byte level (e.g. UTF-16) or a compressed file is read sequentially
+	 * 
+	 * @param <T>
+	 * @param csvFile
+	 * @param delimiter
+	 * @param charset
+	 * @param t
+	 * @param pool
+	 * @return
+	 * @throws IOException
+	 * @throws CsvException
+	 */
+	public static <T extends CsvBean> List<T> readRecordsParallel(File csvFile, char delimiter, Charset charset,
+			Class<T> t, ForkJoinPool pool) throws IOException, CsvException {
+
+		if (!ByteTokenizer.supports(charset, delimiter) || Compression.of(csvFile) != Compression.NONE) {
+			return readRecords(new CsvReader<T>(Compression.open(csvFile), csvFile.getCanonicalPath(), delimiter,
+					charset, t));
+		}
+
+		return new ParallelCsvReader<T>(csvFile, delimiter, charset, t, pool).read();
+
+	}
+
+	/**
+	 * read csv, get all valid records, the violations are put into the report, see
+	 * {@link #readRecords(ValidationReport)}
+	 * 
+	 * @param <T>
+	 * @param csvFile
+	 * @param t
+	 * @param report
+	 * @return
+	 * @throws IOException
+	 * @throws CsvException
+	 */
+	public static <T extends CsvBean> List<T> readRecords(File csvFile, Class<T> t, ValidationReport report)
+			throws IOException, CsvException {
+		return new CsvReader<T>(csvFile, t).readRecords(report);
+	}
+
+	static <T extends CsvBean> List<T> readRecords(CsvReader<T> reader) throws IOException, CsvException {
+
+		ValidationReport report = new ValidationReport(Integer.MAX_VALUE, 0);
+
+		List<T> recordList = reader.readRecords(report);
+
+		if (report.hasErrors()) {
+			throw report.toException();
+		}
+
+		return recordList;
+
+	}
+
+	/**
+	 * stream the records of a csv, see {@link #stream()}, the stream should be closed
+	 * 
+	 * @param <T>
+	 * @param csvFile
+	 * @param t
+	 * @return
+	 * @throws IOException
+	 * @throws CsvException
+	 */
+	public static <T extends CsvBean> Stream<T> streamRecords(File csvFile, Class<T> t) throws IOException,
+			CsvException {
+		return new CsvReader<T>(csvFile, t).stream();
 	}
 
 	/**
@@ -250,6 +1224,7 @@ public class CsvReader<T extends CsvBean> extends CsvRW<T> {
 	public static <T extends CsvBean> T readFirstRecord(File csvFile, Class<T> t) throws IOException, CsvException {
 
 		CsvReader<T> reader = new CsvReader<T>(csvFile, t);
+		reader.disableInterning();
 		T record = reader.readRecord();
 		reader.close();
 
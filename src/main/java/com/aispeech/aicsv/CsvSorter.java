@@ -0,0 +1,732 @@
+package com.aispeech.aicsv;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * sort the records of a csv which does not fit in memory by some of its columns, e.g. before a diff or a join<br/>
+ * the records are read with a {@link CsvReader}, so the headers and the {@link Column} constraints are checked as
+ * usual, into batches which fill half of the memory limit; a full batch is sorted with
+ * {@link Arrays#parallelSort(Object[], Comparator)} and spilled to a temp file as a run in the common pool while the
+ * next batch is read; the runs are then merged, at most fan-in of them at once, into the output written by a
+ * {@link CsvWriter}<br/>
+ * a run holds the cells of each record in a compact binary form: primitive cells as numbers, the others as their
+ * utf-8 bytes<br/>
+ * the order is ascending, a null or blank value first, values which are {@link Comparable} are compared as such,
+ * others by their cells; the sort is stable, records with equal keys keep the order of the input
+ *
+ * @param <T>
+ */
+public final class CsvSorter<T extends CsvBean> {
+
+	public static final long DEFAULT_MEMORY_LIMIT = 256L * 1024 * 1024;
+
+	public static final int DEFAULT_FAN_IN = 64;
+
+	/**
+	 * estimated heap of a bean and of a field
+	 */
+	private static final int RECORD_OVERHEAD = 64;
+	private static final int FIELD_OVERHEAD = 40;
+
+	private final Class<T> recordClass;
+	private final ColumnSchema<T> schema;
+	private final List<ColumnBinding<T>> keys = new ArrayList<ColumnBinding<T>>();
+	private final Comparator<T> comparator;
+
+	private long memoryLimit = DEFAULT_MEMORY_LIMIT;
+	private int fanIn = DEFAULT_FAN_IN;
+	private File directory = null;
+
+	/**
+	 *
+	 * @param t
+	 * @param columns
+	 *            names of the columns to sort by, the first one first
+	 * @throws CsvException
+	 *             if a column is not mapped by the bean
+	 */
+	public CsvSorter(Class<T> t, String... columns) throws CsvException {
+
+		if (columns.length == 0) {
+			throw new IllegalArgumentException("no column to sort by");
+		}
+
+		this.recordClass = t;
+		this.schema = ColumnSchema.of(t);
+
+		for (String column : columns) {
+
+			ColumnBinding<T> key = null;
+			for (ColumnBinding<T> binding : schema.getBindings()) {
+				if (binding.getName().equals(column)) {
+					key = binding;
+				}
+			}
+
+			if (key == null) {
+				throw new CsvException("column[" + column + "] is not mapped by class[" + t.getName() + "]");
+			}
+
+			keys.add(key);
+
+		}
+
+		this.comparator = new Comparator<T>() {
+
+			@Override
+			public int compare(T o1, T o2) {
+				try {
+					return compareKeys(o1, o2);
+				} catch (CsvException e) {
+					throw new UncheckedCsvException(e);
+				}
+			}
+		};
+
+	}
+
+	/**
+	 * the heap used by the records read, default {@link #DEFAULT_MEMORY_LIMIT}, it is estimated from the fields of the
+	 * beans
+	 *
+	 * @param memoryLimit
+	 *            in bytes
+	 */
+	public void setMemoryLimit(long memoryLimit) {
+
+		if (memoryLimit <= 0) {
+			throw new IllegalArgumentException("memoryLimit should be positive: " + memoryLimit);
+		}
+
+		this.memoryLimit = memoryLimit;
+	}
+
+	/**
+	 * the number of runs merged at once, default {@link #DEFAULT_FAN_IN}, with more runs they are merged into fewer
+	 * and longer ones first
+	 *
+	 * @param fanIn
+	 */
+	public void setFanIn(int fanIn) {
+
+		if (fanIn < 2) {
+			throw new IllegalArgumentException("fanIn should be at least 2: " + fanIn);
+		}
+
+		this.fanIn = fanIn;
+	}
+
+	/**
+	 * where to put the runs, default the temp directory
+	 *
+	 * @param directory
+	 */
+	public void setTempDirectory(File directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * sort a csv into another one, default charset "gbk", default delimiter ','
+	 *
+	 * @param input
+	 * @param output
+	 * @throws IOException
+	 * @throws CsvException
+	 */
+	public void sort(File input, File output) throws IOException, CsvException {
+		sort(input, CsvRW.DEFAULT_DELIMITER, CsvRW.DEFAULT_CHARSET, output);
+	}
+
+	/**
+	 * sort a csv into another one, the unique columns are checked with {@link UniqueStrategy#SPILL}, so their
+	 * duplicates fail the sort once the input was read; the output is deleted if the sort fails
+	 *
+	 * @param input
+	 * @param delimiter
+	 * @param charset
+	 * @param output
+	 *            a ".gz" or ".zst" file is compressed
+	 * @throws IOException
+	 * @throws CsvException
+	 */
+	public void sort(File input, char delimiter, Charset charset, File output) throws IOException, CsvException {
+
+		CsvReader<T> reader = CsvReader.openMapped(input, delimiter, charset, recordClass);
+		reader.setUniqueStrategy(UniqueStrategy.SPILL);
+
+		CsvWriter<T> writer;
+		try {
+			writer = new CsvWriter<T>(output, delimiter, charset, recordClass);
+		} catch (IOException e) {
+			reader.close();
+			throw e;
+		} catch (CsvException e) {
+			reader.close();
+			throw e;
+		}
+
+		boolean sorted = false;
+		try {
+			sort(reader, writer);
+			writer.finish();
+			sorted = true;
+		} finally {
+
+			writer.close();
+
+			if (!sorted) {
+				output.delete();
+			}
+
+		}
+
+	}
+
+	/**
+	 * read the remaining records of a reader and write them sorted, the reader is closed, the writer is left open and
+	 * does not check the unique columns again while sorting
+	 *
+	 * @param reader
+	 * @param writer
+	 * @throws IOException
+	 * @throws CsvException
+	 */
+	public void sort(CsvReader<T> reader, final CsvWriter<T> writer) throws IOException, CsvException {
+
+		boolean uniqueChecked = writer.uniqueChecked;
+		writer.uniqueChecked = false;
+
+		long batchLimit = Math.max(1, memoryLimit / 2);
+
+		List<File> runs = new ArrayList<File>();
+		Future<File> spilling = null;
+
+		try {
+
+			List<T> batch = new ArrayList<T>();
+			long batchSize = 0;
+
+			T record;
+			while ((record = reader.readRecord()) != null) {
+
+				batch.add(record);
+				batchSize += estimate(record);
+
+				if (batchSize >= batchLimit) {
+
+					/*
+					 * at most one batch is spilled while the next one is read
+					 */
+					if (spilling != null) {
+						runs.add(await(spilling));
+						spilling = null;
+					}
+
+					spilling = spill(batch);
+
+					batch = new ArrayList<T>();
+					batchSize = 0;
+
+				}
+
+			}
+
+			if (spilling != null) {
+				runs.add(await(spilling));
+				spilling = null;
+			}
+
+			Sink<T> output = new Sink<T>() {
+
+				@Override
+				public void write(T record) throws IOException, CsvException {
+					writer.writeRecord(record);
+				}
+			};
+
+			if (runs.isEmpty()) {
+
+				for (T t : sort(batch)) {
+					output.write(t);
+				}
+
+				return;
+			}
+
+			if (!batch.isEmpty()) {
+				runs.add(writeRun(sort(batch)));
+			}
+
+			batch = null;
+
+			while (runs.size() > fanIn) {
+				runs = mergeRuns(runs);
+			}
+
+			merge(runs, output);
+
+		} finally {
+
+			writer.uniqueChecked = uniqueChecked;
+			reader.close();
+
+			if (spilling != null) {
+				try {
+					runs.add(spilling.get());
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				} catch (ExecutionException e) {
+					// already failed
+				}
+			}
+
+			for (File run : runs) {
+				run.delete();
+			}
+
+		}
+
+	}
+
+	/**
+	 * sort and write a batch in the common pool
+	 *
+	 * @param batch
+	 * @return the run
+	 */
+	private Future<File> spill(final List<T> batch) {
+		return ForkJoinPool.commonPool().submit(new Callable<File>() {
+
+			@Override
+			public File call() throws IOException, CsvException {
+				return writeRun(sort(batch));
+			}
+		});
+	}
+
+	private static File await(Future<File> future) throws IOException, CsvException {
+
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			throw new InterruptedIOException("interrupted while spilling a run");
+		} catch (ExecutionException e) {
+
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+
+			if (cause instanceof CsvException) {
+				throw (CsvException) cause;
+			}
+
+			if (cause instanceof UncheckedCsvException) {
+				throw ((UncheckedCsvException) cause).getCause();
+			}
+
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+
+			throw new IOException(cause);
+
+		}
+
+	}
+
+	@SuppressWarnings("unchecked")
+	private T[] sort(List<T> batch) throws CsvException {
+
+		T[] records = batch.toArray((T[]) new CsvBean[batch.size()]);
+
+		try {
+			Arrays.parallelSort(records, comparator);
+		} catch (UncheckedCsvException e) {
+			throw e.getCause();
+		}
+
+		return records;
+	}
+
+	private int compareKeys(T o1, T o2) throws CsvException {
+
+		for (ColumnBinding<T> key : keys) {
+
+			int c;
+			if (key.isDirect()) {
+				c = key.isFloating() ? Double.compare(key.getDouble(o1), key.getDouble(o2)) : Long.compare(key
+						.getLong(o1), key.getLong(o2));
+			} else {
+				c = compareValues(key, o1, o2);
+			}
+
+			if (c != 0) {
+				return c;
+			}
+
+		}
+
+		return 0;
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static <T extends CsvBean> int compareValues(ColumnBinding<T> key, T o1, T o2) throws CsvException {
+
+		Object v1 = key.get(o1);
+		Object v2 = key.get(o2);
+
+		if (v1 == null || v2 == null) {
+			return v1 == null ? (v2 == null ? 0 : -1) : 1;
+		}
+
+		if (v1 instanceof CharSequence && v2 instanceof CharSequence) {
+			return v1.toString().compareTo(v2.toString());
+		}
+
+		if (v1 instanceof Comparable && v1.getClass() == v2.getClass()) {
+			return ((Comparable) v1).compareTo(v2);
+		}
+
+		return key.getValue(o1).compareTo(key.getValue(o2));
+	}
+
+	/**
+	 * estimated heap of a bean
+	 *
+	 * @param record
+	 * @return
+	 * @throws CsvException
+	 */
+	private long estimate(T record) throws CsvException {
+
+		long size = RECORD_OVERHEAD;
+
+		for (ColumnBinding<T> binding : schema.getBindings()) {
+
+			if (binding.isDirect()) {
+				size += 8;
+				continue;
+			}
+
+			Object value = binding.get(record);
+			size += value instanceof CharSequence ? FIELD_OVERHEAD + 2L * ((CharSequence) value).length()
+					: FIELD_OVERHEAD;
+
+		}
+
+		return size;
+	}
+
+	private File writeRun(T[] records) throws IOException, CsvException {
+
+		File file = File.createTempFile("aicsv-sort", ".run", directory);
+
+		boolean written = false;
+		RunWriter out = new RunWriter(file);
+		try {
+
+			for (T record : records) {
+				out.write(record);
+			}
+
+			written = true;
+
+		} finally {
+
+			out.close();
+
+			if (!written) {
+				file.delete();
+			}
+
+		}
+
+		return file;
+	}
+
+	/**
+	 * merge every fan-in runs into one, keeping the runs in input order
+	 *
+	 * @param runs
+	 * @return
+	 * @throws IOException
+	 * @throws CsvException
+	 */
+	private List<File> mergeRuns(List<File> runs) throws IOException, CsvException {
+
+		List<File> merged = new ArrayList<File>();
+
+		try {
+
+			for (int from = 0; from < runs.size(); from += fanIn) {
+
+				List<File> group = runs.subList(from, Math.min(from + fanIn, runs.size()));
+				if (group.size() == 1) {
+					merged.add(group.get(0));
+					continue;
+				}
+
+				File file = File.createTempFile("aicsv-sort", ".run", directory);
+				merged.add(file);
+
+				RunWriter out = new RunWriter(file);
+				try {
+					merge(group, out);
+				} finally {
+					out.close();
+				}
+
+				for (File run : group) {
+					run.delete();
+				}
+
+			}
+
+		} catch (IOException e) {
+			deleteMerged(runs, merged);
+			throw e;
+		} catch (CsvException e) {
+			deleteMerged(runs, merged);
+			throw e;
+		}
+
+		return merged;
+	}
+
+	/**
+	 * the runs still to delete are the ones left of the input, the new ones are deleted here
+	 */
+	private static void deleteMerged(List<File> runs, List<File> merged) {
+
+		for (File file : merged) {
+			if (!runs.contains(file)) {
+				file.delete();
+			}
+		}
+
+	}
+
+	private void merge(List<File> runs, Sink<T> out) throws IOException, CsvException {
+
+		PriorityQueue<RunReader> queue = new PriorityQueue<RunReader>();
+		List<RunReader> opened = new ArrayList<RunReader>();
+
+		try {
+
+			for (int i = 0; i < runs.size(); i++) {
+
+				RunReader run = new RunReader(i, runs.get(i));
+				opened.add(run);
+
+				if (run.next()) {
+					queue.add(run);
+				}
+
+			}
+
+			while (!queue.isEmpty()) {
+
+				RunReader run = queue.poll();
+				out.write(run.current);
+
+				if (run.next()) {
+					queue.add(run);
+				}
+
+			}
+
+		} catch (UncheckedCsvException e) {
+			throw e.getCause();
+		} finally {
+			for (RunReader run : opened) {
+				run.in.close();
+			}
+		}
+
+	}
+
+	private interface Sink<T> {
+
+		void write(T record) throws IOException, CsvException;
+
+	}
+
+	/**
+	 * writes the records of a run, each one as its line then its cells in binding order
+	 */
+	private final class RunWriter implements Sink<T> {
+
+		private final DataOutputStream out;
+
+		RunWriter(File file) throws IOException {
+			this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file),
+					Compression.BUFFER_SIZE));
+		}
+
+		@Override
+		public void write(T record) throws IOException, CsvException {
+
+			writeVarLong(record.getLine());
+
+			for (ColumnBinding<T> binding : schema.getBindings()) {
+
+				if (binding.isDirect()) {
+
+					if (binding.isFloating()) {
+						out.writeDouble(binding.getDouble(record));
+					} else {
+						long value = binding.getLong(record);
+						writeVarLong((value << 1) ^ (value >> 63));
+					}
+
+					continue;
+				}
+
+				/*
+				 * 0 for null, otherwise 1 + the length
+				 */
+				String value = binding.getValue(record);
+				if (value == null) {
+					writeVarLong(0);
+					continue;
+				}
+
+				byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+				writeVarLong(bytes.length + 1L);
+				out.write(bytes);
+
+			}
+
+		}
+
+		private void writeVarLong(long value) throws IOException {
+
+			while ((value & ~0x7fL) != 0) {
+				out.write((int) (value & 0x7f) | 0x80);
+				value >>>= 7;
+			}
+
+			out.write((int) value);
+
+		}
+
+		void close() throws IOException {
+			out.close();
+		}
+
+	}
+
+	/**
+	 * sequential reader of a run, ordered by its current record then by run number
+	 */
+	private final class RunReader implements Comparable<RunReader> {
+
+		final int number;
+		final DataInputStream in;
+		T current;
+
+		private byte[] bytes = new byte[256];
+
+		RunReader(int number, File file) throws IOException {
+			this.number = number;
+			this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), Compression.BUFFER_SIZE));
+		}
+
+		boolean next() throws IOException, CsvException {
+
+			int first = in.read();
+			if (first < 0) {
+				in.close();
+				return false;
+			}
+
+			T record = schema.newInstance();
+			record.setLine((int) readVarLong(first));
+
+			for (ColumnBinding<T> binding : schema.getBindings()) {
+
+				if (binding.isDirect()) {
+
+					if (binding.isFloating()) {
+						binding.setDouble(record, in.readDouble());
+					} else {
+						long value = readVarLong(in.readUnsignedByte());
+						binding.setLong(record, (value >>> 1) ^ -(value & 1));
+					}
+
+					continue;
+				}
+
+				int length = (int) readVarLong(in.readUnsignedByte());
+				if (length == 0) {
+					continue;
+				}
+
+				length--;
+				if (bytes.length < length) {
+					bytes = new byte[Math.max(length, bytes.length * 2)];
+				}
+				in.readFully(bytes, 0, length);
+
+				binding.setValue(record, new String(bytes, 0, length, StandardCharsets.UTF_8));
+
+			}
+
+			current = record;
+
+			return true;
+		}
+
+		private long readVarLong(int first) throws IOException {
+
+			long value = first & 0x7f;
+			int shift = 7;
+
+			int b = first;
+			while ((b & 0x80) != 0) {
+
+				b = in.read();
+				if (b < 0) {
+					throw new EOFException("truncated run");
+				}
+
+				value |= (long) (b & 0x7f) << shift;
+				shift += 7;
+
+			}
+
+			return value;
+		}
+
+		@Override
+		public int compareTo(RunReader o) {
+
+			int c = comparator.compare(current, o.current);
+
+			return c != 0 ? c : number - o.number;
+		}
+
+	}
+
+}
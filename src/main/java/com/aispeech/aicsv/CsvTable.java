@@ -0,0 +1,650 @@
+package com.aispeech.aicsv;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * records of a csv kept column by column instead of as beans<br/>
+ * an int, short or byte column is an int[], a long column a long[], a double column a double[], whatever its
+ * constraints, other columns keep their normalized cells dictionary-encoded, i.e. an int[] of codes into the distinct
+ * values, until a column turns out to have mostly distinct values, it is then kept as a String[]; the lines are an
+ * int[]<br/>
+ * a cell converted to another type than String is converted once, the converted value is kept with it and shared by
+ * every bean set from it<br/>
+ * the records are checked against the {@link Column} constraints and converted while loading, as
+ * {@link CsvReader#readRecord()} does, but a bean is only created by {@link #get(int)}<br/>
+ * a loaded table is not modified any more, it can be read by several threads at once
+ *
+ * @param <T>
+ */
+public final class CsvTable<T extends CsvBean> implements Iterable<T> {
+
+	/**
+	 * a string column stays dictionary-encoded up to this many distinct values, or while at most half of its values
+	 * are distinct
+	 */
+	static final int DICTIONARY_LIMIT = 1 << 16;
+
+	private static final int INITIAL_CAPACITY = 1024;
+
+	private final ColumnSchema<T> schema;
+	private final List<ColumnBinding<T>> bindings;
+	private final ColumnData[] columns;
+	private final Map<String, Integer> columnIndexes = new HashMap<String, Integer>();
+
+	private int[] lines = new int[INITIAL_CAPACITY];
+	private int size = 0;
+
+	CsvTable(ColumnSchema<T> schema, List<ColumnBinding<T>> bindings) throws CsvException {
+
+		this.schema = schema;
+		this.bindings = bindings;
+		this.columns = new ColumnData[bindings.size()];
+
+		/*
+		 * a blank cell leaves a primitive field with the value of a new bean
+		 */
+		T prototype = null;
+
+		for (int i = 0; i < columns.length; i++) {
+
+			ColumnBinding<T> binding = bindings.get(i);
+			Class<?> type = binding.getField().getType();
+
+			if (binding.isPrimitive() && prototype == null) {
+				prototype = schema.newInstance();
+			}
+
+			if (!binding.isPrimitive()) {
+				columns[i] = new StringColumn(binding.isConverted());
+			} else if (type == double.class) {
+				columns[i] = new DoubleColumn(binding.getDouble(prototype));
+			} else if (type == long.class) {
+				columns[i] = new LongColumn(binding.getLong(prototype));
+			} else {
+				columns[i] = new IntColumn((int) binding.getLong(prototype));
+			}
+
+			columnIndexes.put(binding.getName(), i);
+
+		}
+
+	}
+
+	/**
+	 * load every record of a csv, default charset "gbk", default delimiter ','
+	 *
+	 * @param <T>
+	 * @param csvFile
+	 * @param t
+	 * @return
+	 * @throws IOException
+	 * @throws CsvException
+	 *             for the first record which breaks a constraint
+	 */
+	public static <T extends CsvBean> CsvTable<T> load(File csvFile, Class<T> t) throws IOException, CsvException {
+		return load(CsvReader.openMapped(csvFile, t));
+	}
+
+	/**
+	 * load the remaining records of a reader and close it, only the columns it reads are kept, see
+	 * {@link CsvReader#select(String...)}, and only the records its filter accepts, see
+	 * {@link CsvReader#filter(RowFilter)}
+	 *
+	 * @param <T>
+	 * @param reader
+	 * @return
+	 * @throws IOException
+	 * @throws CsvException
+	 *             for the first record which breaks a constraint
+	 */
+	public static <T extends CsvBean> CsvTable<T> load(CsvReader<T> reader) throws IOException, CsvException {
+		return reader.readTable();
+	}
+
+	/**
+	 * number of records
+	 *
+	 * @return
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * names of the columns, in the order of their indexes
+	 *
+	 * @return
+	 */
+	public List<String> getColumnNames() {
+
+		List<String> names = new ArrayList<String>(bindings.size());
+		for (ColumnBinding<T> binding : bindings) {
+			names.add(binding.getName());
+		}
+
+		return Collections.unmodifiableList(names);
+	}
+
+	/**
+	 * index of a column, for the getters which take one
+	 *
+	 * @param columnName
+	 * @return
+	 * @throws IllegalArgumentException
+	 *             if the table has no such column
+	 */
+	public int getColumnIndex(String columnName) {
+
+		Integer index = columnIndexes.get(columnName);
+		if (index == null) {
+			throw new IllegalArgumentException("column[" + columnName + "] is not in the table " + columnIndexes
+					.keySet());
+		}
+
+		return index;
+	}
+
+	public int getLine(int row) {
+		checkRow(row);
+		return lines[row];
+	}
+
+	/**
+	 * create the bean of a record, every call returns a new one
+	 *
+	 * @param row
+	 * @return
+	 * @throws CsvException
+	 */
+	public T get(int row) throws CsvException {
+
+		checkRow(row);
+
+		T t = schema.newInstance();
+		t.setLine(lines[row]);
+
+		for (int i = 0; i < columns.length; i++) {
+			columns[i].set(t, bindings.get(i), row);
+		}
+
+		return t;
+	}
+
+	/**
+	 * the normalized cell of a string column, or the value of a primitive one as a String
+	 *
+	 * @param row
+	 * @param column
+	 * @return
+	 */
+	public String getString(int row, int column) {
+		checkRow(row);
+		return columns[column].getString(row);
+	}
+
+	public String getString(int row, String columnName) {
+		return getString(row, getColumnIndex(columnName));
+	}
+
+	/**
+	 * the value of an int, short, byte or long column
+	 *
+	 * @param row
+	 * @param column
+	 * @return
+	 * @throws IllegalArgumentException
+	 *             if the column is not integral
+	 */
+	public long getLong(int row, int column) {
+
+		checkRow(row);
+
+		ColumnData data = columns[column];
+		if (data instanceof IntColumn) {
+			return ((IntColumn) data).values[row];
+		}
+
+		if (data instanceof LongColumn) {
+			return ((LongColumn) data).values[row];
+		}
+
+		throw new IllegalArgumentException("column[" + bindings.get(column).getName() + "] is not integral");
+	}
+
+	public long getLong(int row, String columnName) {
+		return getLong(row, getColumnIndex(columnName));
+	}
+
+	/**
+	 * the value of a numeric column
+	 *
+	 * @param row
+	 * @param column
+	 * @return
+	 * @throws IllegalArgumentException
+	 *             if the column is not numeric
+	 */
+	public double getDouble(int row, int column) {
+
+		if (columns[column] instanceof DoubleColumn) {
+			checkRow(row);
+			return ((DoubleColumn) columns[column]).values[row];
+		}
+
+		try {
+			return getLong(row, column);
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("column[" + bindings.get(column).getName() + "] is not numeric");
+		}
+
+	}
+
+	public double getDouble(int row, String columnName) {
+		return getDouble(row, getColumnIndex(columnName));
+	}
+
+	/**
+	 * iterate the records, a bean is created for each of them, see {@link #get(int)}, a bean which can not be created
+	 * ends the iteration with an {@link UncheckedCsvException}
+	 */
+	@Override
+	public Iterator<T> iterator() {
+		return new Iterator<T>() {
+
+			private int row = 0;
+
+			@Override
+			public boolean hasNext() {
+				return row < size;
+			}
+
+			@Override
+			public T next() {
+
+				if (row >= size) {
+					throw new NoSuchElementException();
+				}
+
+				try {
+					return get(row++);
+				} catch (CsvException e) {
+					throw new UncheckedCsvException(e);
+				}
+
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	private void checkRow(int row) {
+		if (row < 0 || row >= size) {
+			throw new IndexOutOfBoundsException("row " + row + " of " + size);
+		}
+	}
+
+	/*
+	 * called while loading, a record is added by addLine() and then one add per column
+	 */
+
+	void addLine(int line) {
+
+		if (size == lines.length) {
+			lines = Arrays.copyOf(lines, size * 2);
+		}
+
+		lines[size++] = line;
+
+	}
+
+	void addLong(int column, long value) {
+		columns[column].addLong(size - 1, value);
+	}
+
+	void addDouble(int column, double value) {
+		((DoubleColumn) columns[column]).add(size - 1, value);
+	}
+
+	/**
+	 * add a normalized cell, a blank cell of a primitive column takes the value of a new bean
+	 *
+	 * @param column
+	 * @param value
+	 * @throws CsvException
+	 *             if the value can not be converted
+	 */
+	void addString(int column, String value) throws CsvException {
+
+		ColumnData data = columns[column];
+
+		if (data instanceof StringColumn) {
+			((StringColumn) data).add(size - 1, value, bindings.get(column));
+			return;
+		}
+
+		if (value.length() == 0) {
+			data.addDefault(size - 1);
+			return;
+		}
+
+		Object v = bindings.get(column).parse(value);
+		if (data instanceof DoubleColumn) {
+			addDouble(column, ((Number) v).doubleValue());
+		} else {
+			addLong(column, ((Number) v).longValue());
+		}
+
+	}
+
+	/**
+	 * release the spare capacity once every record is loaded
+	 */
+	void trim() {
+
+		lines = Arrays.copyOf(lines, size);
+
+		for (ColumnData column : columns) {
+			column.trim(size);
+		}
+
+	}
+
+	private abstract static class ColumnData {
+
+		abstract <T extends CsvBean> void set(T t, ColumnBinding<T> binding, int row) throws CsvException;
+
+		abstract String getString(int row);
+
+		void addLong(int row, long value) {
+			throw new IllegalStateException();
+		}
+
+		void addDefault(int row) {
+			throw new IllegalStateException();
+		}
+
+		abstract void trim(int size);
+
+	}
+
+	private static final class IntColumn extends ColumnData {
+
+		private final int defaultValue;
+		private int[] values = new int[INITIAL_CAPACITY];
+
+		IntColumn(int defaultValue) {
+			this.defaultValue = defaultValue;
+		}
+
+		@Override
+		void addLong(int row, long value) {
+
+			if (row == values.length) {
+				values = Arrays.copyOf(values, row * 2);
+			}
+
+			values[row] = (int) value;
+
+		}
+
+		@Override
+		void addDefault(int row) {
+			addLong(row, defaultValue);
+		}
+
+		@Override
+		<T extends CsvBean> void set(T t, ColumnBinding<T> binding, int row) throws CsvException {
+			binding.setLong(t, values[row]);
+		}
+
+		@Override
+		String getString(int row) {
+			return String.valueOf(values[row]);
+		}
+
+		@Override
+		void trim(int size) {
+			values = Arrays.copyOf(values, size);
+		}
+
+	}
+
+	private static final class LongColumn extends ColumnData {
+
+		private final long defaultValue;
+		private long[] values = new long[INITIAL_CAPACITY];
+
+		LongColumn(long defaultValue) {
+			this.defaultValue = defaultValue;
+		}
+
+		@Override
+		void addLong(int row, long value) {
+
+			if (row == values.length) {
+				values = Arrays.copyOf(values, row * 2);
+			}
+
+			values[row] = value;
+
+		}
+
+		@Override
+		void addDefault(int row) {
+			addLong(row, defaultValue);
+		}
+
+		@Override
+		<T extends CsvBean> void set(T t, ColumnBinding<T> binding, int row) throws CsvException {
+			binding.setLong(t, values[row]);
+		}
+
+		@Override
+		String getString(int row) {
+			return String.valueOf(values[row]);
+		}
+
+		@Override
+		void trim(int size) {
+			values = Arrays.copyOf(values, size);
+		}
+
+	}
+
+	private static final class DoubleColumn extends ColumnData {
+
+		private final double defaultValue;
+		private double[] values = new double[INITIAL_CAPACITY];
+
+		DoubleColumn(double defaultValue) {
+			this.defaultValue = defaultValue;
+		}
+
+		void add(int row, double value) {
+
+			if (row == values.length) {
+				values = Arrays.copyOf(values, row * 2);
+			}
+
+			values[row] = value;
+
+		}
+
+		@Override
+		void addDefault(int row) {
+			add(row, defaultValue);
+		}
+
+		@Override
+		<T extends CsvBean> void set(T t, ColumnBinding<T> binding, int row) throws CsvException {
+			binding.setDouble(t, values[row]);
+		}
+
+		@Override
+		String getString(int row) {
+			return String.valueOf(values[row]);
+		}
+
+		@Override
+		void trim(int size) {
+			values = Arrays.copyOf(values, size);
+		}
+
+	}
+
+	/**
+	 * dictionary-encoded until it has too many distinct values, then plain
+	 */
+	private static final class StringColumn extends ColumnData {
+
+		/**
+		 * whether the cells are converted, the converted values are kept along with the cells then
+		 */
+		private final boolean converted;
+
+		private Map<String, Integer> codes = new HashMap<String, Integer>();
+		private List<String> dictionary = new ArrayList<String>();
+		private List<Object> parsedDictionary;
+		private int[] rowCodes = new int[INITIAL_CAPACITY];
+
+		private String[] values = null;
+		private Object[] parsedValues = null;
+
+		StringColumn(boolean converted) {
+			this.converted = converted;
+			this.parsedDictionary = converted ? new ArrayList<Object>() : null;
+		}
+
+		/**
+		 * add a normalized cell, it's converted on load, so a bad value fails the load as it fails a read
+		 *
+		 * @param row
+		 * @param value
+		 * @param binding
+		 * @throws CsvException
+		 *             if the value can not be converted
+		 */
+		<T extends CsvBean> void add(int row, String value, ColumnBinding<T> binding) throws CsvException {
+
+			if (values != null) {
+
+				Object parsed = parse(value, binding);
+
+				if (row == values.length) {
+					values = Arrays.copyOf(values, row * 2);
+					parsedValues = converted ? Arrays.copyOf(parsedValues, row * 2) : null;
+				}
+
+				values[row] = value;
+				if (converted) {
+					parsedValues[row] = parsed;
+				}
+
+				return;
+			}
+
+			Integer code = codes.get(value);
+			if (code == null) {
+
+				Object parsed = parse(value, binding);
+
+				code = dictionary.size();
+				dictionary.add(value);
+				if (converted) {
+					parsedDictionary.add(parsed);
+				}
+				codes.put(value, code);
+
+			}
+
+			if (row == rowCodes.length) {
+				rowCodes = Arrays.copyOf(rowCodes, row * 2);
+			}
+
+			rowCodes[row] = code;
+
+			if (dictionary.size() > DICTIONARY_LIMIT && dictionary.size() * 2 > row + 1) {
+				decode(row + 1);
+			}
+
+		}
+
+		private static <T extends CsvBean> Object parse(String value, ColumnBinding<T> binding) throws CsvException {
+			return value.length() == 0 ? null : binding.parse(value);
+		}
+
+		private void decode(int size) {
+
+			values = new String[Math.max(size * 2, INITIAL_CAPACITY)];
+			parsedValues = converted ? new Object[values.length] : null;
+
+			for (int i = 0; i < size; i++) {
+
+				values[i] = dictionary.get(rowCodes[i]);
+				if (converted) {
+					parsedValues[i] = parsedDictionary.get(rowCodes[i]);
+				}
+
+			}
+
+			codes = null;
+			dictionary = null;
+			parsedDictionary = null;
+			rowCodes = null;
+
+		}
+
+		/**
+		 * a blank cell is set as {@link ColumnBinding#setValue(CsvBean, String)} sets it, other converted cells are
+		 * set from their kept value
+		 */
+		@Override
+		<T extends CsvBean> void set(T t, ColumnBinding<T> binding, int row) throws CsvException {
+
+			String value = getString(row);
+
+			if (!converted || value.length() == 0) {
+				binding.setValue(t, value);
+				return;
+			}
+
+			binding.set(t, values != null ? parsedValues[row] : parsedDictionary.get(rowCodes[row]));
+
+		}
+
+		@Override
+		String getString(int row) {
+			return values != null ? values[row] : dictionary.get(rowCodes[row]);
+		}
+
+		@Override
+		void trim(int size) {
+
+			if (values != null) {
+				values = Arrays.copyOf(values, size);
+				parsedValues = converted ? Arrays.copyOf(parsedValues, size) : null;
+				return;
+			}
+
+			codes = null;
+			rowCodes = Arrays.copyOf(rowCodes, size);
+			dictionary = new ArrayList<String>(dictionary);
+			parsedDictionary = converted ? new ArrayList<Object>(parsedDictionary) : null;
+
+		}
+
+	}
+
+}
@@ -0,0 +1,520 @@
+package com.aispeech.aicsv;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * split csv input into records and cells<br/>
+ * every cell of the current record is kept as an offset/length slice of the tokenizer's buffer, a String is only
+ * created when a cell is asked for by {@link #get(int)}<br/>
+ * the format is the one written by {@link CsvWriter}: cells may be quoted with '"', a quote inside a quoted cell is
+ * doubled, records end with '\r', '\n' or "\r\n" and empty lines are skipped
+ */
+abstract class CsvTokenizer implements Closeable {
+
+	static final char QUOTE = '"';
+	static final char CR = '\r';
+	static final char LF = '\n';
+
+	/*
+	 * cells of the current record
+	 */
+	protected int count = 0;
+	protected int[] starts = new int[16];
+	protected int[] ends = new int[16];
+	protected boolean[] escapes = new boolean[16];
+
+	/**
+	 * cells after this many are scanned over but not kept
+	 */
+	protected int columnLimit = Integer.MAX_VALUE;
+
+	/**
+	 * the result of the last successful {@link #parseLong(int, boolean)} or {@link #parseDouble(int, boolean)}
+	 */
+	long longValue;
+	double doubleValue;
+
+	/**
+	 * reused by {@link #getSequence(int)}
+	 */
+	private final CellSequence sequence = new CellSequence();
+
+	/**
+	 * largest mantissa which a double holds exactly
+	 */
+	private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+	/**
+	 * powers of ten which a double holds exactly
+	 */
+	private static final double[] POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+			1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+	/**
+	 * move to the next non-empty record
+	 *
+	 * @return false if there's no more record
+	 * @throws IOException
+	 */
+	abstract boolean readRecord() throws IOException;
+
+	/**
+	 * get the value of a cell in the current record
+	 *
+	 * @param column
+	 * @return "" if the record has no such column
+	 */
+	abstract String get(int column);
+
+	/**
+	 * get the char, or for a byte tokenizer the unsigned byte, at an index of the buffer
+	 *
+	 * @param index
+	 * @return
+	 */
+	protected abstract int charAt(int index);
+
+	/**
+	 * the units a value is compared with by {@link #regionMatches(int, String, int[], boolean)}, i.e. its chars, or
+	 * for a byte tokenizer its unsigned encoded bytes
+	 *
+	 * @param value
+	 * @return
+	 */
+	abstract int[] encode(String value);
+
+	@Override
+	public abstract void close();
+
+	/**
+	 * keep only the first cells of the next records, the others are only scanned to find where the record ends
+	 *
+	 * @param columnLimit
+	 */
+	void setColumnLimit(int columnLimit) {
+		this.columnLimit = columnLimit;
+	}
+
+	protected void addCell(int start, int end, boolean escaped) {
+
+		if (count == columnLimit) {
+			return;
+		}
+
+		if (count == starts.length) {
+			starts = Arrays.copyOf(starts, count * 2);
+			ends = Arrays.copyOf(ends, count * 2);
+			escapes = Arrays.copyOf(escapes, count * 2);
+		}
+
+		starts[count] = start;
+		ends[count] = end;
+		escapes[count] = escaped;
+		count++;
+
+	}
+
+	/**
+	 * number of cells kept for the current record, see {@link #setColumnLimit(int)}
+	 *
+	 * @return
+	 */
+	int getColumnCount() {
+		return count;
+	}
+
+	String[] getValues() {
+
+		String[] values = new String[count];
+		for (int i = 0; i < count; i++) {
+			values[i] = get(i);
+		}
+
+		return values;
+	}
+
+	/**
+	 * parse a cell of the current record as a decimal integer of at most 18 digits into {@link #longValue}, straight
+	 * from the buffer<br/>
+	 * a cell this can not parse, e.g. a blank one or "1e3", returns false and should be read by {@link #get(int)}
+	 *
+	 * @param column
+	 * @param trim
+	 *            whether ' ' and '\t' around the number are skipped, otherwise only a trailing one is, as in
+	 *            {@link CsvRW#normalizeValue(Object, ColumnBinding)}
+	 * @return
+	 */
+	boolean parseLong(int column, boolean trim) {
+
+		if (column < 0 || column >= count || escapes[column]) {
+			return false;
+		}
+
+		int p = starts[column];
+		int end = ends[column];
+
+		end = trimEnd(p, end, trim);
+		if (trim) {
+			p = trimStart(p, end);
+		}
+
+		if (p == end) {
+			return false;
+		}
+
+		boolean negative = false;
+
+		int c = charAt(p);
+		if (c == '-' || c == '+') {
+
+			negative = c == '-';
+			if (++p == end) {
+				return false;
+			}
+
+		}
+
+		/*
+		 * 18 digits never overflow
+		 */
+		if (end - p > 18) {
+			return false;
+		}
+
+		long value = 0;
+		for (; p < end; p++) {
+
+			int digit = charAt(p) - '0';
+			if (digit < 0 || digit > 9) {
+				return false;
+			}
+
+			value = value * 10 + digit;
+
+		}
+
+		longValue = negative ? -value : value;
+		return true;
+
+	}
+
+	/**
+	 * parse a cell of the current record as a decimal number into {@link #doubleValue}, straight from the buffer<br/>
+	 * only numbers which are computed exactly by one multiplication or division are parsed, i.e. a mantissa of at
+	 * most 2^53 and a decimal exponent within 22, others return false and should be read by {@link #get(int)}, so
+	 * the result is always the one of {@link Double#parseDouble(String)}
+	 *
+	 * @param column
+	 * @param trim
+	 *            see {@link #parseLong(int, boolean)}
+	 * @return
+	 */
+	boolean parseDouble(int column, boolean trim) {
+
+		if (column < 0 || column >= count || escapes[column]) {
+			return false;
+		}
+
+		int p = starts[column];
+		int end = ends[column];
+
+		end = trimEnd(p, end, trim);
+		if (trim) {
+			p = trimStart(p, end);
+		}
+
+		if (p == end) {
+			return false;
+		}
+
+		boolean negative = false;
+
+		int c = charAt(p);
+		if (c == '-' || c == '+') {
+			negative = c == '-';
+			p++;
+		}
+
+		long mantissa = 0;
+		int exponent = 0;
+		boolean digits = false;
+		boolean point = false;
+
+		for (; p < end; p++) {
+
+			c = charAt(p);
+
+			if (c >= '0' && c <= '9') {
+
+				int digit = c - '0';
+				if (mantissa > (MAX_EXACT_MANTISSA - digit) / 10) {
+					return false;
+				}
+
+				mantissa = mantissa * 10 + digit;
+				digits = true;
+
+				if (point) {
+					exponent--;
+				}
+
+			} else if (c == '.' && !point) {
+				point = true;
+			} else {
+				break;
+			}
+
+		}
+
+		if (!digits) {
+			return false;
+		}
+
+		if (p < end) {
+
+			c = charAt(p);
+			if ((c != 'e' && c != 'E') || ++p == end) {
+				return false;
+			}
+
+			boolean negativeExponent = false;
+
+			c = charAt(p);
+			if (c == '-' || c == '+') {
+
+				negativeExponent = c == '-';
+				if (++p == end) {
+					return false;
+				}
+
+			}
+
+			if (end - p > 3) {
+				return false;
+			}
+
+			int e = 0;
+			for (; p < end; p++) {
+
+				int digit = charAt(p) - '0';
+				if (digit < 0 || digit > 9) {
+					return false;
+				}
+
+				e = e * 10 + digit;
+
+			}
+
+			exponent += negativeExponent ? -e : e;
+
+		}
+
+		if (exponent < -22 || exponent > 22) {
+			return false;
+		}
+
+		double value = mantissa;
+		value = exponent < 0 ? value / POWERS_OF_TEN[-exponent] : value * POWERS_OF_TEN[exponent];
+
+		doubleValue = negative ? -value : value;
+		return true;
+
+	}
+
+	/**
+	 * compare a cell of the current record, with the ' ' and '\t' around it skipped, to a value, straight from the
+	 * buffer
+	 *
+	 * @param column
+	 * @param value
+	 * @param units
+	 *            the value given to {@link #encode(String)}
+	 * @param prefix
+	 *            whether the cell only has to start with the value
+	 * @return
+	 */
+	boolean regionMatches(int column, String value, int[] units, boolean prefix) {
+
+		if (column < 0 || column >= count) {
+			return value.isEmpty();
+		}
+
+		if (escapes[column]) {
+			String cell = trim(get(column));
+			return prefix ? cell.startsWith(value) : cell.equals(value);
+		}
+
+		int end = trimEnd(starts[column], ends[column], true);
+		int start = trimStart(starts[column], end);
+
+		int length = end - start;
+		if (length < units.length || (!prefix && length != units.length)) {
+			return false;
+		}
+
+		for (int i = 0; i < units.length; i++) {
+			if (charAt(start + i) != units[i]) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * get a cell of the current record, with the ' ' and '\t' around it skipped, as a view of the buffer when it can
+	 * be read as chars in place<br/>
+	 * the view is reused for the next call and is only valid until then, or until the next {@link #readRecord()}
+	 *
+	 * @param column
+	 * @return
+	 */
+	CharSequence getSequence(int column) {
+
+		if (column < 0 || column >= count) {
+			return "";
+		}
+
+		if (escapes[column]) {
+			return trim(get(column));
+		}
+
+		int end = trimEnd(starts[column], ends[column], true);
+		int start = trimStart(starts[column], end);
+
+		return sequence.reset(start, end);
+	}
+
+	/**
+	 * copy a cell of the current record into a reusable cell, without creating a String unless the cell is escaped
+	 *
+	 * @param column
+	 * @param cell
+	 */
+	void copyTo(int column, CharCell cell) {
+
+		if (column < 0 || column >= count) {
+			cell.reserve(0);
+			return;
+		}
+
+		if (escapes[column]) {
+			cell.set(get(column));
+			return;
+		}
+
+		int start = starts[column];
+		int length = ends[column] - start;
+
+		char[] chars = cell.reserve(length);
+		for (int i = 0; i < length; i++) {
+			chars[i] = (char) charAt(start + i);
+		}
+
+	}
+
+	/**
+	 * chars of [start, end) of the buffer, for a byte tokenizer only valid for ASCII
+	 */
+	private final class CellSequence implements CharSequence {
+
+		private int start;
+		private int end;
+
+		CellSequence reset(int start, int end) {
+			this.start = start;
+			this.end = end;
+			return this;
+		}
+
+		@Override
+		public int length() {
+			return end - start;
+		}
+
+		@Override
+		public char charAt(int index) {
+			return (char) CsvTokenizer.this.charAt(start + index);
+		}
+
+		@Override
+		public CharSequence subSequence(int from, int to) {
+			return toString().substring(from, to);
+		}
+
+		@Override
+		public String toString() {
+
+			char[] chars = new char[end - start];
+			for (int i = 0; i < chars.length; i++) {
+				chars[i] = charAt(i);
+			}
+
+			return new String(chars);
+		}
+
+	}
+
+	/**
+	 * skip the ' ' and '\t' around a value
+	 *
+	 * @param value
+	 * @return
+	 */
+	static String trim(String value) {
+
+		int start = 0;
+		int end = value.length();
+
+		while (start < end && isBlank(value.charAt(start))) {
+			start++;
+		}
+
+		while (end > start && isBlank(value.charAt(end - 1))) {
+			end--;
+		}
+
+		return value.substring(start, end);
+	}
+
+	private int trimStart(int start, int end) {
+
+		while (start < end && isBlank(charAt(start))) {
+			start++;
+		}
+
+		return start;
+	}
+
+	private int trimEnd(int start, int end, boolean trim) {
+
+		if (trim) {
+
+			while (end > start && isBlank(charAt(end - 1))) {
+				end--;
+			}
+
+		} else if (end > start && (isBlank(charAt(end - 1)) || charAt(end - 1) == CR)) {
+			end--;
+		}
+
+		return end;
+	}
+
+	private static boolean isBlank(int c) {
+		return c == ' ' || c == '\t';
+	}
+
+	/**
+	 * collapse the doubled quotes of an escaped cell which could not be unescaped in place
+	 *
+	 * @param value
+	 * @return
+	 */
+	static String unescape(String value) {
+		return value.replace("\"\"", "\"");
+	}
+
+}
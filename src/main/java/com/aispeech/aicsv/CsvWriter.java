@@ -1,14 +1,14 @@
 package com.aispeech.aicsv;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.lang.reflect.Field;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 /**
  * csv writer, you can write a java bean into csv file, the java bean will be mapping to record automatically
@@ -19,7 +19,25 @@ import java.util.List;
  */
 public class CsvWriter<T extends CsvBean> extends CsvRW<T> {
 
-	private com.csvreader.CsvWriter writer = null;
+	private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
+	/**
+	 * default {@link FlushPolicy#bySize(long)}
+	 */
+	public static final long DEFAULT_FLUSH_SIZE = 256 * 1024;
+
+	private WritableByteChannel channel = null;
+	private RecordBuffer out = null;
+	private char delimiter;
+
+	private FlushPolicy flushPolicy = FlushPolicy.bySize(DEFAULT_FLUSH_SIZE);
+	private int bufferedRecords = 0;
+
+	/**
+	 * reusable cells of {@link #writeRecord(CsvBean)}, indexed by binding ordinal
+	 */
+	private String[] values;
+	private final char[] digits = new char[20];
 
 	/**
 	 * create a new csv writer<br/>
@@ -33,8 +51,22 @@ public class CsvWriter<T extends CsvBean> extends CsvRW<T> {
 	 * @throws CsvException
 	 */
 	public CsvWriter(File csv, Class<T> t) throws IOException, CsvException {
-		this(new FileOutputStream(csv), DEFAULT_DELIMITER, DEFAULT_CHARSET, t);
-		this.path = csv.getCanonicalPath();
+		this(csv, DEFAULT_DELIMITER, DEFAULT_CHARSET, t);
+	}
+
+	/**
+	 * create a new csv writer, records are written with the file channel<br/>
+	 * a ".gz" or ".zst" file is compressed
+	 * 
+	 * @param csv
+	 * @param delimiter
+	 * @param charset
+	 * @param t
+	 * @throws IOException
+	 * @throws CsvException
+	 */
+	public CsvWriter(File csv, char delimiter, Charset charset, Class<T> t) throws IOException, CsvException {
+		this(Compression.create(csv), csv.getCanonicalPath(), delimiter, charset, t);
 	}
 
 	/**
@@ -50,15 +82,59 @@ public class CsvWriter<T extends CsvBean> extends CsvRW<T> {
 	 */
 	public CsvWriter(OutputStream outputStream, char delimiter, Charset charset, Class<T> t) throws IOException,
 			CsvException {
+		this(Channels.newChannel(outputStream), null, delimiter, charset, t);
+	}
+
+	private CsvWriter(WritableByteChannel channel, String path, char delimiter, Charset charset, Class<T> t)
+			throws IOException, CsvException {
 
 		super(t);
 
 		recordClass = t;
 
-		writer = new com.csvreader.CsvWriter(outputStream, delimiter, charset);
+		this.path = path;
+		this.delimiter = delimiter;
+		this.channel = channel;
+		this.out = new RecordBuffer(charset);
+
+		try {
+			writeHeaders();
+		} catch (CsvException e) {
+			channel.close();
+			throw e;
+		}
+
+	}
+
+	/**
+	 * an encoder of records for {@link ConcurrentCsvWriter}, it has no output of its own
+	 * 
+	 * @param delimiter
+	 * @param charset
+	 * @param t
+	 * @param uniqueValueMap
+	 *            shared by every encoder of the same output
+	 * @throws CsvException
+	 */
+	CsvWriter(char delimiter, Charset charset, Class<T> t, Map<String, UniqueIndex> uniqueValueMap)
+			throws CsvException {
+
+		super(t);
+
+		this.delimiter = delimiter;
+		this.out = new RecordBuffer(charset);
+		this.uniqueValueMap = uniqueValueMap;
 
-		writeHeaders();
+	}
 
+	/**
+	 * choose when the buffered records are written, default {@link FlushPolicy#bySize(long)} with
+	 * {@link #DEFAULT_FLUSH_SIZE}
+	 * 
+	 * @param flushPolicy
+	 */
+	public void setFlushPolicy(FlushPolicy flushPolicy) {
+		this.flushPolicy = flushPolicy;
 	}
 
 	/**
@@ -69,30 +145,106 @@ public class CsvWriter<T extends CsvBean> extends CsvRW<T> {
 	 */
 	private void writeHeaders() throws IOException, CsvException {
 
-		Field[] fields = recordClass.getDeclaredFields();
+		encodeHeaders();
+		endRecord();
+	}
+
+	void encodeHeaders() throws IOException, CsvException {
+
+		encodeRecord(schema.getColumnNames().toArray(new String[0]));
+	}
 
-		List<String> headers = new ArrayList<String>();
+	private void encodeRecord(String[] record) throws IOException, CsvException {
 
-		for (Field field : fields) {
+		if (out == null) {
+			throw new CsvException("writer was already closed.");
+		}
 
-			Column column = getColumn(field);
+		for (int i = 0; i < record.length; i++) {
 
-			if (column != null) {
-				headers.add(getColumnName(field));
+			if (i > 0) {
+				out.write(delimiter);
 			}
 
+			writeValue(record[i], i == 0);
+
 		}
 
-		writeRecord(headers.toArray(new String[0]));
+		out.write(LINE_SEPARATOR);
+
 	}
 
-	private void writeRecord(String[] record) throws IOException, CsvException {
+	private void endRecord() throws IOException {
 
-		if (writer == null) {
-			throw new CsvException("writer was already closed.");
+		if (flushPolicy.shouldFlush(++bufferedRecords, out.size())) {
+			flush();
 		}
 
-		writer.writeRecord(record, true);
+	}
+
+	/**
+	 * the buffer records are encoded into
+	 * 
+	 * @return
+	 */
+	RecordBuffer getBuffer() {
+		return out;
+	}
+
+	/**
+	 * write a value, quote it when it could not be read back as is
+	 * 
+	 * @param value
+	 * @param firstColumn
+	 * @throws IOException
+	 */
+	private void writeValue(String value, boolean firstColumn) throws IOException {
+
+		if (value == null) {
+			value = "";
+		}
+
+		int length = value.length();
+
+		/*
+		 * an empty first column must be quoted, or a single column record would be read as an empty line
+		 */
+		boolean quote = firstColumn && (length == 0 || value.charAt(0) == '#');
+
+		if (!quote && length > 0) {
+
+			char first = value.charAt(0);
+			char last = value.charAt(length - 1);
+			quote = first == ' ' || first == '\t' || last == ' ' || last == '\t';
+
+		}
+
+		for (int i = 0; i < length && !quote; i++) {
+
+			char c = value.charAt(i);
+			quote = c == CsvTokenizer.QUOTE || c == delimiter || c == CsvTokenizer.CR || c == CsvTokenizer.LF;
+
+		}
+
+		if (!quote) {
+			out.write(value);
+			return;
+		}
+
+		out.write(CsvTokenizer.QUOTE);
+
+		int start = 0;
+		for (int i = 0; i < length; i++) {
+
+			if (value.charAt(i) == CsvTokenizer.QUOTE) {
+				out.write(value, start, i + 1);
+				start = i;
+			}
+
+		}
+
+		out.write(value, start, length);
+		out.write(CsvTokenizer.QUOTE);
 
 	}
 
@@ -107,35 +259,186 @@ public class CsvWriter<T extends CsvBean> extends CsvRW<T> {
 
 		record.setLine(++line);
 
-		List<String> recordArr = new ArrayList<String>();
-		Field[] fields = recordClass.getDeclaredFields();
+		encodeRecord(record);
+		endRecord();
+
+	}
+
+	/**
+	 * check a record and encode it into the buffer, nothing is encoded if a value is invalid
+	 * 
+	 * @param record
+	 * @throws CsvException
+	 * @throws IOException
+	 */
+	void encodeRecord(T record) throws CsvException, IOException {
+
+		if (values == null) {
+			values = new String[schema.size()];
+		}
+
+		/*
+		 * check every value before anything is written
+		 */
+		for (ColumnBinding<T> binding : schema.getBindings()) {
+
+			if (binding.isDirect()) {
+				continue;
+			}
+
+			String value = normalizeValue(binding.getValue(record), binding);
+
+			checkValue(value, binding);
 
-		for (Field field : fields) {
+			values[binding.getOrdinal()] = value;
+
+		}
 
-			Column column = getColumn(field);
-			if (column != null) {
+		if (out == null) {
+			throw new CsvException("writer was already closed.");
+		}
 
-				String value = normalizeValue(getFieldValue(record, field), field);
+		commitUnique();
 
-				checkValue(value, field);
+		for (ColumnBinding<T> binding : schema.getBindings()) {
 
-				recordArr.add(value.toString());
+			int i = binding.getOrdinal();
+			if (i > 0) {
+				out.write(delimiter);
+			}
 
+			if (!binding.isDirect()) {
+				writeValue(values[i], i == 0);
+			} else if (binding.isFloating()) {
+				writeValue(Double.toString(binding.getDouble(record)), i == 0);
+			} else {
+				writeLong(binding.getLong(record), i == 0);
 			}
 
 		}
 
-		writeRecord(recordArr.toArray(new String[0]));
+		out.write(LINE_SEPARATOR);
+
+	}
+
+	/**
+	 * write records, the flush policy is applied as for {@link #writeRecord(CsvBean)}
+	 * 
+	 * @param records
+	 * @throws CsvException
+	 * @throws IOException
+	 */
+	public void writeRecords(Iterable<T> records) throws CsvException, IOException {
+
+		for (T record : records) {
+			writeRecord(record);
+		}
 
 	}
 
 	/**
-	 * close this writer
+	 * write the records of this writer on a dedicated thread from now on, see {@link AsyncCsvWriter}
+	 * 
+	 * @return
+	 */
+	public AsyncCsvWriter<T> async() {
+		return new AsyncCsvWriter<T>(this);
+	}
+
+	/**
+	 * write the buffered records out
+	 * 
+	 * @throws IOException
+	 */
+	public void flush() throws IOException {
+
+		if (out == null) {
+			return;
+		}
+
+		out.writeTo(channel);
+		bufferedRecords = 0;
+
+	}
+
+	/**
+	 * write the digits of a primitive field without creating a String
+	 * 
+	 * @param value
+	 * @param firstColumn
+	 * @throws IOException
+	 */
+	private void writeLong(long value, boolean firstColumn) throws IOException {
+
+		if (delimiter == '-' || (delimiter >= '0' && delimiter <= '9')) {
+			writeValue(Long.toString(value), firstColumn);
+			return;
+		}
+
+		int p = digits.length;
+		long n = value;
+
+		do {
+			digits[--p] = (char) ('0' + Math.abs(n % 10));
+			n /= 10;
+		} while (n != 0);
+
+		if (value < 0) {
+			digits[--p] = '-';
+		}
+
+		out.write(digits, p, digits.length - p);
+
+	}
+
+	/**
+	 * flush and close this writer, unlike {@link #close()} a failure is thrown, e.g. when the disk is full or the
+	 * trailer of a compressed csv could not be written
+	 * 
+	 * @throws IOException
+	 */
+	public void finish() throws IOException {
+		if (channel == null) {
+			/*
+			 * already closed, or an encoder of a ConcurrentCsvWriter, whose unique values are shared
+			 */
+			return;
+		}
+		IOException failure = null;
+		if (out != null) {
+
+			try {
+				out.finish();
+				flush();
+			} catch (IOException e) {
+				failure = e;
+			}
+
+			try {
+				channel.close();
+			} catch (IOException e) {
+				if (failure == null) {
+					failure = e;
+				}
+			}
+
+			out = null;
+			channel = null;
+		}
+		closeUnique();
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	/**
+	 * flush and close this writer, a failure is ignored, see {@link #finish()}
 	 */
 	public void close() {
-		if (writer != null) {
-			writer.close();
-			writer = null;
+		try {
+			finish();
+		} catch (IOException e) {
+			// ignore
 		}
 	}
 
@@ -154,12 +457,13 @@ public class CsvWriter<T extends CsvBean> extends CsvRW<T> {
 
 		CsvWriter<T> writer = new CsvWriter<T>(csvFile, t);
 
-		for (T record : recordList) {
-			writer.writeRecord(record);
+		try {
+			writer.writeRecords(recordList);
+			writer.finish();
+		} finally {
+			writer.close();
 		}
 
-		writer.close();
-
 	}
 
 	/**
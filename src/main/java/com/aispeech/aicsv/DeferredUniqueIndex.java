@@ -0,0 +1,73 @@
+package com.aispeech.aicsv;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * the unique values of one range of a {@link ParallelCsvReader}, kept in line order without being checked, the ranges
+ * are checked against each other in record order once all of them were read
+ */
+final class DeferredUniqueIndex implements UniqueIndex {
+
+	private int[] lines = new int[16];
+	private String[] values = new String[16];
+	private int size = 0;
+
+	/**
+	 * next value to {@link #take(int)}
+	 */
+	private int next = 0;
+
+	@Override
+	public int add(String value, int line) {
+
+		if (size == lines.length) {
+			lines = Arrays.copyOf(lines, size * 2);
+			values = Arrays.copyOf(values, size * 2);
+		}
+
+		lines[size] = line;
+		values[size] = value;
+		size++;
+
+		return ADDED;
+	}
+
+	@Override
+	public void remove(String value, int line) {
+
+		if (size > 0 && lines[size - 1] == line && values[size - 1].equals(value)) {
+			values[--size] = null;
+		}
+
+	}
+
+	/**
+	 * the value of a record, the records are taken in line order
+	 *
+	 * @param line
+	 * @return null if the record has a blank value
+	 */
+	String take(int line) {
+
+		if (next == size || lines[next] != line) {
+			return null;
+		}
+
+		return values[next++];
+	}
+
+	@Override
+	public List<Duplicate> finish() {
+		return Collections.emptyList();
+	}
+
+	/**
+	 * the values are kept for {@link #take(int)}
+	 */
+	@Override
+	public void close() {
+	}
+
+}
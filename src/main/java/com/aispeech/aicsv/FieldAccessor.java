@@ -0,0 +1,13 @@
+package com.aispeech.aicsv;
+
+/**
+ * reads and writes one {@link Column} field of a {@link CsvBean}, created once per field by a {@link FieldAccessors}
+ * strategy
+ */
+interface FieldAccessor {
+
+	Object get(Object bean) throws CsvException;
+
+	void set(Object bean, Object value) throws CsvException;
+
+}
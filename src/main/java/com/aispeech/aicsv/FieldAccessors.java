@@ -0,0 +1,282 @@
+package com.aispeech.aicsv;
+
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * strategies to build a {@link FieldAccessor}<br/>
+ * the strategy can be chosen with the system property "aicsv.accessor" (reflection, method_handle or lambda), a field
+ * which the chosen strategy can not access falls back to reflection<br/>
+ * reflection is the default, a record binding loop calls many accessors from one call site, which keeps the generated
+ * strategies from being inlined, see FieldAccessorBenchmark under src/jmh
+ */
+enum FieldAccessors {
+
+	/**
+	 * {@link Field#get(Object)} and {@link Field#set(Object, Object)}
+	 */
+	REFLECTION {
+
+		@Override
+		FieldAccessor create(Field field) {
+			return newReflectionAccessor(field);
+		}
+	},
+
+	/**
+	 * getter and setter method handles, adapted to (Object)Object and (Object,Object)void once so every call is an
+	 * exact invocation; the handles are instance fields of the accessor, not constants, so the jit calls through them
+	 * instead of folding them into the caller
+	 */
+	METHOD_HANDLE {
+
+		@Override
+		FieldAccessor create(Field field) throws IllegalAccessException {
+
+			field.setAccessible(true);
+
+			MethodHandles.Lookup lookup = MethodHandles.lookup();
+			final MethodHandle getter = lookup.unreflectGetter(field).asType(
+					MethodType.methodType(Object.class, Object.class));
+			final MethodHandle setter = lookup.unreflectSetter(field).asType(
+					MethodType.methodType(void.class, Object.class, Object.class));
+
+			return new FieldAccessor() {
+
+				@Override
+				public Object get(Object bean) throws CsvException {
+
+					try {
+						return (Object) getter.invokeExact(bean);
+					} catch (RuntimeException e) {
+						throw new CsvException(e);
+					} catch (Error e) {
+						throw e;
+					} catch (Throwable e) {
+						throw new CsvException(new Exception(e));
+					}
+
+				}
+
+				@Override
+				public void set(Object bean, Object value) throws CsvException {
+
+					try {
+						setter.invokeExact(bean, value);
+					} catch (RuntimeException e) {
+						throw new CsvException(e);
+					} catch (Error e) {
+						throw e;
+					} catch (Throwable e) {
+						throw new CsvException(new Exception(e));
+					}
+
+				}
+			};
+
+		}
+	},
+
+	/**
+	 * the bean's own public getter and setter, bound through {@link LambdaMetafactory} into generated
+	 * {@link Function} and {@link BiConsumer} classes, fields without a public getter and setter are not supported
+	 */
+	LAMBDA {
+
+		@Override
+		FieldAccessor create(Field field) throws IllegalAccessException {
+
+			MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+			Method getterMethod = findAccessorMethod(field, "get");
+			Method setterMethod = findAccessorMethod(field, "set", field.getType());
+			if (getterMethod == null && field.getType() == boolean.class) {
+				getterMethod = findAccessorMethod(field, "is");
+			}
+
+			if (getterMethod == null || setterMethod == null) {
+				throw new IllegalAccessException("no public getter and setter for " + field);
+			}
+
+			if (!isVisible(field.getDeclaringClass()) || !isVisible(field.getType())) {
+				throw new IllegalAccessException(field + " is not visible from the aicsv class loader");
+			}
+
+			MethodHandle getter = lookup.unreflect(getterMethod);
+			MethodHandle setter = lookup.unreflect(setterMethod);
+
+			try {
+
+				@SuppressWarnings("unchecked")
+				final Function<Object, Object> function = (Function<Object, Object>) LambdaMetafactory.metafactory(
+						lookup, "apply", MethodType.methodType(Function.class),
+						MethodType.methodType(Object.class, Object.class), getter, getter.type().wrap())
+						.getTarget().invoke();
+
+				@SuppressWarnings("unchecked")
+				final BiConsumer<Object, Object> consumer = (BiConsumer<Object, Object>) LambdaMetafactory.metafactory(
+						lookup, "accept", MethodType.methodType(BiConsumer.class),
+						MethodType.methodType(void.class, Object.class, Object.class), setter,
+						setter.type().wrap().changeReturnType(void.class)).getTarget().invoke();
+
+				return new FieldAccessor() {
+
+					@Override
+					public Object get(Object bean) throws CsvException {
+
+						try {
+							return function.apply(bean);
+						} catch (RuntimeException e) {
+							throw new CsvException(e);
+						}
+
+					}
+
+					@Override
+					public void set(Object bean, Object value) throws CsvException {
+
+						try {
+							consumer.accept(bean, value);
+						} catch (RuntimeException e) {
+							throw new CsvException(e);
+						}
+
+					}
+				};
+
+			} catch (Error e) {
+				throw e;
+			} catch (Throwable e) {
+				throw new IllegalAccessException(e.toString());
+			}
+
+		}
+	};
+
+	static final String PROPERTY = "aicsv.accessor";
+
+	private static final FieldAccessors DEFAULT = parse(System.getProperty(PROPERTY));
+
+	abstract FieldAccessor create(Field field) throws IllegalAccessException;
+
+	private static FieldAccessors parse(String name) {
+
+		for (FieldAccessors strategy : values()) {
+			if (strategy.name().equalsIgnoreCase(name)) {
+				return strategy;
+			}
+		}
+
+		return REFLECTION;
+
+	}
+
+	static FieldAccessors getDefault() {
+		return DEFAULT;
+	}
+
+	private static Method findAccessorMethod(Field field, String prefix, Class<?>... parameterTypes) {
+
+		String name = field.getName();
+		name = prefix + Character.toUpperCase(name.charAt(0)) + name.substring(1);
+
+		try {
+
+			Method method = field.getDeclaringClass().getMethod(name, parameterTypes);
+			if (Modifier.isStatic(method.getModifiers()) || !Modifier.isPublic(field.getDeclaringClass().getModifiers())) {
+				return null;
+			}
+
+			if (!prefix.equals("set") && method.getReturnType() != field.getType()) {
+				return null;
+			}
+
+			return method;
+
+		} catch (NoSuchMethodException e) {
+			return null;
+		}
+
+	}
+
+	/**
+	 * the generated classes are defined in this class's loader, so they can only link against classes it can see
+	 *
+	 * @param type
+	 * @return
+	 */
+	private static boolean isVisible(Class<?> type) {
+
+		if (type.isPrimitive()) {
+			return true;
+		}
+
+		try {
+			return Class.forName(type.getName(), false, FieldAccessors.class.getClassLoader()) == type;
+		} catch (ClassNotFoundException e) {
+			return false;
+		}
+
+	}
+
+	private static FieldAccessor newReflectionAccessor(final Field field) {
+
+		field.setAccessible(true);
+
+		return new FieldAccessor() {
+
+			@Override
+			public Object get(Object bean) throws CsvException {
+
+				try {
+					return field.get(bean);
+				} catch (IllegalArgumentException e) {
+					throw new CsvException(e);
+				} catch (IllegalAccessException e) {
+					throw new CsvException(e);
+				}
+
+			}
+
+			@Override
+			public void set(Object bean, Object value) throws CsvException {
+
+				try {
+					field.set(bean, value);
+				} catch (IllegalArgumentException e) {
+					throw new CsvException(e);
+				} catch (IllegalAccessException e) {
+					throw new CsvException(e);
+				}
+
+			}
+		};
+
+	}
+
+	/**
+	 * create an accessor with the default strategy
+	 *
+	 * @param field
+	 * @return
+	 */
+	static FieldAccessor newAccessor(Field field) {
+
+		try {
+			return DEFAULT.create(field);
+		} catch (IllegalAccessException e) {
+			return newReflectionAccessor(field);
+		} catch (RuntimeException e) {
+			return newReflectionAccessor(field);
+		}
+
+	}
+
+}
@@ -0,0 +1,66 @@
+package com.aispeech.aicsv;
+
+/**
+ * decide when a {@link CsvWriter} writes its buffered records out, it is asked after every record<br/>
+ * the records are always written by {@link CsvWriter#flush()} and {@link CsvWriter#close()}
+ */
+public abstract class FlushPolicy {
+
+	/**
+	 *
+	 * @param records
+	 *            number of records buffered since the last flush
+	 * @param bytes
+	 *            number of bytes buffered since the last flush
+	 * @return
+	 */
+	public abstract boolean shouldFlush(int records, long bytes);
+
+	/**
+	 * flush once this many bytes are buffered
+	 *
+	 * @param bytes
+	 * @return
+	 */
+	public static FlushPolicy bySize(final long bytes) {
+		return new FlushPolicy() {
+
+			@Override
+			public boolean shouldFlush(int records, long size) {
+				return size >= bytes;
+			}
+		};
+	}
+
+	/**
+	 * flush once this many records are buffered
+	 *
+	 * @param count
+	 * @return
+	 */
+	public static FlushPolicy byCount(final int count) {
+		return new FlushPolicy() {
+
+			@Override
+			public boolean shouldFlush(int records, long bytes) {
+				return records >= count;
+			}
+		};
+	}
+
+	/**
+	 * only flush when asked to, every record is kept in memory until then
+	 *
+	 * @return
+	 */
+	public static FlushPolicy explicit() {
+		return new FlushPolicy() {
+
+			@Override
+			public boolean shouldFlush(int records, long bytes) {
+				return false;
+			}
+		};
+	}
+
+}
@@ -0,0 +1,216 @@
+package com.aispeech.aicsv;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.FileSystems;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ByteTokenizer} over a file which is being appended to, see {@link CsvReader#follow(long, TimeUnit)}<br/>
+ * the file is read from an offset with positional reads, its end is never taken as the end of the input: a record
+ * is only returned once its line end was written, and when no byte is available {@link #readRecord()} returns false
+ * and the caller waits with {@link #await(long)} before trying again<br/>
+ * the directory of the file is watched so that an append wakes the waiting reader at once, and it is polled with a
+ * growing interval as well, for file systems whose changes are not or only slowly reported
+ */
+final class FollowTokenizer extends ByteTokenizer {
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	static final long MIN_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+	static final long MAX_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+	private final String path;
+
+	private FileChannel channel;
+	private WatchService watcher;
+	private byte[] bytes;
+
+	private long backoff = MIN_WAIT_NANOS;
+
+	/**
+	 *
+	 * @param file
+	 * @param delimiter
+	 * @param charset
+	 * @param offset
+	 *            input offset of the next record
+	 * @throws IOException
+	 */
+	FollowTokenizer(File file, char delimiter, Charset charset, long offset) throws IOException {
+
+		super(delimiter, charset);
+
+		this.path = file.getPath();
+		this.channel = new RandomAccessFile(file, "r").getChannel();
+		this.bytes = new byte[BUFFER_SIZE];
+		this.buffer = ByteBuffer.wrap(bytes);
+		this.bufferOffset = offset;
+		this.watcher = newWatcher(file);
+
+	}
+
+	/**
+	 * watch the directory of a file for changes
+	 *
+	 * @param file
+	 * @return null if it can not be watched, it is only polled then
+	 */
+	private static WatchService newWatcher(File file) {
+
+		File directory = file.getAbsoluteFile().getParentFile();
+		if (directory == null) {
+			return null;
+		}
+
+		WatchService watcher = null;
+		try {
+
+			watcher = FileSystems.getDefault().newWatchService();
+			directory.toPath().register(watcher, StandardWatchEventKinds.ENTRY_MODIFY,
+					StandardWatchEventKinds.ENTRY_CREATE);
+
+			return watcher;
+
+		} catch (IOException e) {
+			// polled only
+		} catch (UnsupportedOperationException e) {
+			// polled only
+		}
+
+		if (watcher != null) {
+			try {
+				watcher.close();
+			} catch (IOException e) {
+				// ignore
+			}
+		}
+
+		return null;
+	}
+
+	@Override
+	protected void fill() throws IOException {
+
+		if (channel == null) {
+			eof = true;
+			return;
+		}
+
+		int remaining = limit - position;
+
+		if (position == 0 && limit == bytes.length) {
+
+			/*
+			 * one record fills the whole buffer
+			 */
+			byte[] grown = new byte[bytes.length * 2];
+			System.arraycopy(bytes, 0, grown, 0, limit);
+
+			bytes = grown;
+			buffer = ByteBuffer.wrap(bytes);
+			bufferChanged();
+
+		} else if (position > 0) {
+			System.arraycopy(bytes, position, bytes, 0, remaining);
+		}
+
+		bufferOffset += position;
+		position = 0;
+		limit = remaining;
+
+		long offset = bufferOffset + limit;
+
+		int read = channel.read(ByteBuffer.wrap(bytes, limit, bytes.length - limit), offset);
+		if (read <= 0) {
+
+			if (channel.size() < offset) {
+				throw new IOException(path + ": the csv was truncated while it was followed");
+			}
+
+			stalled = true;
+			return;
+		}
+
+		limit += read;
+		backoff = MIN_WAIT_NANOS;
+
+	}
+
+	/**
+	 * wait for the file to change, i.e. until it is reported changed or the current poll interval passed, the
+	 * interval doubles up to {@link #MAX_WAIT_NANOS} while nothing is appended
+	 *
+	 * @param timeout
+	 *            at most this many nanoseconds are waited
+	 * @return false if the timeout is over, nothing was waited then
+	 * @throws IOException
+	 */
+	boolean await(long timeout) throws IOException {
+
+		if (timeout <= 0) {
+			return false;
+		}
+
+		long wait = Math.min(backoff, timeout);
+		backoff = Math.min(backoff * 2, MAX_WAIT_NANOS);
+
+		try {
+
+			if (watcher == null) {
+				TimeUnit.NANOSECONDS.sleep(wait);
+				return true;
+			}
+
+			WatchKey key = watcher.poll(wait, TimeUnit.NANOSECONDS);
+			if (key != null) {
+				key.pollEvents();
+				key.reset();
+			}
+
+		} catch (InterruptedException e) {
+			throw new InterruptedIOException("interrupted while following " + path);
+		}
+
+		return true;
+	}
+
+	@Override
+	public void close() {
+
+		buffer = null;
+		bufferChanged();
+
+		if (channel != null) {
+
+			try {
+				channel.close();
+			} catch (IOException e) {
+				// ignore
+			}
+
+			channel = null;
+		}
+
+		if (watcher != null) {
+
+			try {
+				watcher.close();
+			} catch (IOException e) {
+				// ignore
+			}
+
+			watcher = null;
+		}
+
+	}
+
+}
@@ -0,0 +1,35 @@
+package com.aispeech.aicsv;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * {@link UniqueStrategy#EXACT}
+ */
+final class HashSetUniqueIndex implements UniqueIndex {
+
+	private Set<String> values = new HashSet<String>();
+
+	@Override
+	public int add(String value, int line) {
+		return values.add(value) ? ADDED : UNKNOWN_LINE;
+	}
+
+	@Override
+	public void remove(String value, int line) {
+		values.remove(value);
+	}
+
+	@Override
+	public List<Duplicate> finish() {
+		return Collections.emptyList();
+	}
+
+	@Override
+	public void close() {
+		values = new HashSet<String>();
+	}
+
+}
@@ -0,0 +1,284 @@
+package com.aispeech.aicsv;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * {@link UniqueStrategy#HASHED}<br/>
+ * an open addressing table of 128 bit MurmurHash3 values and first lines in direct buffers, split into segments so
+ * that no single buffer has to grow past 2G<br/>
+ * the values themselves are not kept, so a hit is not confirmed: the index is probabilistic, two values whose hashes
+ * collide are taken as duplicates; the hash is seeded at random per index, so such values can't be chosen in advance
+ */
+final class HashedUniqueIndex implements UniqueIndex {
+
+	private static final int SEGMENT_BITS = 6;
+	private static final int SLOT_SIZE = 20;
+	private static final int INITIAL_CAPACITY = 1 << 10;
+	private static final int MAX_CAPACITY = 1 << 26;
+
+	private static final long C1 = 0x87c37b91114253d5L;
+	private static final long C2 = 0x4cf5ad432745937fL;
+
+	private final long seed = new Random().nextLong();
+
+	private ByteBuffer[] tables = new ByteBuffer[1 << SEGMENT_BITS];
+	private final int[] sizes = new int[1 << SEGMENT_BITS];
+
+	/**
+	 * the two halves of the hash of the last value, see {@link #hash(String)}
+	 */
+	private long h1;
+	private long h2;
+
+	@Override
+	public int add(String value, int line) throws IOException {
+
+		hash(value);
+
+		return add(h1, h2, line);
+	}
+
+	@Override
+	public void remove(String value, int line) {
+
+		hash(value);
+
+		int segment = (int) (h2 >>> (64 - SEGMENT_BITS));
+
+		ByteBuffer table = tables[segment];
+		if (table == null) {
+			return;
+		}
+
+		int mask = table.capacity() / SLOT_SIZE - 1;
+
+		int i = (int) h1 & mask;
+		while (true) {
+
+			int offset = i * SLOT_SIZE;
+			long e1 = table.getLong(offset);
+			long e2 = table.getLong(offset + 8);
+
+			if (e1 == 0 && e2 == 0) {
+				return;
+			}
+
+			if (e1 == h1 && e2 == h2) {
+
+				if (table.getInt(offset + 16) != line) {
+					return;
+				}
+
+				break;
+			}
+
+			i = (i + 1) & mask;
+		}
+
+		/*
+		 * empty the slot and move the following entries of the probe sequence back, so none of them is cut off from
+		 * its home slot
+		 */
+		for (int j = (i + 1) & mask;; j = (j + 1) & mask) {
+
+			int offset = j * SLOT_SIZE;
+			long e1 = table.getLong(offset);
+			long e2 = table.getLong(offset + 8);
+
+			if (e1 == 0 && e2 == 0) {
+				break;
+			}
+
+			int home = (int) e1 & mask;
+			boolean reachable = i <= j ? i < home && home <= j : i < home || home <= j;
+			if (reachable) {
+				continue;
+			}
+
+			table.putLong(i * SLOT_SIZE, e1);
+			table.putLong(i * SLOT_SIZE + 8, e2);
+			table.putInt(i * SLOT_SIZE + 16, table.getInt(offset + 16));
+			i = j;
+
+		}
+
+		table.putLong(i * SLOT_SIZE, 0);
+		table.putLong(i * SLOT_SIZE + 8, 0);
+		table.putInt(i * SLOT_SIZE + 16, 0);
+		sizes[segment]--;
+
+	}
+
+	/**
+	 * MurmurHash3 x64 128 over the utf-16 code units, into {@link #h1} and {@link #h2}
+	 * 
+	 * @param value
+	 */
+	private void hash(String value) {
+
+		long h1 = seed;
+		long h2 = seed;
+
+		int length = value.length();
+		int i = 0;
+
+		for (; i + 8 <= length; i += 8) {
+
+			long k1 = pack(value, i, 4);
+			long k2 = pack(value, i + 4, 4);
+
+			h1 ^= mixK1(k1);
+			h1 = Long.rotateLeft(h1, 27) + h2;
+			h1 = h1 * 5 + 0x52dce729;
+
+			h2 ^= mixK2(k2);
+			h2 = Long.rotateLeft(h2, 31) + h1;
+			h2 = h2 * 5 + 0x38495ab5;
+
+		}
+
+		int rest = length - i;
+		if (rest > 4) {
+			h2 ^= mixK2(pack(value, i + 4, rest - 4));
+		}
+		if (rest > 0) {
+			h1 ^= mixK1(pack(value, i, Math.min(rest, 4)));
+		}
+
+		h1 ^= length * 2;
+		h2 ^= length * 2;
+		h1 += h2;
+		h2 += h1;
+		h1 = fmix(h1);
+		h2 = fmix(h2);
+		h1 += h2;
+		h2 += h1;
+
+		/*
+		 * all zero marks an empty slot
+		 */
+		if (h1 == 0 && h2 == 0) {
+			h1 = 1;
+		}
+
+		this.h1 = h1;
+		this.h2 = h2;
+
+	}
+
+	private int add(long h1, long h2, int line) throws IOException {
+
+		int segment = (int) (h2 >>> (64 - SEGMENT_BITS));
+
+		ByteBuffer table = tables[segment];
+		if (table == null) {
+			table = ByteBuffer.allocateDirect(INITIAL_CAPACITY * SLOT_SIZE);
+			tables[segment] = table;
+		}
+
+		int mask = table.capacity() / SLOT_SIZE - 1;
+
+		for (int i = (int) h1 & mask;; i = (i + 1) & mask) {
+
+			int offset = i * SLOT_SIZE;
+			long e1 = table.getLong(offset);
+			long e2 = table.getLong(offset + 8);
+
+			if (e1 == 0 && e2 == 0) {
+
+				table.putLong(offset, h1);
+				table.putLong(offset + 8, h2);
+				table.putInt(offset + 16, line);
+
+				if (++sizes[segment] * 2 > mask + 1) {
+					grow(segment);
+				}
+
+				return ADDED;
+			}
+
+			if (e1 == h1 && e2 == h2) {
+				return table.getInt(offset + 16);
+			}
+
+		}
+
+	}
+
+	private void grow(int segment) throws IOException {
+
+		ByteBuffer table = tables[segment];
+		int capacity = table.capacity() / SLOT_SIZE;
+
+		if (capacity == MAX_CAPACITY) {
+
+			if (sizes[segment] > capacity - capacity / 8) {
+				throw new IOException("too many unique values");
+			}
+
+			return;
+		}
+
+		tables[segment] = ByteBuffer.allocateDirect(capacity * 2 * SLOT_SIZE);
+		sizes[segment] = 0;
+
+		for (int i = 0; i < capacity; i++) {
+
+			int offset = i * SLOT_SIZE;
+			long e1 = table.getLong(offset);
+			long e2 = table.getLong(offset + 8);
+
+			if (e1 != 0 || e2 != 0) {
+				add(e1, e2, table.getInt(offset + 16));
+			}
+
+		}
+
+	}
+
+	private static long pack(String value, int from, int count) {
+
+		long k = 0;
+		for (int i = 0; i < count; i++) {
+			k |= (long) value.charAt(from + i) << (16 * i);
+		}
+
+		return k;
+	}
+
+	private static long mixK1(long k1) {
+		return Long.rotateLeft(k1 * C1, 31) * C2;
+	}
+
+	private static long mixK2(long k2) {
+		return Long.rotateLeft(k2 * C2, 33) * C1;
+	}
+
+	private static long fmix(long k) {
+
+		k ^= k >>> 33;
+		k *= 0xff51afd7ed558ccdL;
+		k ^= k >>> 33;
+		k *= 0xc4ceb9fe1a85ec53L;
+		k ^= k >>> 33;
+
+		return k;
+	}
+
+	@Override
+	public List<Duplicate> finish() {
+		return Collections.emptyList();
+	}
+
+	@Override
+	public void close() {
+		tables = new ByteBuffer[1 << SEGMENT_BITS];
+		Arrays.fill(sizes, 0);
+	}
+
+}
@@ -0,0 +1,105 @@
+package com.aispeech.aicsv;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * {@link ByteTokenizer} over an {@link InputStream}, the bytes are read into a reusable buffer which is compacted, or
+ * grown for a record longer than it, when more bytes are needed<br/>
+ * nothing is decoded until a cell is asked for, see {@link ByteTokenizer#supports(Charset, char)} for the charsets
+ */
+final class InputStreamTokenizer extends ByteTokenizer {
+
+	private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+	private InputStream in;
+	private byte[] bytes;
+
+	InputStreamTokenizer(InputStream in, char delimiter, Charset charset) {
+		this(in, delimiter, charset, DEFAULT_BUFFER_SIZE);
+	}
+
+	InputStreamTokenizer(InputStream in, char delimiter, Charset charset, int bufferSize) {
+
+		super(delimiter, charset);
+
+		this.in = in;
+		this.bytes = new byte[Math.max(bufferSize, 16)];
+		this.buffer = ByteBuffer.wrap(bytes);
+
+	}
+
+	@Override
+	protected void fill() throws IOException {
+
+		if (in == null) {
+			eof = true;
+			return;
+		}
+
+		int remaining = limit - position;
+
+		if (position == 0 && limit == bytes.length) {
+
+			/*
+			 * one record fills the whole buffer
+			 */
+			byte[] grown = new byte[bytes.length * 2];
+			System.arraycopy(bytes, 0, grown, 0, limit);
+
+			bytes = grown;
+			buffer = ByteBuffer.wrap(bytes);
+			bufferChanged();
+
+		} else if (position > 0) {
+			System.arraycopy(bytes, position, bytes, 0, remaining);
+		}
+
+		bufferOffset += position;
+		position = 0;
+		limit = remaining;
+
+		while (limit < bytes.length) {
+
+			int read = in.read(bytes, limit, bytes.length - limit);
+			if (read < 0) {
+				eof = true;
+				return;
+			}
+
+			limit += read;
+
+			/*
+			 * don't wait for a full buffer, some bytes are enough to go on parsing, an incomplete record is resumed
+			 * where its scan stopped
+			 */
+			if (read > 0) {
+				return;
+			}
+
+		}
+
+	}
+
+	@Override
+	public void close() {
+
+		buffer = null;
+		bufferChanged();
+
+		if (in != null) {
+
+			try {
+				in.close();
+			} catch (IOException e) {
+				// ignore
+			}
+
+			in = null;
+		}
+
+	}
+
+}
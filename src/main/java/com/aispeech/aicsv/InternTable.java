@@ -0,0 +1,169 @@
+package com.aispeech.aicsv;
+
+/**
+ * bounded table of the distinct cells of one column, looked up by their raw chars or bytes, see {@link Interning}<br/>
+ * it is an open-addressing hash table which is never resized, once it is full the new values are decoded as usual
+ */
+final class InternTable {
+
+	/**
+	 * at most this many distinct values are kept
+	 */
+	static final int CAPACITY = 1024;
+
+	/**
+	 * longer cells are not interned
+	 */
+	static final int MAX_LENGTH = 64;
+
+	/**
+	 * with {@link Interning#AUTO}, the table is dropped if more than a quarter of this many first lookups missed,
+	 * i.e. the column has more distinct values than the table keeps
+	 */
+	static final int SAMPLE_SIZE = 4096;
+
+	private static final int SLOTS = CAPACITY * 2;
+
+	private final boolean auto;
+
+	/**
+	 * allocated by the first lookup, a reader of a few records has no table at all, see
+	 * {@link CsvReader#disableInterning()}
+	 */
+	private int[] hashes = null;
+	private int[][] units = null;
+	private String[] values = null;
+	private int size = 0;
+
+	private int lookups = 0;
+	private int misses = 0;
+	private boolean enabled = true;
+
+	InternTable(boolean auto) {
+		this.auto = auto;
+	}
+
+	/**
+	 *
+	 * @param interning
+	 * @return null for {@link Interning#NEVER}
+	 */
+	static InternTable of(Interning interning) {
+		return interning == Interning.NEVER ? null : new InternTable(interning == Interning.AUTO);
+	}
+
+	/**
+	 * get the value of a cell in the current record, as {@link CsvTokenizer#get(int)} does, but as the String already
+	 * returned for the same raw cell when there's one
+	 *
+	 * @param tokenizer
+	 * @param column
+	 * @return
+	 */
+	String get(CsvTokenizer tokenizer, int column) {
+
+		if (!enabled || column < 0 || column >= tokenizer.count || tokenizer.escapes[column]) {
+			return tokenizer.get(column);
+		}
+
+		int start = tokenizer.starts[column];
+		int length = tokenizer.ends[column] - start;
+
+		if (length > MAX_LENGTH) {
+			return tokenizer.get(column);
+		}
+
+		if (values == null) {
+			hashes = new int[SLOTS];
+			units = new int[SLOTS][];
+			values = new String[SLOTS];
+		}
+
+		int hash = 0;
+		for (int i = 0; i < length; i++) {
+			hash = 31 * hash + tokenizer.charAt(start + i);
+		}
+
+		int mask = SLOTS - 1;
+		int slot = mix(hash) & mask;
+
+		while (values[slot] != null) {
+
+			if (hashes[slot] == hash && matches(tokenizer, start, length, units[slot])) {
+
+				if (lookups < SAMPLE_SIZE) {
+					lookups++;
+				}
+
+				return values[slot];
+			}
+
+			slot = (slot + 1) & mask;
+
+		}
+
+		String value = tokenizer.get(column);
+
+		if (auto && lookups < SAMPLE_SIZE) {
+
+			lookups++;
+
+			if (++misses * 4 > SAMPLE_SIZE) {
+				drop();
+				return value;
+			}
+
+		}
+
+		if (size < CAPACITY) {
+
+			int[] raw = new int[length];
+			for (int i = 0; i < length; i++) {
+				raw[i] = tokenizer.charAt(start + i);
+			}
+
+			hashes[slot] = hash;
+			units[slot] = raw;
+			values[slot] = value;
+			size++;
+
+		}
+
+		return value;
+
+	}
+
+	boolean isEnabled() {
+		return enabled;
+	}
+
+	private static boolean matches(CsvTokenizer tokenizer, int start, int length, int[] raw) {
+
+		if (raw.length != length) {
+			return false;
+		}
+
+		for (int i = 0; i < raw.length; i++) {
+			if (tokenizer.charAt(start + i) != raw[i]) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private static int mix(int hash) {
+		return hash ^ (hash >>> 16);
+	}
+
+	private void drop() {
+
+		enabled = false;
+
+		hashes = null;
+		units = null;
+		values = null;
+
+	}
+
+}
@@ -0,0 +1,27 @@
+package com.aispeech.aicsv;
+
+/**
+ * whether the cells of a {@link Column} are interned when read, see {@link Column#intern()}<br/>
+ * an interned cell is looked up by its raw chars or bytes in a bounded table of the reader, so a repeated value is
+ * neither decoded nor copied again and every record holding it shares one String, also in the unique sets<br/>
+ * it applies to the fields which take a String, i.e. every field but the directly parsed primitives and the
+ * CharSequence fields filled in place
+ */
+public enum Interning {
+
+	/**
+	 * intern while the column turns out to have few distinct values, the first records decide
+	 */
+	AUTO,
+
+	/**
+	 * always intern, until the table is full
+	 */
+	ALWAYS,
+
+	/**
+	 * never intern, every cell is a new String
+	 */
+	NEVER
+
+}
@@ -0,0 +1,104 @@
+package com.aispeech.aicsv;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+/**
+ * {@link ByteTokenizer} over a memory-mapped file<br/>
+ * the file is mapped in windows, a record crossing the end of a window is read again from a new window starting at
+ * that record, so files larger than 2G can be read as well
+ */
+final class MappedTokenizer extends ByteTokenizer {
+
+	static final int DEFAULT_WINDOW_SIZE = 256 * 1024 * 1024;
+
+	private static final int MAX_WINDOW_SIZE = Integer.MAX_VALUE - 8;
+
+	private FileChannel channel;
+	private final long size;
+	private int windowSize;
+
+	MappedTokenizer(FileChannel channel, char delimiter, Charset charset) throws IOException {
+		this(channel, delimiter, charset, DEFAULT_WINDOW_SIZE);
+	}
+
+	MappedTokenizer(FileChannel channel, char delimiter, Charset charset, int windowSize) throws IOException {
+		this(channel, delimiter, charset, windowSize, 0);
+	}
+
+	/**
+	 * 
+	 * @param channel
+	 * @param delimiter
+	 * @param charset
+	 * @param windowSize
+	 * @param start
+	 *            file offset to start reading from, it should be the start of a record
+	 * @throws IOException
+	 */
+	MappedTokenizer(FileChannel channel, char delimiter, Charset charset, int windowSize, long start)
+			throws IOException {
+
+		super(delimiter, charset);
+
+		this.channel = channel;
+		this.size = channel.size();
+		this.windowSize = Math.max(windowSize, 16);
+
+		map(Math.min(start, size));
+
+	}
+
+	private void map(long start) throws IOException {
+
+		long length = Math.min(windowSize, size - start);
+
+		buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+		bufferOffset = start;
+		position = 0;
+		limit = (int) length;
+		eof = start + length == size;
+
+		bufferChanged();
+
+	}
+
+	@Override
+	protected void fill() throws IOException {
+
+		if (position == 0) {
+
+			if (windowSize == MAX_WINDOW_SIZE) {
+				throw new IOException("record at offset " + bufferOffset + " is larger than " + MAX_WINDOW_SIZE
+						+ " bytes");
+			}
+
+			windowSize = (int) Math.min((long) windowSize * 2, MAX_WINDOW_SIZE);
+
+		}
+
+		map(bufferOffset + position);
+
+	}
+
+	@Override
+	public void close() {
+
+		buffer = null;
+		bufferChanged();
+
+		if (channel != null) {
+
+			try {
+				channel.close();
+			} catch (IOException e) {
+				// ignore
+			}
+
+			channel = null;
+		}
+
+	}
+
+}
@@ -0,0 +1,326 @@
+package com.aispeech.aicsv;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * read one csv file with several threads<br/>
+ * the file is split into byte ranges, a range starts at the first record starting in it, which is found in two steps:
+ * <ol>
+ * <li>every range is scanned in parallel from its first line start, counting its records and finding where the record
+ * after its end starts</li>
+ * <li>a range whose first line start is not where the previous range ended started inside a quoted multi-line cell,
+ * it is scanned again from the right offset, this is rare and only touches that range</li>
+ * </ol>
+ * then the ranges are bound to beans in parallel, each knowing the absolute line of its first record<br/>
+ * unique columns are checked afterwards in record order, so the first occurrence of a value is the one accepted, as
+ * with a sequential read
+ *
+ * @param <T>
+ */
+final class ParallelCsvReader<T extends CsvBean> {
+
+	static final long MIN_CHUNK_SIZE = 1024 * 1024;
+
+	private final File csv;
+	private final char delimiter;
+	private final Charset charset;
+	private final Class<T> recordClass;
+	private final ForkJoinPool pool;
+
+	private long chunkSize;
+	private String path;
+
+	/**
+	 * result of scanning one range
+	 */
+	private static final class Range {
+
+		long end;
+		long first;
+		long next;
+		int count;
+
+	}
+
+	ParallelCsvReader(File csv, char delimiter, Charset charset, Class<T> t, ForkJoinPool pool) {
+
+		this.csv = csv;
+		this.delimiter = delimiter;
+		this.charset = charset;
+		this.recordClass = t;
+		this.pool = pool;
+
+		this.chunkSize = Math.max(MIN_CHUNK_SIZE, csv.length() / (pool.getParallelism() * 4L));
+
+	}
+
+	void setChunkSize(long chunkSize) {
+		this.chunkSize = chunkSize;
+	}
+
+	List<T> read() throws IOException, CsvException {
+
+		path = csv.getCanonicalPath();
+
+		CsvReader<T> head = CsvReader.openMapped(csv, delimiter, charset, recordClass);
+		final int[] headerIndexes = head.getHeaderIndexes();
+		final long dataStart = head.getOffset();
+		head.close();
+
+		final long size = csv.length();
+
+		int n = (int) Math.max(1, (size - dataStart + chunkSize - 1) / chunkSize);
+
+		/*
+		 * find the records of every range
+		 */
+		List<Callable<Range>> scans = new ArrayList<Callable<Range>>();
+		for (int i = 0; i < n; i++) {
+
+			final long start = dataStart + i * chunkSize;
+			final long end = i == n - 1 ? size : start + chunkSize;
+			final boolean aligned = i == 0;
+
+			scans.add(new Callable<Range>() {
+
+				@Override
+				public Range call() throws IOException {
+					return scan(aligned ? start : start - 1, !aligned, end);
+				}
+			});
+
+		}
+
+		List<Range> ranges = invokeAll(scans);
+
+		for (int i = 1; i < n; i++) {
+
+			Range previous = ranges.get(i - 1);
+			Range range = ranges.get(i);
+
+			if (range.first != previous.next) {
+				ranges.set(i, scan(previous.next, false, range.end));
+			}
+
+		}
+
+		/*
+		 * bind every range, each into its own report, the values of unique columns are only collected
+		 */
+		final List<List<T>> records = new ArrayList<List<T>>();
+		final List<ValidationReport> reports = new ArrayList<ValidationReport>();
+		final List<Map<String, DeferredUniqueIndex>> uniques = new ArrayList<Map<String, DeferredUniqueIndex>>();
+		List<Callable<Void>> binds = new ArrayList<Callable<Void>>();
+
+		int line = 1;
+		for (final Range range : ranges) {
+
+			final List<T> recordList = new ArrayList<T>(range.count);
+			final ValidationReport report = new ValidationReport(Integer.MAX_VALUE, 0);
+			final Map<String, DeferredUniqueIndex> unique = new HashMap<String, DeferredUniqueIndex>();
+			final int baseLine = line;
+
+			for (ColumnBinding<T> binding : head.schema.getBindings()) {
+				if (binding.isUnique()) {
+					unique.put(binding.getName(), new DeferredUniqueIndex());
+				}
+			}
+
+			records.add(recordList);
+			reports.add(report);
+			uniques.add(unique);
+
+			binds.add(new Callable<Void>() {
+
+				@Override
+				public Void call() throws IOException, CsvException {
+
+					CsvReader<T> reader = new CsvReader<T>(open(range.first), path, recordClass, headerIndexes,
+							baseLine, range.end, true);
+					reader.uniqueValueMap.putAll(unique);
+
+					recordList.addAll(reader.readRecords(report));
+
+					return null;
+				}
+			});
+
+			line += range.count;
+
+		}
+
+		invokeAll(binds);
+
+		/*
+		 * check unique columns in record order, with the normalized cells as a sequential read does
+		 */
+		ValidationReport report = new ValidationReport(Integer.MAX_VALUE, 0);
+		report.open(path, head.schema);
+
+		List<T> recordList = new ArrayList<T>(line);
+
+		for (int i = 0; i < records.size(); i++) {
+
+			ValidationReport part = reports.get(i);
+			Map<String, DeferredUniqueIndex> unique = uniques.get(i);
+
+			report.addCounts(part);
+
+			int violation = 0;
+			for (T record : records.get(i)) {
+
+				violation = report.transfer(part, violation, record.getLine());
+
+				if (verifyUnique(head, record, unique, report)) {
+					recordList.add(record);
+				} else {
+					report.reject(record.getLine());
+				}
+
+			}
+
+			report.transfer(part, violation, Integer.MAX_VALUE);
+
+		}
+
+		if (report.hasErrors()) {
+			throw report.toException();
+		}
+
+		return recordList;
+
+	}
+
+	private boolean verifyUnique(CsvReader<T> head, T record, Map<String, DeferredUniqueIndex> unique,
+			ValidationReport report) throws CsvException {
+
+		head.line = record.getLine();
+
+		for (ColumnBinding<T> binding : head.schema.getBindings()) {
+
+			if (binding.isUnique()) {
+
+				String value = unique.get(binding.getName()).take(head.line);
+				head.holdUnique(value == null ? "" : value, binding);
+
+			}
+
+		}
+
+		return head.commitUnique(report);
+	}
+
+	private MappedTokenizer open(long start) throws IOException {
+
+		FileChannel channel = new RandomAccessFile(csv, "r").getChannel();
+		try {
+			return new MappedTokenizer(channel, delimiter, charset, MappedTokenizer.DEFAULT_WINDOW_SIZE, start);
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+
+	}
+
+	/**
+	 * count the records starting in [start, end)
+	 *
+	 * @param start
+	 * @param skipLine
+	 *            whether start may be in the middle of a line
+	 * @param end
+	 * @return
+	 * @throws IOException
+	 */
+	private Range scan(long start, boolean skipLine, long end) throws IOException {
+
+		Range range = new Range();
+		range.end = end;
+		range.first = -1;
+
+		MappedTokenizer tokenizer = open(start);
+		try {
+
+			if (skipLine && !tokenizer.skipLine()) {
+				range.first = range.next = tokenizer.getOffset();
+				return range;
+			}
+
+			while (true) {
+
+				if (!tokenizer.readRecord()) {
+					range.next = tokenizer.getOffset();
+					break;
+				}
+
+				long offset = tokenizer.getRecordOffset();
+				if (range.first < 0) {
+					range.first = offset;
+				}
+
+				if (offset >= end) {
+					range.next = offset;
+					break;
+				}
+
+				range.count++;
+
+			}
+
+			if (range.first < 0) {
+				range.first = range.next;
+			}
+
+			return range;
+
+		} finally {
+			tokenizer.close();
+		}
+
+	}
+
+	private <V> List<V> invokeAll(List<Callable<V>> tasks) throws IOException, CsvException {
+
+		List<V> results = new ArrayList<V>();
+
+		for (Future<V> future : pool.invokeAll(tasks)) {
+
+			try {
+				results.add(future.get());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException(e);
+			} catch (ExecutionException e) {
+
+				Throwable cause = e.getCause();
+				if (cause instanceof IOException) {
+					throw (IOException) cause;
+				}
+				if (cause instanceof CsvException) {
+					throw (CsvException) cause;
+				}
+				if (cause instanceof RuntimeException) {
+					throw (RuntimeException) cause;
+				}
+				throw new CsvException(e);
+
+			}
+
+		}
+
+		return results;
+	}
+
+}
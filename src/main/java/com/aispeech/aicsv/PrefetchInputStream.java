@@ -0,0 +1,219 @@
+package com.aispeech.aicsv;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * read a stream ahead on a dedicated thread, e.g. to decompress while the records are parsed<br/>
+ * the thread fills a small ring of reusable buffers, the reader takes them in order and gives them back once read
+ */
+final class PrefetchInputStream extends InputStream {
+
+	static final int BUFFER_COUNT = 4;
+	static final int BUFFER_SIZE = 256 * 1024;
+
+	/**
+	 * a filled buffer, or the end of the stream when count is -1
+	 */
+	private static final class Chunk {
+
+		final byte[] bytes;
+		int count;
+		IOException failure;
+
+		Chunk(byte[] bytes) {
+			this.bytes = bytes;
+		}
+
+	}
+
+	private final InputStream in;
+	private final Thread thread;
+
+	private final BlockingQueue<Chunk> filled = new ArrayBlockingQueue<Chunk>(BUFFER_COUNT + 1);
+	private final BlockingQueue<Chunk> free = new ArrayBlockingQueue<Chunk>(BUFFER_COUNT);
+
+	private Chunk current = null;
+	private int position = 0;
+	private boolean eof = false;
+
+	private volatile boolean closed = false;
+
+	/**
+	 *
+	 * @param in
+	 *            closed by {@link #close()}
+	 * @param name
+	 *            name of the source, for the thread
+	 */
+	PrefetchInputStream(InputStream in, String name) {
+
+		this.in = in;
+
+		for (int i = 0; i < BUFFER_COUNT; i++) {
+			free.add(new Chunk(new byte[BUFFER_SIZE]));
+		}
+
+		this.thread = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				fill();
+			}
+		}, "aicsv-prefetch-" + name);
+
+		thread.setDaemon(true);
+		thread.start();
+
+	}
+
+	/**
+	 * the prefetch thread
+	 */
+	private void fill() {
+
+		try {
+
+			while (!closed) {
+
+				Chunk chunk = free.take();
+
+				try {
+
+					int count = 0;
+					int read = 0;
+
+					/*
+					 * fill the whole buffer, a decompressing stream often returns less
+					 */
+					while (count < chunk.bytes.length && (read = in.read(chunk.bytes, count, chunk.bytes.length
+							- count)) >= 0) {
+						count += read;
+					}
+
+					chunk.count = count;
+					chunk.failure = null;
+
+					if (count > 0) {
+						filled.put(chunk);
+					}
+
+					if (read < 0) {
+						filled.put(new Chunk(null));
+						return;
+					}
+
+				} catch (IOException e) {
+
+					chunk.count = -1;
+					chunk.failure = e;
+					filled.put(chunk);
+					return;
+
+				}
+
+			}
+
+		} catch (InterruptedException e) {
+			// closed
+		}
+
+	}
+
+	/**
+	 * move to the next filled buffer
+	 *
+	 * @return false at the end of the stream
+	 * @throws IOException
+	 */
+	private boolean next() throws IOException {
+
+		if (eof) {
+			return false;
+		}
+
+		if (current != null) {
+			free.add(current);
+			current = null;
+		}
+
+		Chunk chunk;
+		try {
+			chunk = filled.take();
+		} catch (InterruptedException e) {
+			throw new InterruptedIOException("interrupted while waiting for " + thread.getName());
+		}
+
+		if (chunk.failure != null) {
+			eof = true;
+			throw chunk.failure;
+		}
+
+		if (chunk.bytes == null) {
+			eof = true;
+			return false;
+		}
+
+		current = chunk;
+		position = 0;
+
+		return true;
+	}
+
+	@Override
+	public int read() throws IOException {
+
+		if ((current == null || position == current.count) && !next()) {
+			return -1;
+		}
+
+		return current.bytes[position++] & 0xff;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+
+		if (len == 0) {
+			return 0;
+		}
+
+		if ((current == null || position == current.count) && !next()) {
+			return -1;
+		}
+
+		int n = Math.min(len, current.count - position);
+		System.arraycopy(current.bytes, position, b, off, n);
+		position += n;
+
+		return n;
+	}
+
+	@Override
+	public int available() {
+		return current == null ? 0 : current.count - position;
+	}
+
+	@Override
+	public void close() throws IOException {
+
+		if (closed) {
+			return;
+		}
+
+		closed = true;
+		thread.interrupt();
+
+		try {
+			thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		in.close();
+
+	}
+
+}
@@ -0,0 +1,378 @@
+package com.aispeech.aicsv;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * encoded records waiting to be written, kept in reusable byte chunks which are written at once by a gathering write
+ * <br/>
+ * ASCII is copied as is for the charsets which keep it (and latin-1 for ISO-8859-1), UTF-8 is encoded inline, other
+ * characters go through a {@link CharsetEncoder}, unmappable ones are replaced like {@link java.io.OutputStreamWriter}
+ * does
+ */
+final class RecordBuffer {
+
+	static final int CHUNK_SIZE = 64 * 1024;
+
+	private static final char REPLACEMENT = '?';
+
+	private final boolean utf8;
+
+	/**
+	 * characters below it are written as one byte of the same value
+	 */
+	private final char directLimit;
+
+	private final CharsetEncoder encoder;
+
+	private final List<ByteBuffer> filled = new ArrayList<ByteBuffer>();
+	private final List<byte[]> free = new ArrayList<byte[]>();
+	private long filledSize = 0;
+
+	private byte[] chunk = new byte[CHUNK_SIZE];
+	private int position = 0;
+
+	RecordBuffer(Charset charset) {
+
+		String name = charset.name();
+
+		this.utf8 = name.equals("UTF-8");
+
+		if (name.equals("ISO-8859-1")) {
+			directLimit = 0x100;
+		} else if (utf8 || name.equals("US-ASCII") || name.equals("GBK") || name.equals("GB2312")
+				|| name.equals("GB18030") || name.equals("Big5")) {
+			directLimit = 0x80;
+		} else {
+			directLimit = 0;
+		}
+
+		this.encoder = charset.newEncoder().onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+	}
+
+	/**
+	 * number of bytes waiting to be written
+	 *
+	 * @return
+	 */
+	long size() {
+		return filledSize + position;
+	}
+
+	/**
+	 * whether the bytes of records encoded by different buffers can be concatenated, which is not the case for a
+	 * stateful encoder, e.g. UTF-16 writes a byte order mark first
+	 *
+	 * @return
+	 */
+	boolean isStateless() {
+		return directLimit != 0;
+	}
+
+	void write(char c) {
+
+		if (c < directLimit) {
+
+			if (position == chunk.length) {
+				nextChunk();
+			}
+
+			chunk[position++] = (byte) c;
+
+		} else {
+			write(String.valueOf(c), 0, 1);
+		}
+
+	}
+
+	void write(String value) {
+		write(value, 0, value.length());
+	}
+
+	/**
+	 *
+	 * @param value
+	 * @param start
+	 * @param end
+	 *            exclusive
+	 */
+	void write(String value, int start, int end) {
+
+		char limit = directLimit;
+
+		for (int i = start; i < end; i++) {
+
+			char c = value.charAt(i);
+
+			if (c < limit) {
+
+				if (position == chunk.length) {
+					nextChunk();
+				}
+
+				chunk[position++] = (byte) c;
+				continue;
+
+			}
+
+			if (utf8) {
+				i = writeUtf8(value, i, end);
+				continue;
+			}
+
+			/*
+			 * encode the whole run of characters which can not be copied
+			 */
+			int runEnd = i + 1;
+			while (runEnd < end && value.charAt(runEnd) >= limit) {
+				runEnd++;
+			}
+
+			encode(CharBuffer.wrap(value, i, runEnd), false);
+			i = runEnd - 1;
+
+		}
+
+	}
+
+	/**
+	 * write ASCII characters, e.g. digits
+	 *
+	 * @param chars
+	 * @param offset
+	 * @param length
+	 */
+	void write(char[] chars, int offset, int length) {
+
+		if (directLimit == 0) {
+			encode(CharBuffer.wrap(chars, offset, length), false);
+			return;
+		}
+
+		for (int i = offset; i < offset + length; i++) {
+
+			if (position == chunk.length) {
+				nextChunk();
+			}
+
+			chunk[position++] = (byte) chars[i];
+
+		}
+
+	}
+
+	/**
+	 * append encoded bytes
+	 *
+	 * @param bytes
+	 * @param offset
+	 * @param length
+	 */
+	void put(byte[] bytes, int offset, int length) {
+
+		while (length > 0) {
+
+			if (position == chunk.length) {
+				nextChunk();
+			}
+
+			int n = Math.min(length, chunk.length - position);
+			System.arraycopy(bytes, offset, chunk, position, n);
+
+			position += n;
+			offset += n;
+			length -= n;
+
+		}
+
+	}
+
+	/**
+	 * move every buffered byte to the end of another buffer
+	 *
+	 * @param target
+	 */
+	void moveTo(RecordBuffer target) {
+
+		for (ByteBuffer buffer : filled) {
+			target.put(buffer.array(), 0, buffer.limit());
+		}
+
+		target.put(chunk, 0, position);
+
+		clear();
+
+	}
+
+	/**
+	 * drop every buffered byte
+	 */
+	void clear() {
+
+		for (ByteBuffer buffer : filled) {
+			free.add(buffer.array());
+		}
+
+		filled.clear();
+		filledSize = 0;
+		position = 0;
+
+	}
+
+	/**
+	 * write the character at i
+	 *
+	 * @param value
+	 * @param i
+	 * @param end
+	 * @return index of the last character written, i + 1 for a surrogate pair
+	 */
+	private int writeUtf8(String value, int i, int end) {
+
+		if (chunk.length - position < 4) {
+			nextChunk();
+		}
+
+		byte[] b = chunk;
+		int p = position;
+		char c = value.charAt(i);
+
+		if (c < 0x800) {
+
+			b[p++] = (byte) (0xc0 | (c >> 6));
+			b[p++] = (byte) (0x80 | (c & 0x3f));
+
+		} else if (!Character.isSurrogate(c)) {
+
+			b[p++] = (byte) (0xe0 | (c >> 12));
+			b[p++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+			b[p++] = (byte) (0x80 | (c & 0x3f));
+
+		} else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(value.charAt(i + 1))) {
+
+			int codePoint = Character.toCodePoint(c, value.charAt(++i));
+
+			b[p++] = (byte) (0xf0 | (codePoint >> 18));
+			b[p++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+			b[p++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+			b[p++] = (byte) (0x80 | (codePoint & 0x3f));
+
+		} else {
+			b[p++] = REPLACEMENT;
+		}
+
+		position = p;
+
+		return i;
+	}
+
+	private void encode(CharBuffer in, boolean endOfInput) {
+
+		while (true) {
+
+			ByteBuffer out = ByteBuffer.wrap(chunk, position, chunk.length - position);
+			CoderResult result = encoder.encode(in, out, endOfInput);
+			position = out.position();
+
+			if (!result.isOverflow()) {
+				return;
+			}
+
+			nextChunk();
+
+		}
+
+	}
+
+	/**
+	 * end the input of a stateful encoder, e.g. UTF-16 or ISO-2022
+	 */
+	void finish() {
+
+		if (directLimit == 0) {
+
+			encode(CharBuffer.allocate(0), true);
+
+			while (true) {
+
+				ByteBuffer out = ByteBuffer.wrap(chunk, position, chunk.length - position);
+				CoderResult result = encoder.flush(out);
+				position = out.position();
+
+				if (!result.isOverflow()) {
+					return;
+				}
+
+				nextChunk();
+
+			}
+
+		}
+
+	}
+
+	private void nextChunk() {
+
+		filled.add(ByteBuffer.wrap(chunk, 0, position));
+		filledSize += position;
+
+		chunk = free.isEmpty() ? new byte[CHUNK_SIZE] : free.remove(free.size() - 1);
+		position = 0;
+
+	}
+
+	/**
+	 * write every buffered byte to a channel, with one gathering write when possible, and reuse the chunks
+	 *
+	 * @param channel
+	 * @throws IOException
+	 */
+	void writeTo(WritableByteChannel channel) throws IOException {
+
+		if (position > 0) {
+			nextChunk();
+		}
+
+		if (filled.isEmpty()) {
+			return;
+		}
+
+		ByteBuffer[] buffers = filled.toArray(new ByteBuffer[filled.size()]);
+
+		try {
+
+			if (channel instanceof GatheringByteChannel) {
+
+				long remaining = filledSize;
+				while (remaining > 0) {
+					remaining -= ((GatheringByteChannel) channel).write(buffers);
+				}
+
+			} else {
+
+				for (ByteBuffer buffer : buffers) {
+					while (buffer.hasRemaining()) {
+						channel.write(buffer);
+					}
+				}
+
+			}
+
+		} finally {
+			clear();
+		}
+
+	}
+
+}
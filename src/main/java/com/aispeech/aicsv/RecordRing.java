@@ -0,0 +1,79 @@
+package com.aispeech.aicsv;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * bounded lock-free queue for many producers and one consumer<br/>
+ * a producer claims a slot by moving the tail with a CAS and then fills it, the consumer takes the slots in claim order
+ * and waits for a claimed slot until it is filled, so the order is the one of the claims
+ *
+ * @param <E>
+ */
+final class RecordRing<E> {
+
+	private final AtomicReferenceArray<E> slots;
+	private final int mask;
+
+	private final AtomicLong tail = new AtomicLong();
+	private volatile long head = 0;
+
+	/**
+	 *
+	 * @param capacity
+	 *            rounded up to a power of two
+	 */
+	RecordRing(int capacity) {
+
+		int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+
+		this.slots = new AtomicReferenceArray<E>(size);
+		this.mask = size - 1;
+
+	}
+
+	/**
+	 *
+	 * @param e
+	 * @return false if the ring is full
+	 */
+	boolean offer(E e) {
+
+		while (true) {
+
+			long t = tail.get();
+			if (t - head > mask) {
+				return false;
+			}
+
+			if (tail.compareAndSet(t, t + 1)) {
+				slots.lazySet((int) t & mask, e);
+				return true;
+			}
+
+		}
+
+	}
+
+	/**
+	 * only called by the consumer
+	 *
+	 * @return null if the ring is empty, or the next element was claimed but not filled yet
+	 */
+	E poll() {
+
+		long h = head;
+		int index = (int) h & mask;
+
+		E e = slots.get(index);
+		if (e == null) {
+			return null;
+		}
+
+		slots.lazySet(index, null);
+		head = h + 1;
+
+		return e;
+	}
+
+}
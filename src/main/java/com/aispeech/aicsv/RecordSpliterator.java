@@ -0,0 +1,51 @@
+package com.aispeech.aicsv;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+
+/**
+ * {@link Spliterator} reading records from a {@link CsvReader} one at a time, so a short-circuiting stream stops
+ * reading as soon as it is done<br/>
+ * a split takes the next batch of records into an array, the batch is SIZED and is what a parallel stream works on
+ *
+ * @param <T>
+ */
+final class RecordSpliterator<T extends CsvBean> extends Spliterators.AbstractSpliterator<T> {
+
+	private final CsvReader<T> reader;
+
+	RecordSpliterator(CsvReader<T> reader) {
+
+		super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+		this.reader = reader;
+
+	}
+
+	@Override
+	public boolean tryAdvance(Consumer<? super T> action) {
+
+		T record;
+
+		try {
+			record = reader.readRecord();
+		} catch (IOException e) {
+			reader.close();
+			throw new UncheckedIOException(e);
+		} catch (CsvException e) {
+			reader.close();
+			throw new UncheckedCsvException(e);
+		}
+
+		if (record == null) {
+			return false;
+		}
+
+		action.accept(record);
+
+		return true;
+	}
+
+}
@@ -0,0 +1,21 @@
+package com.aispeech.aicsv;
+
+import java.io.IOException;
+
+/**
+ * receive the rows rejected by {@link CsvReader#readRecords(ValidationReport)}, see
+ * {@link ValidationReport#setRejectSink(RejectSink)}
+ */
+public interface RejectSink {
+
+	/**
+	 *
+	 * @param line
+	 *            line of the rejected record
+	 * @param values
+	 *            raw cells of the record, in csv order
+	 * @throws IOException
+	 */
+	void reject(int line, String[] values) throws IOException;
+
+}
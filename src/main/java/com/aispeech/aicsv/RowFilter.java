@@ -0,0 +1,350 @@
+package com.aispeech.aicsv;
+
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * condition on the raw cells of a record, see {@link CsvReader#filter(RowFilter)}<br/>
+ * it is evaluated on the tokenizer's buffer before the record is bound, a record which does not match is skipped
+ * without creating its bean, normalizing its values or adding them to the unique sets<br/>
+ * a cell is compared with the ' ' and '\t' around it skipped, a column missing from a record is compared as ""<br/>
+ * any column of the headers can be used, it does not have to be mapped by the bean
+ */
+public abstract class RowFilter {
+
+	/**
+	 * a filter whose column names are resolved to the header indexes of a csv
+	 */
+	interface Bound {
+
+		boolean accept(CsvTokenizer tokenizer);
+
+		/**
+		 * number of leading cells it reads
+		 *
+		 * @return
+		 */
+		int getColumnLimit();
+
+	}
+
+	RowFilter() {
+	}
+
+	/**
+	 * resolve this filter for a csv
+	 *
+	 * @param headers
+	 * @param tokenizer
+	 * @param path
+	 * @return
+	 * @throws CsvException
+	 *             if a column is not in the headers
+	 */
+	abstract Bound bind(List<String> headers, CsvTokenizer tokenizer, String path) throws CsvException;
+
+	/**
+	 * both this and the other filter match
+	 *
+	 * @param other
+	 * @return
+	 */
+	public RowFilter and(RowFilter other) {
+		return allOf(this, other);
+	}
+
+	/**
+	 * this or the other filter matches
+	 *
+	 * @param other
+	 * @return
+	 */
+	public RowFilter or(RowFilter other) {
+		return anyOf(this, other);
+	}
+
+	/**
+	 * the cell equals a value, it is compared byte by byte with the encoded value, without decoding the cell
+	 *
+	 * @param column
+	 * @param value
+	 * @return
+	 */
+	public static RowFilter eq(String column, String value) {
+		return new Region(column, value, false);
+	}
+
+	/**
+	 * the cell starts with a prefix, it is compared byte by byte with the encoded prefix, without decoding the cell
+	 *
+	 * @param column
+	 * @param prefix
+	 * @return
+	 */
+	public static RowFilter prefix(String column, String prefix) {
+		return new Region(column, prefix, true);
+	}
+
+	/**
+	 * the cell is a number within [min, max], a cell which is not a number does not match
+	 *
+	 * @param column
+	 * @param min
+	 * @param max
+	 * @return
+	 */
+	public static RowFilter range(String column, double min, double max) {
+		return new Range(column, min, max);
+	}
+
+	/**
+	 * the whole cell matches a regex, an ASCII cell is matched in place, others are decoded first
+	 *
+	 * @param column
+	 * @param regex
+	 * @return
+	 */
+	public static RowFilter matches(String column, String regex) {
+		return new Matches(column, Pattern.compile(regex));
+	}
+
+	/**
+	 * every filter matches
+	 *
+	 * @param filters
+	 * @return
+	 */
+	public static RowFilter allOf(RowFilter... filters) {
+		return new Combination(filters, true);
+	}
+
+	/**
+	 * at least one filter matches
+	 *
+	 * @param filters
+	 * @return
+	 */
+	public static RowFilter anyOf(RowFilter... filters) {
+		return new Combination(filters, false);
+	}
+
+	/**
+	 * the filter does not match
+	 *
+	 * @param filter
+	 * @return
+	 */
+	public static RowFilter not(final RowFilter filter) {
+		return new RowFilter() {
+
+			@Override
+			Bound bind(List<String> headers, CsvTokenizer tokenizer, String path) throws CsvException {
+
+				final Bound bound = filter.bind(headers, tokenizer, path);
+
+				return new Bound() {
+
+					@Override
+					public boolean accept(CsvTokenizer tokenizer) {
+						return !bound.accept(tokenizer);
+					}
+
+					@Override
+					public int getColumnLimit() {
+						return bound.getColumnLimit();
+					}
+				};
+			}
+		};
+	}
+
+	private static int indexOf(List<String> headers, String column, String path) throws CsvException {
+
+		int index = headers.indexOf(column);
+		if (index < 0) {
+			throw new CsvException(path + ": column[" + column + "] of the filter is not in the headers" + headers);
+		}
+
+		return index;
+	}
+
+	/**
+	 * filter on one cell
+	 */
+	private abstract static class CellFilter extends RowFilter {
+
+		final String column;
+
+		CellFilter(String column) {
+			this.column = column;
+		}
+
+		@Override
+		final Bound bind(List<String> headers, CsvTokenizer tokenizer, String path) throws CsvException {
+
+			final int index = indexOf(headers, column, path);
+			final CellPredicate predicate = bind(tokenizer);
+
+			return new Bound() {
+
+				@Override
+				public boolean accept(CsvTokenizer tokenizer) {
+					return predicate.accept(tokenizer, index);
+				}
+
+				@Override
+				public int getColumnLimit() {
+					return index + 1;
+				}
+			};
+		}
+
+		abstract CellPredicate bind(CsvTokenizer tokenizer);
+
+	}
+
+	private interface CellPredicate {
+
+		boolean accept(CsvTokenizer tokenizer, int column);
+
+	}
+
+	private static final class Region extends CellFilter {
+
+		private final String value;
+		private final boolean prefix;
+
+		Region(String column, String value, boolean prefix) {
+			super(column);
+			this.value = value;
+			this.prefix = prefix;
+		}
+
+		@Override
+		CellPredicate bind(CsvTokenizer tokenizer) {
+
+			final int[] units = tokenizer.encode(value);
+
+			return new CellPredicate() {
+
+				@Override
+				public boolean accept(CsvTokenizer tokenizer, int column) {
+					return tokenizer.regionMatches(column, value, units, prefix);
+				}
+			};
+		}
+
+	}
+
+	private static final class Range extends CellFilter {
+
+		private final double min;
+		private final double max;
+
+		Range(String column, double min, double max) {
+			super(column);
+			this.min = min;
+			this.max = max;
+		}
+
+		@Override
+		CellPredicate bind(CsvTokenizer tokenizer) {
+			return new CellPredicate() {
+
+				@Override
+				public boolean accept(CsvTokenizer tokenizer, int column) {
+
+					double value;
+
+					if (tokenizer.parseDouble(column, true)) {
+						value = tokenizer.doubleValue;
+					} else {
+
+						try {
+							value = Double.parseDouble(CsvTokenizer.trim(tokenizer.get(column)));
+						} catch (NumberFormatException e) {
+							return false;
+						}
+
+					}
+
+					return value >= min && value <= max;
+				}
+			};
+		}
+
+	}
+
+	private static final class Matches extends CellFilter {
+
+		private final Pattern pattern;
+
+		Matches(String column, Pattern pattern) {
+			super(column);
+			this.pattern = pattern;
+		}
+
+		@Override
+		CellPredicate bind(CsvTokenizer tokenizer) {
+
+			final Matcher matcher = pattern.matcher("");
+
+			return new CellPredicate() {
+
+				@Override
+				public boolean accept(CsvTokenizer tokenizer, int column) {
+					return matcher.reset(tokenizer.getSequence(column)).matches();
+				}
+			};
+		}
+
+	}
+
+	private static final class Combination extends RowFilter {
+
+		private final RowFilter[] filters;
+		private final boolean all;
+
+		Combination(RowFilter[] filters, boolean all) {
+			this.filters = filters.clone();
+			this.all = all;
+		}
+
+		@Override
+		Bound bind(List<String> headers, CsvTokenizer tokenizer, String path) throws CsvException {
+
+			final Bound[] bounds = new Bound[filters.length];
+			int columnLimit = 0;
+
+			for (int i = 0; i < filters.length; i++) {
+				bounds[i] = filters[i].bind(headers, tokenizer, path);
+				columnLimit = Math.max(columnLimit, bounds[i].getColumnLimit());
+			}
+
+			final int limit = columnLimit;
+
+			return new Bound() {
+
+				@Override
+				public boolean accept(CsvTokenizer tokenizer) {
+
+					for (Bound bound : bounds) {
+						if (bound.accept(tokenizer) != all) {
+							return !all;
+						}
+					}
+
+					return all;
+				}
+
+				@Override
+				public int getColumnLimit() {
+					return limit;
+				}
+			};
+		}
+
+	}
+
+}
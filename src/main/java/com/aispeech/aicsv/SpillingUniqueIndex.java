@@ -0,0 +1,290 @@
+package com.aispeech.aicsv;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * {@link UniqueStrategy#SPILL}<br/>
+ * values are collected in batches, a full batch is sorted by value and written to a temp file as a run, the runs are
+ * merged by {@link #finish()}<br/>
+ * values arrive in line order and the sort is stable, so among equal values the first one read is the first
+ * occurrence
+ */
+final class SpillingUniqueIndex implements UniqueIndex {
+
+	static final int DEFAULT_BATCH_SIZE = 1 << 20;
+
+	private static final Comparator<Entry> BY_VALUE = new Comparator<Entry>() {
+
+		@Override
+		public int compare(Entry o1, Entry o2) {
+			return o1.value.compareTo(o2.value);
+		}
+	};
+
+	private static final class Entry {
+
+		final String value;
+		final int line;
+
+		Entry(String value, int line) {
+			this.value = value;
+			this.line = line;
+		}
+
+	}
+
+	/**
+	 * sequential reader of a run, ordered by its current entry then by run number
+	 */
+	private static final class Run implements Comparable<Run> {
+
+		final int number;
+		final DataInputStream in;
+		Entry current;
+
+		Run(int number, File file) throws IOException {
+			this.number = number;
+			this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+		}
+
+		boolean next() throws IOException {
+
+			int line;
+			try {
+				line = in.readInt();
+			} catch (EOFException e) {
+				in.close();
+				return false;
+			}
+
+			char[] chars = new char[in.readInt()];
+			for (int i = 0; i < chars.length; i++) {
+				chars[i] = in.readChar();
+			}
+
+			current = new Entry(new String(chars), line);
+
+			return true;
+		}
+
+		@Override
+		public int compareTo(Run o) {
+
+			int c = current.value.compareTo(o.current.value);
+
+			return c != 0 ? c : number - o.number;
+		}
+
+	}
+
+	private final int batchSize;
+	private final File directory;
+
+	private Entry[] batch;
+	private int size = 0;
+	private final List<File> runs = new ArrayList<File>();
+
+	SpillingUniqueIndex() {
+		this(DEFAULT_BATCH_SIZE, null);
+	}
+
+	/**
+	 * 
+	 * @param batchSize
+	 * @param directory
+	 *            where to put the runs, null for the default temp directory
+	 */
+	SpillingUniqueIndex(int batchSize, File directory) {
+
+		this.batchSize = batchSize;
+		this.directory = directory;
+		this.batch = new Entry[Math.min(batchSize, 1024)];
+
+	}
+
+	@Override
+	public int add(String value, int line) throws IOException {
+
+		if (size == batch.length) {
+
+			if (size == batchSize) {
+				spill();
+			} else {
+				batch = Arrays.copyOf(batch, Math.min(batchSize, size * 2));
+			}
+
+		}
+
+		batch[size++] = new Entry(value, line);
+
+		return ADDED;
+	}
+
+	/**
+	 * the value was the last one added, so it's still in the batch
+	 */
+	@Override
+	public void remove(String value, int line) {
+
+		for (int i = size - 1; i >= 0; i--) {
+
+			if (batch[i].line == line && batch[i].value.equals(value)) {
+				System.arraycopy(batch, i + 1, batch, i, size - i - 1);
+				batch[--size] = null;
+				return;
+			}
+
+		}
+
+	}
+
+	private void spill() throws IOException {
+
+		Arrays.sort(batch, 0, size, BY_VALUE);
+
+		File file = File.createTempFile("aicsv-unique", ".run", directory);
+		runs.add(file);
+
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+		try {
+
+			for (int i = 0; i < size; i++) {
+				out.writeInt(batch[i].line);
+				out.writeInt(batch[i].value.length());
+				out.writeChars(batch[i].value);
+				batch[i] = null;
+			}
+
+		} finally {
+			out.close();
+		}
+
+		size = 0;
+
+	}
+
+	@Override
+	public List<Duplicate> finish() throws IOException {
+
+		List<Duplicate> duplicates = new ArrayList<Duplicate>();
+
+		try {
+
+			if (runs.isEmpty()) {
+
+				Arrays.sort(batch, 0, size, BY_VALUE);
+
+				Entry first = null;
+				for (int i = 0; i < size; i++) {
+					first = check(first, batch[i], duplicates);
+				}
+
+			} else {
+
+				if (size > 0) {
+					spill();
+				}
+
+				merge(duplicates);
+
+			}
+
+		} finally {
+			close();
+		}
+
+		Collections.sort(duplicates, new Comparator<Duplicate>() {
+
+			@Override
+			public int compare(Duplicate o1, Duplicate o2) {
+				return o1.line - o2.line;
+			}
+		});
+
+		return duplicates;
+	}
+
+	private void merge(List<Duplicate> duplicates) throws IOException {
+
+		PriorityQueue<Run> queue = new PriorityQueue<Run>();
+		List<Run> opened = new ArrayList<Run>();
+
+		try {
+
+			for (int i = 0; i < runs.size(); i++) {
+
+				Run run = new Run(i, runs.get(i));
+				opened.add(run);
+
+				if (run.next()) {
+					queue.add(run);
+				}
+
+			}
+
+			Entry first = null;
+			while (!queue.isEmpty()) {
+
+				Run run = queue.poll();
+				first = check(first, run.current, duplicates);
+
+				if (run.next()) {
+					queue.add(run);
+				}
+
+			}
+
+		} finally {
+			for (Run run : opened) {
+				run.in.close();
+			}
+		}
+
+	}
+
+	/**
+	 * 
+	 * @param first
+	 *            first occurrence of the previous value
+	 * @param entry
+	 * @param duplicates
+	 * @return first occurrence of entry's value
+	 */
+	private static Entry check(Entry first, Entry entry, List<Duplicate> duplicates) {
+
+		if (first != null && first.value.equals(entry.value)) {
+			duplicates.add(new Duplicate(entry.value, entry.line, first.line));
+			return first;
+		}
+
+		return entry;
+	}
+
+	@Override
+	public void close() {
+
+		for (File run : runs) {
+			run.delete();
+		}
+
+		runs.clear();
+		batch = new Entry[Math.min(batchSize, 1024)];
+		size = 0;
+
+	}
+
+}
@@ -0,0 +1,78 @@
+package com.aispeech.aicsv;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * thread-safe exact index for {@link ConcurrentCsvWriter}, the values are split into stripes by hash, each guarded by
+ * its own lock, so threads adding different values seldom wait for each other
+ */
+final class StripedUniqueIndex implements UniqueIndex {
+
+	private static final int STRIPES = 64;
+
+	private final Map<String, Integer>[] stripes;
+
+	@SuppressWarnings("unchecked")
+	StripedUniqueIndex() {
+
+		stripes = (Map<String, Integer>[]) new Map<?, ?>[STRIPES];
+		for (int i = 0; i < STRIPES; i++) {
+			stripes[i] = new HashMap<String, Integer>();
+		}
+
+	}
+
+	private Map<String, Integer> getStripe(String value) {
+
+		int h = value.hashCode();
+
+		return stripes[(h ^ (h >>> 16)) & (STRIPES - 1)];
+	}
+
+	@Override
+	public int add(String value, int line) {
+
+		Map<String, Integer> stripe = getStripe(value);
+
+		Integer firstLine;
+		synchronized (stripe) {
+			firstLine = stripe.putIfAbsent(value, line);
+		}
+
+		return firstLine == null ? ADDED : firstLine;
+	}
+
+	/**
+	 * the value is only removed if it's still the one of this line, another thread may have added it meanwhile
+	 */
+	@Override
+	public void remove(String value, int line) {
+
+		Map<String, Integer> stripe = getStripe(value);
+
+		synchronized (stripe) {
+			stripe.remove(value, line);
+		}
+
+	}
+
+	@Override
+	public List<Duplicate> finish() {
+		return Collections.emptyList();
+	}
+
+	@Override
+	public void close() {
+
+		for (Map<String, Integer> stripe : stripes) {
+			synchronized (stripe) {
+				stripe.clear();
+			}
+		}
+
+	}
+
+}
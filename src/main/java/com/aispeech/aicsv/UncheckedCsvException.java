@@ -0,0 +1,19 @@
+package com.aispeech.aicsv;
+
+/**
+ * wrap a {@link CsvException} where a checked exception can not be thrown, e.g. in {@link CsvReader#stream()}
+ */
+public class UncheckedCsvException extends RuntimeException {
+
+	private static final long serialVersionUID = -3187262310866416092L;
+
+	public UncheckedCsvException(CsvException cause) {
+		super(cause.getMessage(), cause);
+	}
+
+	@Override
+	public CsvException getCause() {
+		return (CsvException) super.getCause();
+	}
+
+}
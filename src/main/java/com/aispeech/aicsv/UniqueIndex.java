@@ -0,0 +1,69 @@
+package com.aispeech.aicsv;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * the distinct values of one unique column, created by a {@link UniqueStrategy}
+ */
+interface UniqueIndex extends Closeable {
+
+	/**
+	 * returned by {@link #add(String, int)} when the value was not seen before
+	 */
+	int ADDED = 0;
+
+	/**
+	 * returned by {@link #add(String, int)} for a duplicate whose first line is not kept
+	 */
+	int UNKNOWN_LINE = -1;
+
+	/**
+	 * a value found again, reported by {@link UniqueIndex#finish()}
+	 */
+	final class Duplicate {
+
+		final String value;
+		final int line;
+		final int firstLine;
+
+		Duplicate(String value, int line, int firstLine) {
+			this.value = value;
+			this.line = line;
+			this.firstLine = firstLine;
+		}
+
+	}
+
+	/**
+	 * 
+	 * @param value
+	 * @param line
+	 * @return {@link #ADDED}, or the line where the value first appeared, or {@link #UNKNOWN_LINE}
+	 * @throws IOException
+	 */
+	int add(String value, int line) throws IOException;
+
+	/**
+	 * forget a value which {@link #add(String, int)} just added, because its record was rejected for another column
+	 * 
+	 * @param value
+	 * @param line
+	 *            the line it was added with
+	 * @throws IOException
+	 */
+	void remove(String value, int line) throws IOException;
+
+	/**
+	 * report the duplicates which could not be found by {@link #add(String, int)}, ordered by line
+	 * 
+	 * @return
+	 * @throws IOException
+	 */
+	List<Duplicate> finish() throws IOException;
+
+	@Override
+	void close();
+
+}
@@ -0,0 +1,49 @@
+package com.aispeech.aicsv;
+
+/**
+ * how the values of a {@link Column#unique()} column are remembered, see {@link CsvReader#setUniqueStrategy}
+ */
+public enum UniqueStrategy {
+
+	/**
+	 * every distinct value is kept in a hash set on the heap, duplicates are found at once
+	 */
+	EXACT {
+
+		@Override
+		UniqueIndex newIndex() {
+			return new HashSetUniqueIndex();
+		}
+	},
+
+	/**
+	 * a 128 bit hash and the line of every distinct value is kept off the heap, 20 bytes per value, duplicates are
+	 * found at once<br/>
+	 * it is probabilistic, an opt-in for columns too large for {@link #EXACT}: the values are not kept, so two
+	 * different values are taken as duplicates if both 64 bit halves of their hashes collide; the hash is seeded at
+	 * random for each index, so this can't be provoked, and by chance it is negligible even for billions of values
+	 */
+	HASHED {
+
+		@Override
+		UniqueIndex newIndex() {
+			return new HashedUniqueIndex();
+		}
+	},
+
+	/**
+	 * values are sorted in bounded batches and spilled to temp files, duplicates are exact but only found when all
+	 * records were read (or {@link CsvRW#verifyPendingUnique()} is called), the records holding them have already
+	 * been returned or written by then
+	 */
+	SPILL {
+
+		@Override
+		UniqueIndex newIndex() {
+			return new SpillingUniqueIndex();
+		}
+	};
+
+	abstract UniqueIndex newIndex();
+
+}
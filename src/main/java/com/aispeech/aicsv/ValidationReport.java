@@ -0,0 +1,490 @@
+package com.aispeech.aicsv;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * the violations found by {@link CsvReader#readRecords(ValidationReport)}<br/>
+ * every column of every record is checked, a record with any violation is rejected and handed to the
+ * {@link RejectSink} if there is one<br/>
+ * violations are kept as codes and lines, a message is only built when it is asked for; the first maxErrors of them
+ * are kept, plus a uniform sample of sampleSize among the others, and every violation is counted per column and code
+ * <br/>
+ * a report is not thread-safe
+ */
+public final class ValidationReport {
+
+	public static final int DEFAULT_MAX_ERRORS = 1000;
+	public static final int DEFAULT_SAMPLE_SIZE = 100;
+
+	public enum ErrorCode {
+
+		/**
+		 * blank value for a column which is not {@link Column#nullable()}
+		 */
+		BLANK {
+
+			@Override
+			String format(String position, String column, String value, String detail) {
+				return position + ": column[" + column + "] should not be blank!";
+			}
+		},
+
+		/**
+		 * value not matching {@link Column#matches()}, the detail is the regex
+		 */
+		MISMATCH {
+
+			@Override
+			String format(String position, String column, String value, String detail) {
+				return position + ": column[" + column + "]'s value[" + value + "] should match regex [" + detail + "]";
+			}
+		},
+
+		/**
+		 * value seen before in a {@link Column#unique()} column, the detail is the line where it was first seen, if
+		 * known
+		 */
+		DUPLICATE {
+
+			@Override
+			String format(String position, String column, String value, String detail) {
+
+				String msg = position + ": duplicate [" + value + "] for column[" + column + "]";
+				if (detail != null) {
+					msg += ", first at line " + detail;
+				}
+
+				return msg;
+			}
+		},
+
+		/**
+		 * value which could not be set to its field, the detail is the reason
+		 */
+		INVALID {
+
+			@Override
+			String format(String position, String column, String value, String detail) {
+				return position + ": column[" + column + "]'s value[" + value + "] is invalid: " + detail;
+			}
+		};
+
+		abstract String format(String position, String column, String value, String detail);
+
+		String format(String path, int line, String column, String value, String detail) {
+			return format(path + "#" + line, column, value, detail);
+		}
+
+	}
+
+	/**
+	 * one violation, built from the compact storage of the report when asked for
+	 */
+	public static final class Violation {
+
+		private final String path;
+		private final int line;
+		private final String column;
+		private final ErrorCode code;
+		private final String value;
+		private final String detail;
+
+		Violation(String path, int line, String column, ErrorCode code, String value, String detail) {
+			this.path = path;
+			this.line = line;
+			this.column = column;
+			this.code = code;
+			this.value = value;
+			this.detail = detail;
+		}
+
+		public int getLine() {
+			return line;
+		}
+
+		public String getColumn() {
+			return column;
+		}
+
+		public ErrorCode getCode() {
+			return code;
+		}
+
+		public String getValue() {
+			return value;
+		}
+
+		public String getMessage() {
+			return code.format(path, line, column, value, detail);
+		}
+
+		@Override
+		public String toString() {
+			return getMessage();
+		}
+
+	}
+
+	private static final ErrorCode[] CODES = ErrorCode.values();
+
+	private final int maxErrors;
+	private final int sampleSize;
+	private final Random random = new Random();
+
+	private RejectSink rejectSink;
+	private String path;
+
+	private long recordCount = 0;
+	private long rejectedCount = 0;
+	private long errorCount = 0;
+
+	/*
+	 * per column counts, indexed by column index then code ordinal
+	 */
+	private final Map<String, Integer> columnIndexes = new LinkedHashMap<String, Integer>();
+	private final List<String> columnNames = new ArrayList<String>();
+	private final List<long[]> columnCounts = new ArrayList<long[]>();
+
+	/*
+	 * kept violations, [0, maxErrors) are the first ones and the rest is the sample
+	 */
+	private int size = 0;
+	private int[] lines = new int[16];
+	private int[] columns = new int[16];
+	private byte[] codes = new byte[16];
+	private String[] values = new String[16];
+	private String[] details = new String[16];
+
+	public ValidationReport() {
+		this(DEFAULT_MAX_ERRORS, DEFAULT_SAMPLE_SIZE);
+	}
+
+	/**
+	 *
+	 * @param maxErrors
+	 *            number of violations kept from the first one on
+	 * @param sampleSize
+	 *            number of violations sampled among those after the first maxErrors
+	 */
+	public ValidationReport(int maxErrors, int sampleSize) {
+
+		if (maxErrors < 0 || sampleSize < 0 || (long) maxErrors + sampleSize > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("invalid maxErrors[" + maxErrors + "] or sampleSize[" + sampleSize
+					+ "]");
+		}
+
+		this.maxErrors = maxErrors;
+		this.sampleSize = sampleSize;
+
+	}
+
+	/**
+	 * route the rejected records to a sink, e.g. to write them to another csv
+	 *
+	 * @param rejectSink
+	 */
+	public void setRejectSink(RejectSink rejectSink) {
+		this.rejectSink = rejectSink;
+	}
+
+	/**
+	 * called before the first record of a csv is read, so that columns are summarized in schema order
+	 *
+	 * @param path
+	 * @param schema
+	 */
+	void open(String path, ColumnSchema<?> schema) {
+
+		this.path = path;
+
+		for (ColumnBinding<?> binding : schema.getBindings()) {
+			getColumnIndex(binding.getName());
+		}
+
+	}
+
+	boolean hasRejectSink() {
+		return rejectSink != null;
+	}
+
+	void addRecord() {
+		recordCount++;
+	}
+
+	void reject(int line, CsvTokenizer tokenizer) throws IOException {
+
+		rejectedCount++;
+
+		if (rejectSink != null) {
+			rejectSink.reject(line, tokenizer.getValues());
+		}
+
+	}
+
+	/**
+	 * count a rejected record whose cells are not at hand any more, only for a report without {@link RejectSink}
+	 *
+	 * @param line
+	 */
+	void reject(int line) {
+		rejectedCount++;
+	}
+
+	/**
+	 * add the record counts of a report of part of the csv, its violations are added by
+	 * {@link #transfer(ValidationReport, int, int)}
+	 *
+	 * @param part
+	 */
+	void addCounts(ValidationReport part) {
+		recordCount += part.recordCount;
+		rejectedCount += part.rejectedCount;
+	}
+
+	/**
+	 * add the violations of a report of part of the csv which come before a line
+	 *
+	 * @param part
+	 *            a report which keeps every violation
+	 * @param from
+	 *            index of the first violation of part to add
+	 * @param line
+	 *            the violations of this line and after it are left
+	 * @return index of the first violation of part not added
+	 */
+	int transfer(ValidationReport part, int from, int line) {
+
+		int i = from;
+		while (i < part.size && part.lines[i] < line) {
+			add(part.lines[i], part.columnNames.get(part.columns[i]), CODES[part.codes[i]], part.values[i],
+					part.details[i]);
+			i++;
+		}
+
+		return i;
+	}
+
+	void add(int line, String column, ErrorCode code, String value, String detail) {
+
+		int columnIndex = getColumnIndex(column);
+		columnCounts.get(columnIndex)[code.ordinal()]++;
+
+		int slot;
+		if (errorCount < maxErrors) {
+			slot = (int) errorCount;
+		} else {
+
+			/*
+			 * reservoir sampling among the violations after the first maxErrors
+			 */
+			long seen = errorCount - maxErrors;
+			if (seen < sampleSize) {
+				slot = maxErrors + (int) seen;
+			} else {
+
+				long j = (long) (random.nextDouble() * (seen + 1));
+				if (j >= sampleSize) {
+					errorCount++;
+					return;
+				}
+
+				slot = maxErrors + (int) j;
+			}
+
+		}
+
+		errorCount++;
+
+		if (slot == size) {
+
+			if (size == lines.length) {
+				int capacity = (int) Math.min((long) size * 2, (long) maxErrors + sampleSize);
+				lines = Arrays.copyOf(lines, capacity);
+				columns = Arrays.copyOf(columns, capacity);
+				codes = Arrays.copyOf(codes, capacity);
+				values = Arrays.copyOf(values, capacity);
+				details = Arrays.copyOf(details, capacity);
+			}
+
+			size++;
+		}
+
+		lines[slot] = line;
+		columns[slot] = columnIndex;
+		codes[slot] = (byte) code.ordinal();
+		values[slot] = value;
+		details[slot] = detail;
+
+	}
+
+	private int getColumnIndex(String column) {
+
+		Integer index = columnIndexes.get(column);
+		if (index == null) {
+			index = columnNames.size();
+			columnIndexes.put(column, index);
+			columnNames.add(column);
+			columnCounts.add(new long[CODES.length]);
+		}
+
+		return index;
+	}
+
+	public boolean hasErrors() {
+		return errorCount != 0;
+	}
+
+	/**
+	 * number of records read
+	 *
+	 * @return
+	 */
+	public long getRecordCount() {
+		return recordCount;
+	}
+
+	/**
+	 * number of records rejected
+	 *
+	 * @return
+	 */
+	public long getRejectedCount() {
+		return rejectedCount;
+	}
+
+	/**
+	 * number of violations, including those not kept
+	 *
+	 * @return
+	 */
+	public long getErrorCount() {
+		return errorCount;
+	}
+
+	/**
+	 *
+	 * @param column
+	 * @param code
+	 * @return number of violations of a code in a column
+	 */
+	public long getErrorCount(String column, ErrorCode code) {
+
+		Integer index = columnIndexes.get(column);
+		return index == null ? 0 : columnCounts.get(index)[code.ordinal()];
+	}
+
+	/**
+	 *
+	 * @param code
+	 * @return number of violations of a code in all columns
+	 */
+	public long getErrorCount(ErrorCode code) {
+
+		long count = 0;
+		for (long[] counts : columnCounts) {
+			count += counts[code.ordinal()];
+		}
+
+		return count;
+	}
+
+	/**
+	 * the first maxErrors violations, in the order they were found
+	 *
+	 * @return
+	 */
+	public List<Violation> getErrors() {
+		return getViolations(0, Math.min(size, maxErrors));
+	}
+
+	/**
+	 * a uniform sample of the violations after the first maxErrors, ordered by line
+	 *
+	 * @return
+	 */
+	public List<Violation> getSample() {
+
+		List<Violation> sample = getViolations(Math.min(size, maxErrors), size);
+
+		Collections.sort(sample, new Comparator<Violation>() {
+
+			@Override
+			public int compare(Violation v1, Violation v2) {
+				return v1.line < v2.line ? -1 : (v1.line == v2.line ? 0 : 1);
+			}
+		});
+
+		return sample;
+	}
+
+	private List<Violation> getViolations(int from, int to) {
+
+		List<Violation> violations = new ArrayList<Violation>(to - from);
+		for (int i = from; i < to; i++) {
+			violations.add(new Violation(path, lines[i], columnNames.get(columns[i]), CODES[codes[i]], values[i],
+					details[i]));
+		}
+
+		return violations;
+	}
+
+	/**
+	 * one exception holding the messages of the kept violations, one per line, like {@link CsvException#concat(List)}
+	 *
+	 * @return
+	 */
+	public CsvException toException() {
+
+		StringBuilder msg = new StringBuilder();
+
+		for (Violation violation : getErrors()) {
+			msg.append(violation.getMessage()).append('\n');
+		}
+
+		if (errorCount > maxErrors) {
+			msg.append("... ").append(errorCount - maxErrors).append(" more errors\n");
+			msg.append(this);
+		}
+
+		return new CsvException(msg.toString());
+	}
+
+	/**
+	 * summary counts per column
+	 */
+	@Override
+	public String toString() {
+
+		StringBuilder msg = new StringBuilder();
+		msg.append(path).append(": ").append(recordCount).append(" records, ").append(rejectedCount)
+				.append(" rejected, ").append(errorCount).append(" errors\n");
+
+		for (int i = 0; i < columnNames.size(); i++) {
+
+			long[] counts = columnCounts.get(i);
+
+			StringBuilder line = new StringBuilder();
+			for (ErrorCode code : CODES) {
+				if (counts[code.ordinal()] != 0) {
+					line.append(line.length() == 0 ? "" : ", ").append(code).append('=').append(counts[code.ordinal()]);
+				}
+			}
+
+			if (line.length() != 0) {
+				msg.append("column[").append(columnNames.get(i)).append("]: ").append(line).append('\n');
+			}
+
+		}
+
+		return msg.toString();
+	}
+
+}
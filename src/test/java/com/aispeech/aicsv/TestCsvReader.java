@@ -1,7 +1,20 @@
 package com.aispeech.aicsv;
 
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.ClosedByInterruptException;
 import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
 
 import junit.framework.Assert;
 import junit.framework.TestCase;
@@ -34,6 +47,23 @@ public class TestCsvReader extends TestCase {
 
 	}
 
+	/**
+	 * records "你好i", "ni hao i", every 7th one with a line break, a delimiter and quotes in its second cell if
+	 * multiline
+	 */
+	static List<SimpleCsvRecord> newRecords(int count, boolean multiline) {
+
+		List<SimpleCsvRecord> records = new ArrayList<SimpleCsvRecord>();
+		for (int i = 0; i < count; i++) {
+			SimpleCsvRecord record = new SimpleCsvRecord();
+			record.setHanzi("你好" + i);
+			record.setMarkPinyin(multiline && i % 7 == 0 ? "ni\r\nhao,\"" + i + "\"" : "ni hao " + i);
+			records.add(record);
+		}
+
+		return records;
+	}
+
 	private static <T extends CsvBean> CsvReader<T> newCsvReader(String resource, Class<T> typeOfT) throws IOException,
 			CsvException {
 
@@ -268,26 +298,816 @@ public class TestCsvReader extends TestCase {
 
 	}
 
-	// public static class ForTestTrimRecord extends CsvBean {
-	//
-	// @Column(name = "hanzi")
-	// private String hanzi;
-	//
-	// @Column(name = "mark-pinyin", trim = false)
-	// private String markPinyin;
-	//
-	// }
-
-	// public void testTrim() throws Exception {
-	//
-	// // CsvReader<ForTestTrimRecord> reader = newCsvReader("testTrim.csv", ForTestTrimRecord.class);
-	// CsvReader<ForTestTrimRecord> reader = new CsvReader<ForTestTrimRecord>(new File(
-	// "E:\\svn\\aid201003\\branches\\sprint1\\aicsv\\src\\test\\resources\\testTrim.csv"),
-	// ForTestTrimRecord.class);
-	//
-	// ForTestTrimRecord record = reader.readRecord();
-	// TestCase.assertEquals("你  好", record.hanzi);
-	// TestCase.assertEquals(" ni hao　", record.markPinyin);
-	//
-	// }
-}
\ No newline at end of file
+	public static class ForTestTrimRecord extends CsvBean {
+
+		@Column(name = "hanzi")
+		private String hanzi;
+
+		@Column(name = "mark-pinyin", trim = false)
+		private String markPinyin;
+
+	}
+
+	public void testTrim() throws Exception {
+
+		CsvReader<ForTestTrimRecord> reader = newCsvReader("testTrim.csv", ForTestTrimRecord.class);
+
+		ForTestTrimRecord record = reader.readRecord();
+		TestCase.assertEquals("你  好", record.hanzi);
+		TestCase.assertEquals(" ni hao　", record.markPinyin);
+
+		reader.close();
+	}
+
+	public void testUniqueStrategies() throws IOException, CsvException {
+
+		for (UniqueStrategy strategy : UniqueStrategy.values()) {
+
+			CsvReader<ForTestUniqueRecord> reader = newCsvReader("testUnique.csv", ForTestUniqueRecord.class);
+			reader.setUniqueStrategy(strategy);
+
+			String message = null;
+			try {
+				while (reader.readRecord() != null) {
+				}
+			} catch (CsvException e) {
+				message = e.getMessage();
+			} finally {
+				reader.close();
+			}
+
+			System.out.println(strategy + ": " + message);
+			TestCase.assertTrue(message.contains("#4: duplicate [你好]"));
+			if (strategy != UniqueStrategy.EXACT) {
+				TestCase.assertTrue(message.contains("first at line 2"));
+			}
+
+		}
+
+	}
+
+	public void testValidationReport() throws IOException, CsvException {
+
+		CsvReader<ForTestUniqueRecord> reader = newCsvReader("testUnique.csv", ForTestUniqueRecord.class);
+
+		final List<Integer> rejectedLines = new ArrayList<Integer>();
+
+		ValidationReport report = new ValidationReport(1, 1);
+		report.setRejectSink(new RejectSink() {
+
+			@Override
+			public void reject(int line, String[] values) {
+				rejectedLines.add(line);
+			}
+		});
+
+		List<ForTestUniqueRecord> records = reader.readRecords(report);
+
+		System.out.println(report);
+		TestCase.assertEquals(2, records.size());
+		TestCase.assertEquals(4, report.getRecordCount());
+		TestCase.assertEquals(2, report.getRejectedCount());
+		TestCase.assertEquals(2, report.getErrorCount("hanzi", ValidationReport.ErrorCode.DUPLICATE));
+		TestCase.assertEquals(0, report.getErrorCount("mark-pinyin", ValidationReport.ErrorCode.DUPLICATE));
+
+		TestCase.assertEquals(1, report.getErrors().size());
+		TestCase.assertEquals(4, report.getErrors().get(0).getLine());
+		TestCase.assertTrue(report.getErrors().get(0).getMessage().contains("#4: duplicate [你好]"));
+		TestCase.assertEquals(5, report.getSample().get(0).getLine());
+
+		TestCase.assertEquals("[4, 5]", rejectedLines.toString());
+		TestCase.assertTrue(report.toException().getMessage().contains("1 more errors"));
+
+		/*
+		 * the sink gets every cell of a rejected row, even when only some columns are read
+		 */
+		final List<String> rejectedRows = new ArrayList<String>();
+
+		report = new ValidationReport();
+		report.setRejectSink(new RejectSink() {
+
+			@Override
+			public void reject(int line, String[] values) {
+				rejectedRows.add(Arrays.toString(values));
+			}
+		});
+
+		reader = newCsvReader("testUnique.csv", ForTestUniqueRecord.class);
+		reader.select("hanzi");
+		reader.readRecords(report);
+
+		TestCase.assertEquals("[[你好, ni hao], [天气, tian qi]]", rejectedRows.toString());
+
+	}
+
+	public void testSelect() throws IOException, CsvException {
+
+		CsvReader<SimpleCsvRecord> reader = newCsvReader("testNormal.csv", SimpleCsvRecord.class).select("hanzi");
+
+		try {
+
+			SimpleCsvRecord bean = reader.readRecord();
+			Assert.assertEquals("你好", bean.getHanzi());
+			Assert.assertNull(bean.getMarkPinyin());
+
+		} finally {
+			reader.close();
+		}
+
+		try {
+			newCsvReader("testNormal.csv", SimpleCsvRecord.class).select("pinyin");
+		} catch (CsvException e) {
+			Assert.assertTrue(e.getMessage().contains("column[pinyin] is not mapped"));
+			return;
+		}
+
+		Assert.assertTrue(false);
+
+	}
+
+	public void testFilter() throws Exception {
+
+		File csv = File.createTempFile("filter", "csv");
+		csv.deleteOnExit();
+
+		Files.write(csv.toPath(),
+				"hanzi,mark-pinyin,n\n你好,ni hao,1\n天气,tian qi,2.5\n你好,ni hao,30\n 北京 ,bei jing,abc\n"
+						.getBytes("gbk"));
+
+		/*
+		 * the duplicate at line 4 is skipped before it reaches the unique set
+		 */
+		CsvReader<ForTestUniqueRecord> unique = CsvReader.openMapped(csv, ForTestUniqueRecord.class).filter(
+				RowFilter.eq("hanzi", "你好").and(RowFilter.range("n", 0, 10)));
+
+		List<ForTestUniqueRecord> records = unique.readRecords(new ValidationReport());
+		Assert.assertEquals(1, records.size());
+		Assert.assertEquals(2, records.get(0).getLine().intValue());
+
+		RowFilter filter = RowFilter.anyOf(RowFilter.prefix("mark-pinyin", "tian"), RowFilter.matches("hanzi", "北."));
+
+		for (CsvReader<SimpleCsvRecord> reader : Arrays.asList(CsvReader.openMapped(csv, SimpleCsvRecord.class),
+				new CsvReader<SimpleCsvRecord>(csv, SimpleCsvRecord.class))) {
+
+			reader.select("hanzi").filter(filter);
+
+			SimpleCsvRecord bean = reader.readRecord();
+			Assert.assertEquals("天气", bean.getHanzi());
+			Assert.assertEquals(3, bean.getLine().intValue());
+
+			bean = reader.readRecord();
+			Assert.assertEquals("北京", bean.getHanzi());
+			Assert.assertEquals(5, bean.getLine().intValue());
+
+			Assert.assertNull(reader.readRecord());
+
+		}
+
+		try {
+			new CsvReader<SimpleCsvRecord>(csv, SimpleCsvRecord.class).filter(RowFilter.eq("pinyin", "ni hao"));
+		} catch (CsvException e) {
+			Assert.assertTrue(e.getMessage().contains("column[pinyin] of the filter is not in the headers"));
+			return;
+		}
+
+		Assert.assertTrue(false);
+
+	}
+
+	public static class ForTestReuseRecord extends CsvBean {
+
+		@Column(name = "hanzi", nullable = false)
+		private CharSequence hanzi;
+
+		@Column(name = "mark-pinyin")
+		private CharSequence markPinyin;
+
+	}
+
+	public void testReadRecord_reuse() throws Exception {
+
+		File csv = new File(ClassLoader.getSystemResource("testUnique.csv").toURI());
+
+		for (CsvReader<ForTestReuseRecord> reader : Arrays.asList(CsvReader.openMapped(csv, ForTestReuseRecord.class),
+				new CsvReader<ForTestReuseRecord>(csv, ForTestReuseRecord.class))) {
+
+			ForTestReuseRecord[] pool = { new ForTestReuseRecord(), new ForTestReuseRecord() };
+
+			Assert.assertTrue(reader.readRecord(pool[0]));
+			CharSequence hanzi = pool[0].hanzi;
+
+			Assert.assertTrue(reader.readRecord(pool[1]));
+			Assert.assertEquals("你好", pool[0].hanzi.toString());
+			Assert.assertEquals("天气", pool[1].hanzi.toString());
+			Assert.assertEquals("tian qi", pool[1].markPinyin.toString());
+			Assert.assertEquals(3, pool[1].getLine().intValue());
+
+			/*
+			 * the view of a bean is refilled in place
+			 */
+			Assert.assertTrue(reader.readRecord(pool[0]));
+			Assert.assertSame(hanzi, pool[0].hanzi);
+			Assert.assertEquals("你好", hanzi.toString());
+			Assert.assertEquals(4, pool[0].getLine().intValue());
+
+			Assert.assertTrue(reader.readRecord(pool[1]));
+			Assert.assertFalse(reader.readRecord(pool[0]));
+			Assert.assertEquals(4, pool[0].getLine().intValue());
+
+		}
+
+	}
+
+	public static class ForTestInternRecord extends CsvBean {
+
+		@Column(name = "hanzi", intern = Interning.NEVER)
+		private String hanzi;
+
+		@Column(name = "mark-pinyin")
+		private String markPinyin;
+
+	}
+
+	public void testIntern() throws Exception {
+
+		File csv = File.createTempFile("intern", "csv");
+		csv.deleteOnExit();
+
+		StringBuilder content = new StringBuilder("hanzi,mark-pinyin\n");
+		for (int i = 0; i < 10000; i++) {
+			content.append(i < 100 ? "你好" : "好" + i).append(',').append(i % 3 == 0 ? "ni hao" : "hao").append('\n');
+		}
+		Files.write(csv.toPath(), content.toString().getBytes("gbk"));
+
+		for (CsvReader<ForTestInternRecord> reader : Arrays.asList(CsvReader.openMapped(csv,
+				ForTestInternRecord.class), new CsvReader<ForTestInternRecord>(csv, ForTestInternRecord.class))) {
+
+			List<ForTestInternRecord> records = reader.readRecords(new ValidationReport());
+			Assert.assertEquals(10000, records.size());
+
+			Assert.assertEquals("你好", records.get(0).hanzi);
+			Assert.assertNotSame(records.get(0).hanzi, records.get(1).hanzi);
+
+			Assert.assertEquals("ni hao", records.get(3).markPinyin);
+			Assert.assertSame(records.get(0).markPinyin, records.get(9999).markPinyin);
+			Assert.assertSame(records.get(1).markPinyin, records.get(9998).markPinyin);
+			Assert.assertEquals("hao", records.get(9998).markPinyin);
+
+		}
+
+		CsvReader<ForTestUniqueRecord> reader = CsvReader.openMapped(csv, ForTestUniqueRecord.class);
+		reader.select("hanzi");
+
+		/*
+		 * AUTO gives up on a column with too many distinct values
+		 */
+		List<ForTestUniqueRecord> records = reader.readRecords(new ValidationReport());
+		Assert.assertEquals(9901, records.size());
+
+	}
+
+	public void testIndex() throws Exception {
+
+		File csv = File.createTempFile("index", "csv");
+		File idx = CsvIndex.getIndexFile(csv);
+
+		try {
+
+			List<SimpleCsvRecord> records = newRecords(5000, true);
+			CsvWriter.writeRecords(csv, SimpleCsvRecord.class, records);
+
+			/*
+			 * built while reading
+			 */
+			Assert.assertNull(CsvIndex.load(csv));
+			new CsvReader<SimpleCsvRecord>(csv, SimpleCsvRecord.class).buildIndex(100).readRecords(
+					new ValidationReport());
+
+			CsvIndex index = CsvIndex.load(csv);
+			Assert.assertNotNull(index);
+			Assert.assertEquals(5001, index.getLastLine());
+			Assert.assertEquals(50, index.size());
+
+			CsvIndex built = CsvIndex.build(csv, ',', Charset.forName("gbk"), 100);
+			for (int i = 0; i < index.size(); i++) {
+				Assert.assertEquals(index.getOffset(i), built.getOffset(i));
+			}
+
+			CsvReader<SimpleCsvRecord> reader = CsvReader.openMapped(csv, SimpleCsvRecord.class).seek(index, 2345);
+			SimpleCsvRecord bean = reader.readRecord();
+			Assert.assertEquals(2345, bean.getLine().intValue());
+			Assert.assertEquals("你好2343", bean.getHanzi());
+			Assert.assertEquals("ni hao 2344", reader.readRecord().getMarkPinyin());
+			Assert.assertEquals("ni\r\nhao,\"2345\"", reader.readRecord().getMarkPinyin());
+			reader.close();
+
+			reader = new CsvReader<SimpleCsvRecord>(csv, SimpleCsvRecord.class).range(index, 4999, 5100);
+			List<SimpleCsvRecord> range = reader.readRecords(new ValidationReport());
+			Assert.assertEquals(3, range.size());
+			Assert.assertEquals("你好4999", range.get(2).getHanzi());
+
+			reader = CsvReader.openMapped(csv, SimpleCsvRecord.class).range(index, 10, 13);
+			Assert.assertEquals(3, reader.readRecords(new ValidationReport()).size());
+
+			/*
+			 * broken, a count or last line which does not fit
+			 */
+			RandomAccessFile file = new RandomAccessFile(idx, "rw");
+			file.seek(32);
+			file.writeInt(Integer.MAX_VALUE);
+			file.close();
+			Assert.assertNull(CsvIndex.load(csv));
+
+			index.save();
+			file = new RandomAccessFile(idx, "rw");
+			file.seek(28);
+			file.writeInt(9999);
+			file.close();
+			Assert.assertNull(CsvIndex.load(csv));
+
+			index.save();
+			Assert.assertNotNull(CsvIndex.load(csv));
+
+			/*
+			 * stale once the csv changes
+			 */
+			csv.setLastModified(csv.lastModified() + 2000);
+			Assert.assertFalse(index.isValid());
+			Assert.assertNull(CsvIndex.load(csv));
+
+			try {
+				CsvReader.openMapped(csv, SimpleCsvRecord.class).seek(index, 10);
+				Assert.assertTrue(false);
+			} catch (CsvException e) {
+				Assert.assertTrue(e.getMessage().contains("not a valid one"));
+			}
+
+		} finally {
+			csv.delete();
+			idx.delete();
+		}
+
+	}
+
+	public static class ForTestKeyRecord extends CsvBean {
+
+		@Column(name = "hanzi", unique = true)
+		private String hanzi;
+
+		@Column(name = "mark-pinyin")
+		private String markPinyin;
+
+		public String getHanzi() {
+			return hanzi;
+		}
+
+		public String getMarkPinyin() {
+			return markPinyin;
+		}
+
+	}
+
+	public void testKeyIndex() throws Exception {
+
+		File csv = File.createTempFile("key", "csv");
+		File key = CsvKeyIndex.getIndexFile(csv, "hanzi");
+
+		try {
+
+			List<SimpleCsvRecord> records = newRecords(5000, true);
+			CsvWriter.writeRecords(csv, SimpleCsvRecord.class, records);
+
+			/*
+			 * built in several runs
+			 */
+			CsvKeyIndex<ForTestKeyRecord> index = CsvKeyIndex.open(csv, ',', Charset.forName("gbk"),
+					ForTestKeyRecord.class, "hanzi", 700);
+			Assert.assertTrue(key.isFile());
+			Assert.assertEquals(5000, index.size());
+
+			ForTestKeyRecord bean = index.lookup("你好2343");
+			Assert.assertEquals(2345, bean.getLine().intValue());
+			Assert.assertEquals("ni hao 2343", bean.getMarkPinyin());
+			Assert.assertEquals("ni\r\nhao,\"4998\"", index.lookup("你好4998").getMarkPinyin());
+			Assert.assertEquals("你好0", index.lookup("你好0").getHanzi());
+			Assert.assertNull(index.lookup("你好5000"));
+
+			/*
+			 * an interrupted lookup closes the shared channel, it's reopened for the next one
+			 */
+			Thread.currentThread().interrupt();
+			try {
+				index.lookup("你好1");
+				Assert.assertTrue(false);
+			} catch (ClosedByInterruptException e) {
+				Assert.assertTrue(Thread.interrupted());
+			}
+			Assert.assertEquals("ni hao 1", index.lookup("你好1").getMarkPinyin());
+			index.close();
+
+			/*
+			 * loaded
+			 */
+			long saved = key.lastModified();
+			index = CsvKeyIndex.open(csv, ForTestKeyRecord.class, "hanzi");
+			Assert.assertEquals(saved, key.lastModified());
+			Assert.assertEquals("ni hao 4999", index.lookup("你好4999").getMarkPinyin());
+
+			/*
+			 * stale once the csv changes
+			 */
+			csv.setLastModified(csv.lastModified() + 2000);
+			Assert.assertFalse(index.isValid());
+			try {
+				index.lookup("你好1");
+				Assert.assertTrue(false);
+			} catch (CsvException e) {
+				Assert.assertTrue(e.getMessage().contains("changed"));
+			}
+			index.close();
+
+			try {
+				CsvKeyIndex.open(csv, ForTestKeyRecord.class, "mark-pinyin");
+				Assert.assertTrue(false);
+			} catch (CsvException e) {
+				Assert.assertTrue(e.getMessage().contains("not unique"));
+			}
+
+			/*
+			 * duplicate keys
+			 */
+			records.get(4000).setHanzi("你好12");
+			CsvWriter.writeRecords(csv, SimpleCsvRecord.class, records);
+			try {
+				CsvKeyIndex.open(csv, ',', Charset.forName("gbk"), ForTestKeyRecord.class, "hanzi", 700);
+				Assert.assertTrue(false);
+			} catch (CsvException e) {
+				Assert.assertTrue(e.getMessage().contains("#4002"));
+				Assert.assertTrue(e.getMessage().contains("first at line 14"));
+			}
+
+		} finally {
+			csv.delete();
+			key.delete();
+		}
+
+	}
+
+	private static void append(File csv, String content) throws IOException {
+
+		FileOutputStream out = new FileOutputStream(csv, true);
+		try {
+			out.write(content.getBytes("gbk"));
+		} finally {
+			out.close();
+		}
+
+	}
+
+	public void testFollow() throws Exception {
+
+		final File csv = File.createTempFile("follow", "csv");
+		csv.deleteOnExit();
+
+		Files.write(csv.toPath(), "hanzi,mark-pinyin\r\n你好1,ni hao 1\r\n你好2,ni hao 2\r\n你好3,\"ni h".getBytes("gbk"));
+
+		CsvReader<ForTestKeyRecord> reader = CsvReader.openMapped(csv, ForTestKeyRecord.class).follow(20,
+				TimeUnit.MILLISECONDS);
+
+		try {
+
+			Assert.assertEquals("你好1", reader.readRecord().getHanzi());
+			Assert.assertEquals("ni hao 2", reader.readRecord().getMarkPinyin());
+
+			/*
+			 * the partial record is held back
+			 */
+			Assert.assertNull(reader.readRecord());
+			Assert.assertNull(reader.readRecord());
+
+			append(csv, "ao\n 3\"\r\n你好4,ni hao 4\n");
+			ForTestKeyRecord bean = reader.readRecord();
+			Assert.assertEquals("ni hao\n 3", bean.getMarkPinyin());
+			Assert.assertEquals(4, bean.getLine().intValue());
+			Assert.assertEquals(5, reader.readRecord().getLine().intValue());
+
+			/*
+			 * a waiting read is woken by the append
+			 */
+			Thread writer = new Thread(new Runnable() {
+
+				@Override
+				public void run() {
+					try {
+						Thread.sleep(100);
+						append(csv, "你好5,ni hao 5\n");
+					} catch (Exception e) {
+						throw new RuntimeException(e);
+					}
+				}
+			});
+			writer.start();
+
+			reader.follow(10, TimeUnit.SECONDS);
+			long start = System.nanoTime();
+			Assert.assertEquals("你好5", reader.readRecord().getHanzi());
+			Assert.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+			writer.join();
+
+			/*
+			 * the unique values are remembered
+			 */
+			reader.follow(0, TimeUnit.MILLISECONDS);
+			append(csv, "你好1,ni hao 1\n");
+			try {
+				reader.readRecord();
+				Assert.assertTrue(false);
+			} catch (CsvException e) {
+				Assert.assertTrue(e.getMessage().contains("#7: duplicate [你好1]"));
+			}
+
+			Assert.assertNull(reader.readRecord());
+
+		} finally {
+			reader.close();
+		}
+
+	}
+
+	public void testCache() throws Exception {
+
+		File csv = File.createTempFile("cache", "csv");
+		File other = File.createTempFile("cache", "csv");
+
+		try {
+
+			List<SimpleCsvRecord> records = newRecords(100, false);
+			CsvWriter.writeRecords(csv, SimpleCsvRecord.class, records);
+			CsvWriter.writeRecords(other, SimpleCsvRecord.class, records.subList(0, 10));
+
+			final List<Runnable> reloads = new ArrayList<Runnable>();
+			CsvCache cache = new CsvCache(csv.length() + other.length(), new Executor() {
+
+				@Override
+				public void execute(Runnable command) {
+					reloads.add(command);
+				}
+			});
+
+			List<SimpleCsvRecord> cached = cache.readRecords(csv, SimpleCsvRecord.class);
+			Assert.assertEquals(100, cached.size());
+			Assert.assertSame(cached, cache.readRecords(csv, SimpleCsvRecord.class));
+			Assert.assertEquals("你好0", cache.readFirstRecord(csv, SimpleCsvRecord.class).getHanzi());
+			Assert.assertEquals(csv.length(), cache.getWeight());
+
+			/*
+			 * the previous records until the file is read again
+			 */
+			CsvWriter.writeRecords(csv, SimpleCsvRecord.class, records.subList(0, 50));
+			csv.setLastModified(csv.lastModified() + 2000);
+
+			Assert.assertSame(cached, cache.readRecords(csv, SimpleCsvRecord.class));
+			Assert.assertSame(cached, cache.readRecords(csv, SimpleCsvRecord.class));
+			Assert.assertEquals(1, reloads.size());
+
+			reloads.remove(0).run();
+			cached = cache.readRecords(csv, SimpleCsvRecord.class);
+			Assert.assertEquals(50, cached.size());
+			Assert.assertEquals(0, reloads.size());
+
+			/*
+			 * the previous records are kept when the file can't be read again
+			 */
+			long lastModified = csv.lastModified();
+			Files.write(csv.toPath(), "no,such,headers\r\n".getBytes("gbk"));
+			csv.setLastModified(lastModified + 2000);
+
+			Assert.assertSame(cached, cache.readRecords(csv, SimpleCsvRecord.class));
+			reloads.remove(0).run();
+			Assert.assertTrue(cache.getLastFailure() instanceof CsvException);
+			Assert.assertSame(cached, cache.readRecords(csv, SimpleCsvRecord.class));
+			Assert.assertEquals(1, cache.size());
+
+			CsvWriter.writeRecords(csv, SimpleCsvRecord.class, records.subList(0, 50));
+			csv.setLastModified(lastModified + 4000);
+			reloads.remove(0).run();
+			Assert.assertEquals(0, reloads.size());
+			Assert.assertNotSame(cached, cache.readRecords(csv, SimpleCsvRecord.class));
+			Assert.assertEquals(50, cache.readRecords(csv, SimpleCsvRecord.class).size());
+
+			/*
+			 * the least recently used file is dropped
+			 */
+			Assert.assertEquals(10, cache.readRecords(other, SimpleCsvRecord.class).size());
+			Assert.assertEquals(2, cache.size());
+
+			CsvWriter.writeRecords(other, SimpleCsvRecord.class, records);
+			cache.invalidate(other);
+			Assert.assertEquals(1, cache.size());
+			cache.readRecords(csv, SimpleCsvRecord.class);
+			Assert.assertEquals(100, cache.readRecords(other, SimpleCsvRecord.class).size());
+			Assert.assertEquals(1, cache.size());
+			Assert.assertEquals(other.length(), cache.getWeight());
+
+			/*
+			 * a reload which the executor rejects is read by the call
+			 */
+			CsvCache rejecting = new CsvCache(Long.MAX_VALUE, new Executor() {
+
+				@Override
+				public void execute(Runnable command) {
+					throw new RejectedExecutionException();
+				}
+			});
+
+			Assert.assertEquals(100, rejecting.readRecords(other, SimpleCsvRecord.class).size());
+			CsvWriter.writeRecords(other, SimpleCsvRecord.class, records.subList(0, 20));
+			Assert.assertEquals(20, rejecting.readRecords(other, SimpleCsvRecord.class).size());
+			Assert.assertEquals(20, rejecting.readRecords(other, SimpleCsvRecord.class).size());
+
+			/*
+			 * a failed read is not kept
+			 */
+			csv.delete();
+			try {
+				cache.readRecords(csv, SimpleCsvRecord.class);
+				Assert.assertTrue(false);
+			} catch (IOException e) {
+				Assert.assertEquals(1, cache.size());
+			}
+
+		} finally {
+			csv.delete();
+			other.delete();
+		}
+
+	}
+
+	public void testMapped() throws Exception {
+
+		File csv = new File(ClassLoader.getSystemResource("testUnique.csv").toURI());
+		CsvReader<SimpleCsvRecord> reader = CsvReader.openMapped(csv, SimpleCsvRecord.class);
+
+		try {
+
+			SimpleCsvRecord bean = reader.readRecord();
+			Assert.assertEquals("你好", bean.getHanzi());
+			Assert.assertEquals("ni hao", bean.getMarkPinyin());
+			Assert.assertEquals(2, bean.getLine().intValue());
+
+			bean = reader.readRecord();
+			Assert.assertEquals("天气", bean.getHanzi());
+			Assert.assertEquals(3, reader.getLine());
+
+		} finally {
+			reader.close();
+		}
+	}
+
+	public void testReadRecordsParallel() throws Exception {
+
+		File csv = File.createTempFile("parallel", "csv");
+
+		List<SimpleCsvRecord> records = newRecords(2000, true);
+		CsvWriter.writeRecords(csv, SimpleCsvRecord.class, records);
+
+		List<SimpleCsvRecord> expected = CsvReader.readRecords(csv, SimpleCsvRecord.class);
+
+		for (long chunkSize : new long[] { 7, 100, 1000, csv.length() }) {
+
+			ParallelCsvReader<SimpleCsvRecord> reader = new ParallelCsvReader<SimpleCsvRecord>(csv, ',', Charset
+					.forName("gbk"), SimpleCsvRecord.class, ForkJoinPool.commonPool());
+			reader.setChunkSize(chunkSize);
+
+			List<SimpleCsvRecord> actual = reader.read();
+
+			Assert.assertEquals(expected.size(), actual.size());
+			for (int i = 0; i < expected.size(); i++) {
+				Assert.assertEquals(expected.get(i).toString(), actual.get(i).toString());
+			}
+
+		}
+
+		csv.delete();
+	}
+
+	public void testReadRecordsParallelUnique() throws Exception {
+
+		File csv = new File(ClassLoader.getSystemResource("testUnique.csv").toURI());
+
+		try {
+			CsvReader.readRecordsParallel(csv, ForTestUniqueRecord.class);
+		} catch (CsvException e) {
+			Assert.assertTrue(e.getMessage().contains("#4: duplicate [你好]"));
+			Assert.assertTrue(e.getMessage().contains("#5: duplicate [天气]"));
+			return;
+		}
+
+		Assert.assertTrue(false);
+	}
+
+	public static class ForTestParallelKeyRecord extends CsvBean {
+
+		@Column(name = "id", unique = true)
+		private int id;
+
+		@SuppressWarnings("unused")
+		@Column(name = "name")
+		private String name;
+
+	}
+
+	public void testReadRecordsParallelUnique_rawCells() throws Exception {
+
+		File csv = File.createTempFile("parallel", "csv");
+
+		try {
+
+			/*
+			 * the cells differ, only their parsed values are equal
+			 */
+			Files.write(csv.toPath(), "id,name\r\n007,a\r\n7,b\r\n7,c\r\n".getBytes("gbk"));
+
+			ParallelCsvReader<ForTestParallelKeyRecord> reader = new ParallelCsvReader<ForTestParallelKeyRecord>(csv,
+					',', Charset.forName("gbk"), ForTestParallelKeyRecord.class, ForkJoinPool.commonPool());
+			reader.setChunkSize(7);
+
+			try {
+				reader.read();
+				Assert.assertTrue(false);
+			} catch (CsvException e) {
+				Assert.assertTrue(e.getMessage().contains("#4: duplicate [7] for column[id]"));
+				Assert.assertFalse(e.getMessage().contains("#3"));
+			}
+
+			Files.write(csv.toPath(), "id,name\r\n007,a\r\n7,b\r\n".getBytes("gbk"));
+			List<ForTestParallelKeyRecord> records = reader.read();
+			Assert.assertEquals(2, records.size());
+			Assert.assertEquals(7, records.get(1).id);
+
+		} finally {
+			csv.delete();
+		}
+
+	}
+
+	public void testStream() throws IOException, CsvException {
+
+		CsvReader<SimpleCsvRecord> reader = newCsvReader("testUnique.csv", SimpleCsvRecord.class);
+
+		SimpleCsvRecord record = reader.stream().filter(new Predicate<SimpleCsvRecord>() {
+
+			@Override
+			public boolean test(SimpleCsvRecord t) {
+				return t.getHanzi().equals("天气");
+			}
+		}).findFirst().get();
+
+		Assert.assertEquals(3, record.getLine().intValue());
+		Assert.assertEquals(3, reader.getLine());
+
+		int count = 0;
+		for (SimpleCsvRecord rest : reader) {
+			Assert.assertEquals(++count + 3, rest.getLine().intValue());
+		}
+		Assert.assertEquals(2, count);
+
+		reader.close();
+	}
+
+	public void testStreamException() throws IOException, CsvException {
+
+		CsvReader<ForTestUniqueRecord> reader = newCsvReader("testUnique.csv", ForTestUniqueRecord.class);
+
+		try {
+			reader.stream().count();
+		} catch (UncheckedCsvException e) {
+			Assert.assertTrue(e.getCause().getMessage().contains("duplicate [你好]"));
+			return;
+		} finally {
+			reader.close();
+		}
+
+		Assert.assertTrue(false);
+	}
+
+	public void testReadRecord_invalid() throws IOException, CsvException {
+
+		File tempCsvFile = File.createTempFile("ttt5", "csv");
+
+		FileOutputStream out = new FileOutputStream(tempCsvFile);
+		out.write("id,count,ratio,amount,date,level,score,name\n1,2,3,4,2016-02-29,LOW,x,a\n".getBytes("gbk"));
+		out.close();
+
+		try {
+			CsvReader.readRecords(tempCsvFile, TestCsvWriter.TypedCsvRecord.class);
+		} catch (CsvException e) {
+			TestCase.assertTrue(e.getMessage().contains("column[score]'s value[x] is invalid"));
+			return;
+		} finally {
+			tempCsvFile.delete();
+		}
+
+		TestCase.assertTrue(false);
+	}
+}
@@ -0,0 +1,184 @@
+package com.aispeech.aicsv;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class TestCsvSorter extends TestCase {
+
+	public static class SortRecord extends CsvBean {
+
+		@Column(name = "id")
+		private int id;
+
+		@Column(name = "count")
+		private long count;
+
+		@Column(name = "ratio")
+		private double ratio;
+
+		@Column(name = "amount")
+		private BigDecimal amount;
+
+		@Column(name = "date")
+		private LocalDate date;
+
+		@Column(name = "level")
+		private TestCsvWriter.Level level;
+
+		@Column(name = "score")
+		private Integer score;
+
+		@Column(name = "name", converter = TestCsvWriter.UpperCaseConverter.class)
+		private String name;
+
+	}
+
+	public static class UniqueSortRecord extends CsvBean {
+
+		@Column(name = "id", unique = true)
+		private String id;
+
+		@Column(name = "value")
+		private int value;
+
+	}
+
+	public void testSort() throws IOException, CsvException {
+
+		File input = File.createTempFile("ttt7", "csv");
+		File output = File.createTempFile("ttt8", "csv");
+		File directory = Files.createTempDirectory("sort").toFile();
+
+		try {
+
+			List<SortRecord> records = new ArrayList<SortRecord>();
+			for (int i = 0; i < 3000; i++) {
+				SortRecord record = new SortRecord();
+				record.id = (i * 7919) % 1000 - 500;
+				record.count = i;
+				record.ratio = i / 8.0;
+				record.amount = i % 5 == 0 ? null : new BigDecimal(i % 13 + ".5");
+				record.date = LocalDate.of(2016, 1, 1).plusDays(i % 3);
+				record.level = i % 2 == 0 ? TestCsvWriter.Level.HIGH : TestCsvWriter.Level.LOW;
+				record.name = "n" + i;
+				records.add(record);
+			}
+			CsvWriter.writeRecords(input, SortRecord.class, records);
+
+			/*
+			 * many runs merged in several passes
+			 */
+			CsvSorter<SortRecord> sorter = new CsvSorter<SortRecord>(SortRecord.class, "amount", "id");
+			sorter.setMemoryLimit(20000);
+			sorter.setFanIn(3);
+			sorter.setTempDirectory(directory);
+			sorter.sort(input, output);
+
+			TestCase.assertEquals(0, directory.list().length);
+
+			List<SortRecord> sorted = CsvReader.readRecords(output, SortRecord.class);
+			TestCase.assertEquals(3000, sorted.size());
+
+			SortRecord previous = null;
+			for (SortRecord record : sorted) {
+
+				if (previous != null) {
+
+					int c = previous.amount == null ? (record.amount == null ? 0 : -1) : previous.amount
+							.compareTo(record.amount);
+					TestCase.assertTrue(c <= 0);
+
+					if (c == 0) {
+						TestCase.assertTrue(previous.id <= record.id);
+
+						/*
+						 * stable
+						 */
+						if (previous.id == record.id) {
+							TestCase.assertTrue(previous.count < record.count);
+						}
+					}
+
+				}
+
+				TestCase.assertEquals(record.count / 8.0, record.ratio);
+				TestCase.assertEquals("N" + record.count, record.name);
+				TestCase.assertEquals(LocalDate.of(2016, 1, 1).plusDays(record.count % 3), record.date);
+
+				previous = record;
+			}
+
+			TestCase.assertNull(sorted.get(0).amount);
+
+			/*
+			 * in memory
+			 */
+			sorter = new CsvSorter<SortRecord>(SortRecord.class, "level", "count");
+			sorter.sort(input, output);
+
+			sorted = CsvReader.readRecords(output, SortRecord.class);
+			TestCase.assertEquals(TestCsvWriter.Level.LOW, sorted.get(0).level);
+			TestCase.assertEquals(1, sorted.get(0).count);
+			TestCase.assertEquals(TestCsvWriter.Level.HIGH, sorted.get(2999).level);
+			TestCase.assertEquals(2998, sorted.get(2999).count);
+
+			/*
+			 * constraints are checked
+			 */
+			FileOutputStream out = new FileOutputStream(input);
+			out.write("id,value\n1,1\n2,2\n1,3\n".getBytes("gbk"));
+			out.close();
+
+			try {
+				new CsvSorter<UniqueSortRecord>(UniqueSortRecord.class, "value").sort(input, output);
+				TestCase.assertTrue(false);
+			} catch (CsvException e) {
+				TestCase.assertTrue(e.getMessage().contains("duplicate [1]"));
+				TestCase.assertFalse(output.exists());
+			}
+
+			/*
+			 * the writer checks its unique columns again after sorting
+			 */
+			out = new FileOutputStream(input);
+			out.write("id,value\n2,1\n1,2\n".getBytes("gbk"));
+			out.close();
+
+			CsvWriter<UniqueSortRecord> writer = new CsvWriter<UniqueSortRecord>(output, UniqueSortRecord.class);
+			try {
+
+				new CsvSorter<UniqueSortRecord>(UniqueSortRecord.class, "value").sort(
+						CsvReader.openMapped(input, UniqueSortRecord.class), writer);
+
+				UniqueSortRecord record = new UniqueSortRecord();
+				record.id = "3";
+				writer.writeRecord(record);
+
+				try {
+					writer.writeRecord(record);
+					TestCase.assertTrue(false);
+				} catch (CsvException e) {
+					TestCase.assertTrue(e.getMessage().contains("duplicate [3]"));
+				}
+
+			} finally {
+				writer.close();
+			}
+
+		} finally {
+			input.delete();
+			output.delete();
+			directory.delete();
+		}
+
+	}
+
+}
@@ -0,0 +1,144 @@
+package com.aispeech.aicsv;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import junit.framework.TestCase;
+
+public class TestCsvTable extends TestCase {
+
+	public static class TableRecord extends CsvBean {
+
+		@Column(name = "id")
+		private int id;
+
+		@Column(name = "count")
+		private long count;
+
+		@Column(name = "ratio")
+		private double ratio;
+
+		@Column(name = "amount")
+		private BigDecimal amount;
+
+		@Column(name = "date")
+		private LocalDate date;
+
+		@Column(name = "level")
+		private TestCsvWriter.Level level;
+
+		@Column(name = "score")
+		private Integer score;
+
+		@Column(name = "name", converter = TestCsvWriter.UpperCaseConverter.class)
+		private String name;
+
+	}
+
+	public void testTable() throws IOException, CsvException {
+
+		File tempCsvFile = File.createTempFile("ttt6", "csv");
+
+		FileOutputStream out = new FileOutputStream(tempCsvFile);
+		out.write(("id,count,ratio,amount,date,level,score,name\n" + "1,10,0.5,1.5,2016-02-29,LOW,7,a\n"
+				+ "2,,2.25,,,HIGH,,b\n" + "3,30,1e30,3,,LOW,,a\n").getBytes("gbk"));
+		out.close();
+
+		try {
+
+			CsvTable<TableRecord> table = CsvTable.load(tempCsvFile, TableRecord.class);
+
+			TestCase.assertEquals(3, table.size());
+			TestCase.assertEquals(4, table.getLine(2));
+
+			TestCase.assertEquals(2, table.getLong(1, "id"));
+			TestCase.assertEquals(0, table.getLong(1, "count"));
+			TestCase.assertEquals(1e30, table.getDouble(2, "ratio"));
+			TestCase.assertEquals("LOW", table.getString(2, "level"));
+			TestCase.assertEquals("", table.getString(1, "amount"));
+
+			TableRecord record = table.get(0);
+			TestCase.assertEquals(2, record.getLine().intValue());
+			TestCase.assertEquals(1, record.id);
+			TestCase.assertEquals(10, record.count);
+			TestCase.assertEquals(0.5, record.ratio);
+			TestCase.assertEquals(0, new BigDecimal("1.5").compareTo(record.amount));
+			TestCase.assertEquals(LocalDate.of(2016, 2, 29), record.date);
+			TestCase.assertEquals(TestCsvWriter.Level.LOW, record.level);
+			TestCase.assertEquals(Integer.valueOf(7), record.score);
+			TestCase.assertEquals("A", record.name);
+
+			int count = 0;
+			for (TableRecord r : table) {
+				TestCase.assertEquals(table.getLine(count++), r.getLine().intValue());
+			}
+			TestCase.assertEquals(3, count);
+
+		} finally {
+			tempCsvFile.delete();
+		}
+
+	}
+
+	public static class ConstrainedRecord extends CsvBean {
+
+		@Column(name = "id", unique = true)
+		private int id;
+
+		@Column(name = "code", matches = "[0-9]+")
+		private long code;
+
+		@Column(name = "date")
+		private LocalDate date;
+
+	}
+
+	public void testTable_constrained() throws IOException, CsvException {
+
+		File tempCsvFile = File.createTempFile("ttt6", "csv");
+
+		FileOutputStream out = new FileOutputStream(tempCsvFile);
+		out.write(("id,code,date\n" + "1,10,2016-02-29\n" + "2,20,2016-02-29\n").getBytes("gbk"));
+		out.close();
+
+		try {
+
+			/*
+			 * typed storage despite the constraints
+			 */
+			CsvTable<ConstrainedRecord> table = CsvTable.load(tempCsvFile, ConstrainedRecord.class);
+			TestCase.assertEquals(2, table.getLong(1, "id"));
+			TestCase.assertEquals(20, table.getLong(1, "code"));
+			TestCase.assertEquals(10.0, table.getDouble(0, "code"));
+
+			ConstrainedRecord record = table.get(1);
+			TestCase.assertEquals(2, record.id);
+			TestCase.assertEquals(20, record.code);
+
+			/*
+			 * converted once
+			 */
+			TestCase.assertSame(table.get(0).date, record.date);
+			TestCase.assertSame(record.date, table.get(1).date);
+
+			out = new FileOutputStream(tempCsvFile, true);
+			out.write("1,30,\n".getBytes("gbk"));
+			out.close();
+
+			try {
+				CsvTable.load(tempCsvFile, ConstrainedRecord.class);
+				TestCase.assertTrue(false);
+			} catch (CsvException e) {
+				TestCase.assertTrue(e.getMessage().contains("#4: duplicate [1]"));
+			}
+
+		} finally {
+			tempCsvFile.delete();
+		}
+
+	}
+
+}
@@ -0,0 +1,199 @@
+package com.aispeech.aicsv;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.io.StringReader;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class TestCsvTokenizer extends TestCase {
+
+	private static List<List<String>> tokenize(CsvTokenizer tokenizer) throws IOException {
+
+		List<List<String>> records = new ArrayList<List<String>>();
+
+		while (tokenizer.readRecord()) {
+			records.add(Arrays.asList(tokenizer.getValues()));
+		}
+		tokenizer.close();
+
+		return records;
+	}
+
+	private static void assertTokens(String text, String[]... expected) throws IOException {
+
+		File file = File.createTempFile("tokenizer", "csv");
+		FileOutputStream out = new FileOutputStream(file);
+		out.write(text.getBytes("utf-8"));
+		out.close();
+
+		for (int bufferSize : new int[] { 16, 1024 }) {
+
+			FileChannel channel = new RandomAccessFile(file, "r").getChannel();
+
+			assertRecords(tokenize(new CharTokenizer(new StringReader(text), ',', bufferSize)), expected);
+			assertRecords(tokenize(new MappedTokenizer(channel, ',', Charset.forName("utf-8"), bufferSize)), expected);
+
+			/*
+			 * a stream which returns a few bytes at a time
+			 */
+			for (final int step : new int[] { 1, 3 }) {
+
+				InputStream trickle = new FilterInputStream(new ByteArrayInputStream(text.getBytes("utf-8"))) {
+
+					@Override
+					public int read(byte[] b, int off, int len) throws IOException {
+						return super.read(b, off, Math.min(len, step));
+					}
+				};
+
+				assertRecords(tokenize(new InputStreamTokenizer(trickle, ',', Charset.forName("utf-8"), bufferSize)),
+						expected);
+
+			}
+
+		}
+
+		file.delete();
+	}
+
+	private static void assertRecords(List<List<String>> records, String[]... expected) {
+
+		TestCase.assertEquals(expected.length, records.size());
+		for (int i = 0; i < expected.length; i++) {
+			TestCase.assertEquals(Arrays.asList(expected[i]), records.get(i));
+		}
+
+	}
+
+	public void testStreamNotWaited() throws IOException {
+
+		/*
+		 * a complete record is returned without reading on, the rest has not been sent yet
+		 */
+		InputStream in = new InputStream() {
+
+			private boolean sent = false;
+
+			@Override
+			public int read() throws IOException {
+				throw new UnsupportedOperationException();
+			}
+
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+
+				TestCase.assertFalse(sent);
+				sent = true;
+
+				byte[] bytes = "a,\"b\"\nc,\"d".getBytes("utf-8");
+				System.arraycopy(bytes, 0, b, off, bytes.length);
+
+				return bytes.length;
+			}
+		};
+
+		CsvTokenizer tokenizer = new InputStreamTokenizer(in, ',', Charset.forName("utf-8"));
+		TestCase.assertTrue(tokenizer.readRecord());
+		TestCase.assertEquals(Arrays.asList("a", "b"), Arrays.asList(tokenizer.getValues()));
+
+	}
+
+	public void testColumnLimit() throws IOException {
+
+		CsvTokenizer tokenizer = new CharTokenizer(new StringReader("a,b,\"c\nd\",e\nf,g\n"), ',', 16);
+		tokenizer.setColumnLimit(2);
+
+		assertRecords(tokenize(tokenizer), new String[] { "a", "b" }, new String[] { "f", "g" });
+
+	}
+
+	public void testParseNumbers() throws IOException {
+
+		String[] cells = { "0", "-12", "+7", " 42\t", "123456789012345678", "1234567890123456789", "3.25", "-0.5e-3",
+				"1e22", "9007199254740993", "0.1", ".5", "1.", "1e", "abc", "", "--1", "5d" };
+
+		StringBuilder text = new StringBuilder();
+		for (String cell : cells) {
+			text.append(cell).append(',');
+		}
+
+		CsvTokenizer tokenizer = new CharTokenizer(new StringReader(text.toString()), ',');
+		tokenizer.readRecord();
+
+		for (int i = 0; i < cells.length; i++) {
+
+			String cell = cells[i].trim();
+
+			Long expectedLong = null;
+			try {
+				if (cell.length() <= 18) {
+					expectedLong = Long.parseLong(cell);
+				}
+			} catch (NumberFormatException e) {
+				// not a long
+			}
+
+			TestCase.assertEquals(cell, expectedLong != null, tokenizer.parseLong(i, true));
+			if (expectedLong != null) {
+				TestCase.assertEquals(cell, expectedLong.longValue(), tokenizer.longValue);
+			}
+
+			if (tokenizer.parseDouble(i, true)) {
+				TestCase.assertEquals(cell, Double.parseDouble(cell), tokenizer.doubleValue);
+			}
+
+		}
+
+		TestCase.assertFalse(tokenizer.parseLong(3, false));
+		TestCase.assertFalse(tokenizer.parseDouble(9, true));
+		TestCase.assertTrue(tokenizer.parseDouble(10, true));
+
+		tokenizer.close();
+
+	}
+
+	public void testLineEnds() throws IOException {
+		assertTokens("a,b\r\nc,d\ne,f\rg,h", new String[] { "a", "b" }, new String[] { "c", "d" }, new String[] { "e",
+				"f" }, new String[] { "g", "h" });
+	}
+
+	public void testEmptyLinesAndCells() throws IOException {
+		assertTokens("\r\n\r\n,\r\n\r\na,\n", new String[] { "", "" }, new String[] { "a", "" });
+	}
+
+	public void testQuoted() throws IOException {
+		assertTokens("\"a,\"\"b\"\"\",\"line1\r\nline2\"\r\n\"x\"yz,\" w \"", new String[] { "a,\"b\"", "line1\r\nline2" },
+				new String[] { "x", " w " });
+	}
+
+	public void testQuoteInsideUnquotedCell() throws IOException {
+		assertTokens("a\"b,c", new String[] { "a\"b", "c" });
+	}
+
+	public void testMultiByte() throws IOException {
+		assertTokens("你好,\"再,见\"\n", new String[] { "你好", "再,见" });
+	}
+
+	public void testLongRecordGrowsBuffer() throws IOException {
+
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 100; i++) {
+			sb.append("\"\"quoted\"\"");
+		}
+
+		String[] expected = new String[] { sb.toString().replace("\"\"", "\""), "tail" };
+		assertTokens("\"" + sb + "\",tail\n", expected);
+	}
+
+}
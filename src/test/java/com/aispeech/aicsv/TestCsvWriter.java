@@ -1,9 +1,26 @@
 package com.aispeech.aicsv;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
 
 import junit.framework.TestCase;
 
@@ -104,6 +121,594 @@ public class TestCsvWriter extends TestCase {
 		tempCsvFile.delete();
 	}
 
+	public void testWriteRecord_quoted() throws IOException, CsvException {
+
+		File tempCsvFile = File.createTempFile("ttt3", "csv");
+
+		SimpleCsvRecord record = new SimpleCsvRecord();
+		record.setHanzi("\"你,好\"");
+		record.setMarkPinyin("ni\nhao");
+
+		CsvWriter.writeRecords(tempCsvFile, SimpleCsvRecord.class, record);
+
+		String content = readFileToString(tempCsvFile, "gbk");
+		TestCase.assertTrue(content.contains("\"\"\"你,好\"\"\",\"ni\nhao\""));
+
+		SimpleCsvRecord read = CsvReader.readFirstRecord(tempCsvFile, SimpleCsvRecord.class);
+		TestCase.assertEquals("\"你,好\"", read.getHanzi());
+		TestCase.assertEquals("ni\nhao", read.getMarkPinyin());
+
+		tempCsvFile.delete();
+	}
+
+	public enum Level {
+		LOW, HIGH
+	}
+
+	public static class TypedCsvRecord extends CsvBean {
+
+		@Column(name = "id")
+		private int id;
+
+		@Column(name = "count")
+		private long count;
+
+		@Column(name = "ratio")
+		private double ratio;
+
+		@Column(name = "amount")
+		private BigDecimal amount;
+
+		@Column(name = "date")
+		private LocalDate date;
+
+		@Column(name = "level")
+		private Level level;
+
+		@Column(name = "score")
+		private Integer score;
+
+		@Column(name = "name", converter = UpperCaseConverter.class)
+		private String name;
+
+	}
+
+	public static class UpperCaseConverter implements ColumnConverter<String> {
+
+		@Override
+		public String parse(String value) {
+			return value.toUpperCase();
+		}
+
+		@Override
+		public String format(String value) {
+			return value.toLowerCase();
+		}
+
+	}
+
+	public void testWriteRecord_typed() throws IOException, CsvException {
+
+		File tempCsvFile = File.createTempFile("ttt4", "csv");
+
+		TypedCsvRecord record = new TypedCsvRecord();
+		record.id = -42;
+		record.count = Long.MIN_VALUE;
+		record.ratio = 0.125;
+		record.amount = new BigDecimal("1E+3");
+		record.date = LocalDate.of(2016, 2, 29);
+		record.level = Level.HIGH;
+		record.name = "Foo";
+
+		CsvWriter.writeRecords(tempCsvFile, TypedCsvRecord.class, record);
+
+		String content = readFileToString(tempCsvFile, "gbk");
+		TestCase.assertEquals("-42,-9223372036854775808,0.125,1000,2016-02-29,HIGH,,foo", content.split("\r?\n")[1]);
+
+		TypedCsvRecord read = CsvReader.readFirstRecord(tempCsvFile, TypedCsvRecord.class);
+		TestCase.assertEquals(-42, read.id);
+		TestCase.assertEquals(Long.MIN_VALUE, read.count);
+		TestCase.assertEquals(0.125, read.ratio);
+		TestCase.assertEquals(0, new BigDecimal("1000").compareTo(read.amount));
+		TestCase.assertEquals(record.date, read.date);
+		TestCase.assertEquals(Level.HIGH, read.level);
+		TestCase.assertNull(read.score);
+		TestCase.assertEquals("FOO", read.name);
+
+		tempCsvFile.delete();
+	}
+
+	public static class Tag {
+
+		private final String name;
+
+		Tag(String name) {
+			this.name = name;
+		}
+
+		@Override
+		public String toString() {
+			return "#" + name;
+		}
+
+	}
+
+	public static class TagCsvRecord extends CsvBean {
+
+		@Column(name = "id")
+		private int id;
+
+		@Column(name = "tag")
+		private Tag tag;
+
+	}
+
+	public void testWriteRecord_noConverter() throws IOException, CsvException {
+
+		File tempCsvFile = File.createTempFile("ttt4", "csv");
+
+		try {
+
+			TagCsvRecord record = new TagCsvRecord();
+			record.id = 1;
+			record.tag = new Tag("a");
+
+			CsvWriter.writeRecords(tempCsvFile, TagCsvRecord.class, record);
+
+			String content = readFileToString(tempCsvFile, "gbk");
+			TestCase.assertEquals("1,#a", content.split("\r?\n")[1]);
+
+			/*
+			 * the other columns can still be read
+			 */
+			CsvReader<TagCsvRecord> reader = CsvReader.openMapped(tempCsvFile, TagCsvRecord.class).select("id");
+			TestCase.assertEquals(1, reader.readRecord().id);
+			reader.close();
+
+			try {
+				CsvReader.readFirstRecord(tempCsvFile, TagCsvRecord.class);
+				TestCase.assertTrue(false);
+			} catch (CsvException e) {
+				TestCase.assertTrue(e.getMessage().contains("No converter for field["));
+			}
+
+		} finally {
+			tempCsvFile.delete();
+		}
+
+	}
+
+	public void testWriteRecord_charsets() throws IOException, CsvException {
+
+		SimpleCsvRecord record = new SimpleCsvRecord();
+		record.setHanzi("你好\uD83D\uDE00é");
+		record.setMarkPinyin("ni hao");
+
+		for (String charset : new String[] { "utf-8", "gbk", "gb18030", "iso-8859-1", "utf-16" }) {
+
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+			CsvWriter<SimpleCsvRecord> writer = new CsvWriter<SimpleCsvRecord>(bytes, ',', Charset.forName(charset),
+					SimpleCsvRecord.class);
+			writer.writeRecord(record);
+			writer.close();
+
+			String expected = "hanzi,mark-pinyin" + System.getProperty("line.separator") + record.getHanzi()
+					+ ",ni hao" + System.getProperty("line.separator");
+
+			TestCase.assertTrue(charset, Arrays.equals(expected.getBytes(charset), bytes.toByteArray()));
+
+		}
+
+	}
+
+	public void testFlushPolicy() throws IOException, CsvException {
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+		CsvWriter<SimpleCsvRecord> writer = new CsvWriter<SimpleCsvRecord>(bytes, ',', Charset.forName("gbk"),
+				SimpleCsvRecord.class);
+		writer.setFlushPolicy(FlushPolicy.byCount(2));
+
+		SimpleCsvRecord record = new SimpleCsvRecord();
+		record.setHanzi("你好");
+
+		writer.writeRecord(record);
+		int size = bytes.size();
+		TestCase.assertTrue(size > 0);
+
+		writer.writeRecords(Arrays.asList(record, record));
+		TestCase.assertTrue(bytes.size() > size);
+		size = bytes.size();
+
+		writer.setFlushPolicy(FlushPolicy.explicit());
+		writer.writeRecords(Arrays.asList(record, record, record));
+		TestCase.assertEquals(size, bytes.size());
+
+		writer.flush();
+		TestCase.assertTrue(bytes.size() > size);
+
+		writer.close();
+
+		TestCase.assertEquals(7, new String(bytes.toByteArray(), "gbk").split("\r?\n").length);
+
+		/*
+		 * a failure of the last write is thrown by finish()
+		 */
+		writer = new CsvWriter<SimpleCsvRecord>(new ByteArrayOutputStream() {
+
+			@Override
+			public void close() throws IOException {
+				throw new IOException("disk full");
+			}
+		}, ',', Charset.forName("gbk"), SimpleCsvRecord.class);
+
+		writer.writeRecord(record);
+
+		try {
+			writer.finish();
+			TestCase.assertTrue(false);
+		} catch (IOException e) {
+			TestCase.assertEquals("disk full", e.getMessage());
+		}
+
+		try {
+			writer.writeRecord(record);
+			TestCase.assertTrue(false);
+		} catch (CsvException e) {
+			TestCase.assertEquals("writer was already closed.", e.getMessage());
+		}
+
+	}
+
+	public void testAsyncWriter() throws Exception {
+
+		File tempCsvFile = File.createTempFile("ttt6", "csv");
+
+		final AsyncCsvWriter<TestCsvReader.SimpleCsvRecord> writer = new AsyncCsvWriter<TestCsvReader.SimpleCsvRecord>(
+				new CsvWriter<TestCsvReader.SimpleCsvRecord>(tempCsvFile, TestCsvReader.SimpleCsvRecord.class), 16);
+
+		final TestCsvReader.SimpleCsvRecord blank = new TestCsvReader.SimpleCsvRecord();
+		blank.setMarkPinyin("ni hao");
+
+		writer.writeRecord(newRecord());
+		writer.writeRecord(blank);
+
+		try {
+			writer.flush().get();
+			TestCase.assertTrue(false);
+		} catch (ExecutionException e) {
+			TestCase.assertTrue(e.getCause().getMessage().contains("#3: column[hanzi] should not be blank"));
+			TestCase.assertEquals(3, blank.getLine().intValue());
+		}
+
+		Thread[] producers = new Thread[4];
+		for (int i = 0; i < producers.length; i++) {
+
+			producers[i] = new Thread(new Runnable() {
+
+				@Override
+				public void run() {
+					try {
+						for (int j = 0; j < 1000; j++) {
+							writer.writeRecord(newRecord());
+						}
+					} catch (Exception e) {
+						throw new RuntimeException(e);
+					}
+				}
+			});
+			producers[i].start();
+
+		}
+
+		for (Thread producer : producers) {
+			producer.join();
+		}
+
+		writer.close().get();
+
+		List<TestCsvReader.SimpleCsvRecord> records = CsvReader.readRecords(tempCsvFile,
+				TestCsvReader.SimpleCsvRecord.class);
+		TestCase.assertEquals(4001, records.size());
+
+		tempCsvFile.delete();
+	}
+
+	public void testAsyncWriter_closeWhileFull() throws Exception {
+
+		File tempCsvFile = File.createTempFile("ttt6", "csv");
+
+		final AsyncCsvWriter<TestCsvReader.SimpleCsvRecord> writer = new AsyncCsvWriter<TestCsvReader.SimpleCsvRecord>(
+				new CsvWriter<TestCsvReader.SimpleCsvRecord>(tempCsvFile, TestCsvReader.SimpleCsvRecord.class), 2);
+
+		final AtomicInteger accepted = new AtomicInteger();
+		final AtomicReference<Exception> rejected = new AtomicReference<Exception>();
+
+		Thread producer = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				try {
+					while (true) {
+						writer.writeRecord(newRecord());
+						accepted.incrementAndGet();
+					}
+				} catch (Exception e) {
+					rejected.set(e);
+				}
+			}
+		});
+		producer.start();
+
+		while (accepted.get() < 100) {
+			Thread.sleep(1);
+		}
+
+		writer.close().get();
+
+		producer.join(10000);
+		TestCase.assertFalse(producer.isAlive());
+		TestCase.assertTrue(rejected.get() instanceof CsvException);
+		TestCase.assertEquals("writer was already closed.", rejected.get().getMessage());
+
+		List<TestCsvReader.SimpleCsvRecord> records = CsvReader.readRecords(tempCsvFile,
+				TestCsvReader.SimpleCsvRecord.class);
+		TestCase.assertEquals(accepted.get(), records.size());
+
+		tempCsvFile.delete();
+	}
+
+	public static class UniqueCsvRecord extends CsvBean {
+
+		@Column(name = "id", unique = true)
+		private String id;
+
+		@Column(name = "value")
+		private int value;
+
+	}
+
+	public void testConcurrentWriter() throws Exception {
+
+		File tempCsvFile = File.createTempFile("ttt7", "csv");
+
+		final ConcurrentCsvWriter<UniqueCsvRecord> writer = new ConcurrentCsvWriter<UniqueCsvRecord>(tempCsvFile,
+				',', Charset.forName("utf-8"), UniqueCsvRecord.class);
+		writer.setFlushPolicy(FlushPolicy.byCount(100));
+
+		final AtomicInteger duplicates = new AtomicInteger();
+
+		Thread[] producers = new Thread[4];
+		for (int i = 0; i < producers.length; i++) {
+
+			producers[i] = new Thread(new Runnable() {
+
+				@Override
+				public void run() {
+					for (int j = 0; j < 1000; j++) {
+
+						UniqueCsvRecord record = new UniqueCsvRecord();
+						record.id = "你好" + j;
+						record.value = j;
+
+						try {
+							writer.writeRecord(record);
+						} catch (CsvException e) {
+							TestCase.assertTrue(e.getMessage().contains("duplicate [你好" + j + "]"));
+							duplicates.incrementAndGet();
+						} catch (IOException e) {
+							throw new RuntimeException(e);
+						}
+
+					}
+				}
+			});
+			producers[i].start();
+
+		}
+
+		for (Thread producer : producers) {
+			producer.join();
+		}
+
+		writer.close();
+
+		TestCase.assertEquals(3000, duplicates.get());
+		TestCase.assertEquals(4001, writer.getLine());
+
+		CsvReader<UniqueCsvRecord> reader = CsvReader.openMapped(tempCsvFile, ',', Charset.forName("utf-8"),
+				UniqueCsvRecord.class);
+		List<UniqueCsvRecord> records = reader.readRecords(new ValidationReport());
+
+		TestCase.assertEquals(1000, records.size());
+		for (UniqueCsvRecord record : records) {
+			TestCase.assertEquals("你好" + record.value, record.id);
+		}
+
+		tempCsvFile.delete();
+	}
+
+	public static class TwoUniqueCsvRecord extends CsvBean {
+
+		@Column(name = "id", unique = true)
+		private String id;
+
+		@Column(name = "code", unique = true)
+		private String code;
+
+		TwoUniqueCsvRecord() {
+		}
+
+		TwoUniqueCsvRecord(String id, String code) {
+			this.id = id;
+			this.code = code;
+		}
+
+	}
+
+	public void testConcurrentWriter_rejected() throws Exception {
+
+		File tempCsvFile = File.createTempFile("ttt7", "csv");
+
+		ConcurrentCsvWriter<TwoUniqueCsvRecord> writer = new ConcurrentCsvWriter<TwoUniqueCsvRecord>(tempCsvFile,
+				',', Charset.forName("utf-8"), TwoUniqueCsvRecord.class);
+
+		writer.writeRecord(new TwoUniqueCsvRecord("id1", "code1"));
+
+		/*
+		 * the id of a record rejected for its code is not kept
+		 */
+		try {
+			writer.writeRecord(new TwoUniqueCsvRecord("id2", "code1"));
+			TestCase.assertTrue(false);
+		} catch (CsvException e) {
+			TestCase.assertTrue(e.getMessage().contains("duplicate [code1]"));
+		}
+		writer.writeRecord(new TwoUniqueCsvRecord("id2", "code2"));
+
+		writer.close();
+
+		try {
+			writer.writeRecord(new TwoUniqueCsvRecord("id3", "code3"));
+			TestCase.assertTrue(false);
+		} catch (CsvException e) {
+			TestCase.assertEquals("writer was already closed.", e.getMessage());
+		}
+
+		List<TwoUniqueCsvRecord> records = CsvReader.readRecords(CsvReader.openMapped(tempCsvFile, ',', Charset
+				.forName("utf-8"), TwoUniqueCsvRecord.class));
+		TestCase.assertEquals(2, records.size());
+		TestCase.assertEquals("id2", records.get(1).id);
+
+		tempCsvFile.delete();
+	}
+
+	public void testCompression() throws Exception {
+
+		List<TestCsvReader.SimpleCsvRecord> records = TestCsvReader.newRecords(50000, false);
+
+		for (String suffix : Arrays.asList(".csv.gz", ".csv.zst")) {
+
+			File compressed = File.createTempFile("ttt7", suffix);
+
+			try {
+
+				CsvWriter.writeRecords(compressed, TestCsvReader.SimpleCsvRecord.class, records);
+				assertCompressed(compressed, records);
+
+			} finally {
+				compressed.delete();
+			}
+
+		}
+
+		/*
+		 * block-gzip, 64K members
+		 */
+		File plain = File.createTempFile("ttt8", "csv");
+		File bgzf = File.createTempFile("ttt8", "csv.gz");
+
+		try {
+
+			CsvWriter.writeRecords(plain, TestCsvReader.SimpleCsvRecord.class, records);
+
+			byte[] content = Files.readAllBytes(plain.toPath());
+			FileOutputStream out = new FileOutputStream(bgzf);
+			for (int p = 0; p < content.length; p += 0xff00) {
+				writeBgzfMember(out, content, p, Math.min(0xff00, content.length - p));
+			}
+			writeBgzfMember(out, content, 0, 0);
+			out.close();
+
+			TestCase.assertTrue(BgzfInputStream.isBgzf(bgzf));
+			assertCompressed(bgzf, records);
+
+			/*
+			 * a corrupt size is not allocated
+			 */
+			out = new FileOutputStream(bgzf);
+			writeBgzfMember(out, content, 0, 16);
+			out.close();
+
+			RandomAccessFile file = new RandomAccessFile(bgzf, "rw");
+			file.seek(file.length() - 4);
+			file.writeInt(0x7fffffff);
+			file.close();
+
+			BgzfInputStream in = new BgzfInputStream(bgzf);
+			try {
+				in.read();
+				TestCase.assertTrue(false);
+			} catch (IOException e) {
+				TestCase.assertTrue(e.getMessage().contains("uncompressed size"));
+			} finally {
+				in.close();
+			}
+
+		} finally {
+			plain.delete();
+			bgzf.delete();
+		}
+
+	}
+
+	private static void assertCompressed(File file, List<TestCsvReader.SimpleCsvRecord> records) throws Exception {
+
+		TestCase.assertTrue(Compression.of(file) != Compression.NONE);
+
+		List<TestCsvReader.SimpleCsvRecord> read = CsvReader
+				.readRecords(file, TestCsvReader.SimpleCsvRecord.class);
+		TestCase.assertEquals(records.size(), read.size());
+		TestCase.assertEquals("你好49999", read.get(49999).getHanzi());
+		TestCase.assertEquals(50001, read.get(49999).getLine().intValue());
+
+		read = CsvReader.readRecordsParallel(file, TestCsvReader.SimpleCsvRecord.class);
+		TestCase.assertEquals("ni hao 12345", read.get(12345).getMarkPinyin());
+
+		CsvReader<TestCsvReader.SimpleCsvRecord> reader = CsvReader.openMapped(file,
+				TestCsvReader.SimpleCsvRecord.class);
+		TestCase.assertEquals("你好0", reader.readRecord().getHanzi());
+		reader.close();
+
+	}
+
+	private static void writeBgzfMember(FileOutputStream out, byte[] content, int offset, int length)
+			throws IOException {
+
+		Deflater deflater = new Deflater(6, true);
+		deflater.setInput(content, offset, length);
+		deflater.finish();
+
+		byte[] data = new byte[0x10000];
+		int size = deflater.deflate(data);
+		deflater.end();
+
+		CRC32 crc = new CRC32();
+		crc.update(content, offset, length);
+
+		int blockSize = 18 + size + 8 - 1;
+
+		ByteBuffer member = ByteBuffer.allocate(blockSize + 1).order(ByteOrder.LITTLE_ENDIAN);
+		member.put(new byte[] { 0x1f, (byte) 0x8b, 8, 4, 0, 0, 0, 0, 0, (byte) 0xff, 6, 0, 'B', 'C', 2, 0 });
+		member.putShort((short) blockSize);
+		member.put(data, 0, size);
+		member.putInt((int) crc.getValue());
+		member.putInt(length);
+
+		out.write(member.array());
+
+	}
+
+	private static TestCsvReader.SimpleCsvRecord newRecord() {
+
+		TestCsvReader.SimpleCsvRecord record = new TestCsvReader.SimpleCsvRecord();
+		record.setHanzi("你好");
+		record.setMarkPinyin("ni hao");
+
+		return record;
+	}
+
 	private String readFileToString(File file, String encoding) throws IOException {
 
 		FileInputStream fis = new FileInputStream(file);
@@ -0,0 +1,125 @@
+package com.aispeech.aicsv;
+
+import java.lang.reflect.Field;
+
+import junit.framework.TestCase;
+
+public class TestFieldAccessors extends TestCase {
+
+	public static class AccessorRecord extends CsvBean {
+
+		private int count;
+		private Integer boxed;
+		private CharSequence text;
+		private boolean flag;
+		private String hidden;
+
+		public int getCount() {
+			return count;
+		}
+
+		public void setCount(int count) {
+			this.count = count;
+		}
+
+		public Integer getBoxed() {
+			return boxed;
+		}
+
+		public void setBoxed(Integer boxed) {
+			this.boxed = boxed;
+		}
+
+		public CharSequence getText() {
+			return text;
+		}
+
+		public void setText(CharSequence text) {
+			this.text = text;
+		}
+
+		public boolean isFlag() {
+			return flag;
+		}
+
+		public void setFlag(boolean flag) {
+			this.flag = flag;
+		}
+
+	}
+
+	private static FieldAccessor create(FieldAccessors strategy, String name) throws Exception {
+		return strategy.create(AccessorRecord.class.getDeclaredField(name));
+	}
+
+	private static void roundTrip(FieldAccessors strategy) throws Exception {
+
+		AccessorRecord record = new AccessorRecord();
+
+		FieldAccessor count = create(strategy, "count");
+		count.set(record, 42);
+		TestCase.assertEquals(42, record.getCount());
+		TestCase.assertEquals(Integer.valueOf(42), count.get(record));
+
+		FieldAccessor boxed = create(strategy, "boxed");
+		boxed.set(record, 7);
+		TestCase.assertEquals(Integer.valueOf(7), boxed.get(record));
+		boxed.set(record, null);
+		TestCase.assertNull(record.getBoxed());
+		TestCase.assertNull(boxed.get(record));
+
+		FieldAccessor text = create(strategy, "text");
+		StringBuilder builder = new StringBuilder("你好");
+		text.set(record, builder);
+		TestCase.assertSame(builder, record.getText());
+		TestCase.assertSame(builder, text.get(record));
+
+		FieldAccessor flag = create(strategy, "flag");
+		flag.set(record, Boolean.TRUE);
+		TestCase.assertTrue(record.isFlag());
+		TestCase.assertEquals(Boolean.TRUE, flag.get(record));
+
+		try {
+			count.set(record, null);
+			TestCase.assertTrue(false);
+		} catch (CsvException e) {
+			// a primitive can not be null
+		}
+
+		try {
+			text.set(record, Integer.valueOf(1));
+			TestCase.assertTrue(false);
+		} catch (CsvException e) {
+			// not a CharSequence
+		}
+
+	}
+
+	public void testMethodHandle() throws Exception {
+		roundTrip(FieldAccessors.METHOD_HANDLE);
+	}
+
+	public void testLambda() throws Exception {
+		roundTrip(FieldAccessors.LAMBDA);
+	}
+
+	public void testLambda_noAccessors() throws Exception {
+
+		Field field = AccessorRecord.class.getDeclaredField("hidden");
+
+		try {
+			FieldAccessors.LAMBDA.create(field);
+			TestCase.assertTrue(false);
+		} catch (IllegalAccessException e) {
+			TestCase.assertTrue(e.getMessage().contains("no public getter and setter"));
+		}
+
+		AccessorRecord record = new AccessorRecord();
+		FieldAccessor accessor = FieldAccessors.newAccessor(field);
+		accessor.set(record, "你好");
+		TestCase.assertEquals("你好", record.hidden);
+		TestCase.assertEquals("你好", accessor.get(record));
+
+	}
+
+}
@@ -0,0 +1,74 @@
+package com.aispeech.aicsv;
+
+import java.io.IOException;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class TestUniqueIndex extends TestCase {
+
+	public void testHashed() throws IOException {
+
+		HashedUniqueIndex index = new HashedUniqueIndex();
+
+		for (int i = 0; i < 100000; i++) {
+			TestCase.assertEquals(UniqueIndex.ADDED, index.add("value" + i, i + 2));
+		}
+
+		TestCase.assertEquals(UniqueIndex.ADDED, index.add("", 1));
+		TestCase.assertEquals(12, index.add("value10", 100002));
+		TestCase.assertEquals(99999 + 2, index.add("value99999", 100003));
+
+		/*
+		 * a removed value can be added again, the others are still found
+		 */
+		for (int i = 0; i < 100000; i += 2) {
+			index.remove("value" + i, i + 2);
+		}
+		for (int i = 0; i < 100000; i++) {
+			TestCase.assertEquals(i % 2 == 0 ? UniqueIndex.ADDED : i + 2, index.add("value" + i, 200000 + i));
+		}
+		TestCase.assertTrue(index.finish().isEmpty());
+
+		index.close();
+	}
+
+	public void testSpill() throws IOException {
+
+		SpillingUniqueIndex index = new SpillingUniqueIndex(7, null);
+
+		for (int i = 0; i < 100; i++) {
+			TestCase.assertEquals(UniqueIndex.ADDED, index.add("value" + (i % 40), i + 2));
+		}
+
+		List<UniqueIndex.Duplicate> duplicates = index.finish();
+		TestCase.assertEquals(60, duplicates.size());
+
+		UniqueIndex.Duplicate first = duplicates.get(0);
+		TestCase.assertEquals("value0", first.value);
+		TestCase.assertEquals(42, first.line);
+		TestCase.assertEquals(2, first.firstLine);
+
+		UniqueIndex.Duplicate last = duplicates.get(59);
+		TestCase.assertEquals("value19", last.value);
+		TestCase.assertEquals(101, last.line);
+		TestCase.assertEquals(21, last.firstLine);
+
+	}
+
+	public void testSpillInMemory() throws IOException {
+
+		SpillingUniqueIndex index = new SpillingUniqueIndex(1000, null);
+
+		index.add("b", 2);
+		index.add("a", 3);
+		index.add("b", 4);
+
+		List<UniqueIndex.Duplicate> duplicates = index.finish();
+		TestCase.assertEquals(1, duplicates.size());
+		TestCase.assertEquals(4, duplicates.get(0).line);
+		TestCase.assertEquals(2, duplicates.get(0).firstLine);
+
+	}
+
+}